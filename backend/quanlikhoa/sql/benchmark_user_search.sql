@@ -0,0 +1,149 @@
+-- ===================================================================
+-- BENCHMARK TÌM KIẾM USERS - LIKE cũ vs pg_trgm + unaccent
+-- ===================================================================
+-- File: benchmark_user_search.sql
+-- Location: sql/benchmark_user_search.sql
+--
+-- Sinh 200.000 users giả (họ tên tiếng Việt có dấu) trong 1 transaction,
+-- đo từng kiểu query rồi ROLLBACK (database không bị thay đổi).
+-- Cần schema.sql đã chạy (extensions, f_user_search_text, idx_users_search_trgm),
+-- tức là backend đã khởi động ít nhất 1 lần.
+--
+-- Chạy: psql -d khoa_cntt_db -f sql/benchmark_user_search.sql
+--
+-- So sánh:
+--   A. Query cũ: lower(col) LIKE '%x%' trên 3 cột → Seq Scan toàn bảng,
+--      "nguyen" không khớp "Nguyễn"
+--   B. Query mới (UserSpecifications.matching): f_user_search_text(...) LIKE ...
+--      → Bitmap Index Scan idx_users_search_trgm, khớp cả khi không gõ dấu
+--   C. Query mới + sắp xếp relevance (sortBy=relevance): ORDER BY word_similarity
+-- Mỗi query chạy 3 lần, lấy lần cuối (cache đã nóng). Đọc "Execution Time"
+-- và số dòng khớp (rows) của A và B để thấy khác biệt về kết quả.
+--
+-- Kết quả đo (PostgreSQL 16.4, 1 vCPU, shared_buffers=256MB, 200.000 users, lần chạy cuối):
+--   A. "nguyen"     → Index Scan Backward idx_users_created_at lọc hết bảng
+--                     (200.441 buffer hits), 431 ms, chỉ 1 dòng (không khớp "Nguyễn")
+--   A. "user_19999" → Parallel Seq Scan, 295 ms (11 dòng); count 308 ms
+--   B. "nguyen"     → idx_users_created_at + Incremental Sort, đọc 67 dòng, 2,8 ms, 20 dòng
+--   B. "user_19999" → Bitmap Index Scan idx_users_search_trgm (112 ứng viên → 11 dòng),
+--                     5,9 ms; count 6,0 ms
+--   C. "hai"        → Parallel Bitmap Heap Scan idx_users_search_trgm (9.984 dòng)
+--                     + Sort theo word_similarity, 175 ms; top 5 đều là "... Văn Hải"
+-- ===================================================================
+
+\timing on
+
+BEGIN;
+
+-- Dữ liệu giả: họ + tên đệm + tên, username / email không dấu
+INSERT INTO users (username, password_hash, email, full_name, role_id, is_active, created_at)
+SELECT 'bench_user_' || g,
+       '$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchma',
+       'bench_user_' || g || '@bench.local',
+       (ARRAY['Nguyễn', 'Trần', 'Lê', 'Phạm', 'Hoàng', 'Huỳnh', 'Phan', 'Vũ', 'Võ', 'Đặng', 'Bùi', 'Đỗ'])[1 + g % 12]
+           || ' ' || (ARRAY['Văn', 'Thị', 'Hữu', 'Đức', 'Minh', 'Ngọc', 'Thanh', 'Quốc'])[1 + (g / 12) % 8]
+           || ' ' || (ARRAY['An', 'Bình', 'Cường', 'Dũng', 'Giang', 'Hải', 'Hương', 'Khoa', 'Linh', 'Long',
+                            'Nam', 'Phúc', 'Quân', 'Sơn', 'Thảo', 'Trang', 'Tuấn', 'Uyên', 'Việt', 'Yến'])[1 + (g / 96) % 20],
+       7,
+       g % 10 <> 0,
+       now() - (g % 1000) * interval '1 hour'
+FROM generate_series(1, 200000) AS g;
+
+ANALYZE users;
+
+-- -------------------------------------------------------------------
+-- A. Query cũ (3 cột, LOWER LIKE) - "nguyen" không dấu: 0 dòng họ Nguyễn
+-- -------------------------------------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%nguyen%' OR lower(u.email) LIKE '%nguyen%' OR lower(u.full_name) LIKE '%nguyen%'
+ORDER BY u.created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%nguyen%' OR lower(u.email) LIKE '%nguyen%' OR lower(u.full_name) LIKE '%nguyen%'
+ORDER BY u.created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%nguyen%' OR lower(u.email) LIKE '%nguyen%' OR lower(u.full_name) LIKE '%nguyen%'
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- Từ khóa hiếm (ít dòng khớp): Seq Scan vẫn phải đọc hết bảng
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%user_19999%' OR lower(u.email) LIKE '%user_19999%' OR lower(u.full_name) LIKE '%user_19999%'
+ORDER BY u.created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%user_19999%' OR lower(u.email) LIKE '%user_19999%' OR lower(u.full_name) LIKE '%user_19999%'
+ORDER BY u.created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE lower(u.username) LIKE '%user_19999%' OR lower(u.email) LIKE '%user_19999%' OR lower(u.full_name) LIKE '%user_19999%'
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- Count query của trang (Page.totalElements)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(u.user_id) FROM users u
+WHERE lower(u.username) LIKE '%user_19999%' OR lower(u.email) LIKE '%user_19999%' OR lower(u.full_name) LIKE '%user_19999%';
+
+-- -------------------------------------------------------------------
+-- B. Query mới (trigram + unaccent) - "nguyen" khớp "Nguyễn"
+-- -------------------------------------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('nguyen')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('nguyen')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('nguyen')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('user\_19999')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('user\_19999')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('user\_19999')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(u.user_id) FROM users u
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('user\_19999')) || '%' ESCAPE '\';
+
+-- -------------------------------------------------------------------
+-- C. Query mới + sortBy=relevance
+-- -------------------------------------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('hai')) || '%' ESCAPE '\'
+ORDER BY word_similarity(f_unaccent(lower('hai')), f_user_search_text(u.username, u.email, u.full_name)) DESC, u.user_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('hai')) || '%' ESCAPE '\'
+ORDER BY word_similarity(f_unaccent(lower('hai')), f_user_search_text(u.username, u.email, u.full_name)) DESC, u.user_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('hai')) || '%' ESCAPE '\'
+ORDER BY word_similarity(f_unaccent(lower('hai')), f_user_search_text(u.username, u.email, u.full_name)) DESC, u.user_id
+LIMIT 20;
+
+-- Kết quả thực tế (5 dòng đầu) để kiểm tra thứ tự relevance
+SELECT u.user_id, u.full_name,
+       word_similarity(f_unaccent(lower('hai')), f_user_search_text(u.username, u.email, u.full_name)) AS score
+FROM users u
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('hai')) || '%' ESCAPE '\'
+ORDER BY score DESC, u.user_id
+LIMIT 5;
+
+ROLLBACK;
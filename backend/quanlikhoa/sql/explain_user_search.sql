@@ -0,0 +1,84 @@
+-- ===================================================================
+-- KIỂM TRA QUERY PLAN - Danh sách users (GET /api/admin/users)
+-- ===================================================================
+-- File: explain_user_search.sql
+-- Location: sql/explain_user_search.sql
+--
+-- Các câu SELECT dưới đây có cùng dạng với SQL mà Hibernate sinh ra từ
+-- UserSpecifications.matching() (fetch join roles, ORDER BY created_at DESC, LIMIT 20).
+-- Chạy: psql -d khoa_cntt_db -f sql/explain_user_search.sql
+--
+-- Bảng users thật chỉ có vài dòng nên mọi query đều Seq Scan. Để xem plan thật,
+-- chạy trong 1 transaction: BEGIN; seed 200.000 users như sql/benchmark_user_search.sql
+-- (role_id = 5 khi g % 5 = 0, còn lại 7; last_login = now() - (g % 720) giờ khi g % 4 = 0,
+-- còn lại NULL); ANALYZE users; các EXPLAIN bên dưới; ROLLBACK.
+--
+-- Kết quả đo (PostgreSQL 16.4, 1 vCPU, shared_buffers=256MB, 200.000 users, cache nóng):
+--   1. không filter           → Index Scan Backward idx_users_created_at             0,08 ms
+--   2. roleId                 → Index Scan Backward idx_users_role_id_created_at     0,05 ms
+--   3. isActive               → idx_users_created_at + Filter (không có index riêng) 0,25 ms
+--   4. roleId + isActive      → idx_users_role_id_created_at + Filter                0,04 ms
+--   5. search "nguyễn"        → idx_users_created_at + Filter + Incremental Sort     2,8 ms
+--   6. search + role + active → idx_users_role_id_created_at + Incremental Sort      4,1 ms
+--   7. lastLogin range        → Index Scan Backward idx_users_created_at + Filter    0,16 ms
+--   8. createdAt range        → Index Scan Backward idx_users_created_at             4,7 ms
+--   9. count role + active    → Parallel Seq Scan                                    62,7 ms
+-- Ghi chú:
+--   - Với ORDER BY created_at LIMIT 20, khi điều kiện khớp nhiều dòng (search từ phổ biến,
+--     lastLogin 7 ngày), planner duyệt ngược idx_users_created_at rồi lọc vì gặp đủ 20 dòng
+--     rất sớm. idx_users_search_trgm / idx_users_last_login chỉ được chọn khi điều kiện hiếm
+--     (xem sql/benchmark_user_search.sql: từ hiếm → Bitmap Index Scan idx_users_search_trgm).
+--   - Chi phí lớn nhất là câu count của trang (9), đã được giảm bằng UserCountCache và phân trang cursor.
+-- ===================================================================
+
+-- 1. Không filter
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 2. roleId
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE u.role_id = 7
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 3. isActive
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE u.is_active = true
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 4. roleId + isActive
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE u.role_id = 7 AND u.is_active = true
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 5. search
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('nguyễn')) || '%' ESCAPE '\'
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+
+-- 6. search + roleId + isActive
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE f_user_search_text(u.username, u.email, u.full_name) LIKE '%' || f_unaccent(lower('nguyen')) || '%' ESCAPE '\'
+  AND u.role_id = 7 AND u.is_active = true
+ORDER BY u.created_at DESC, u.user_id DESC LIMIT 20;
+
+-- 7. lastLogin range
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE u.last_login >= now() - interval '7 days' AND u.last_login < now()
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 8. createdAt range
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.*, r.* FROM users u JOIN roles r ON r.role_id = u.role_id
+WHERE u.created_at >= now() - interval '30 days' AND u.created_at < now()
+ORDER BY u.created_at DESC LIMIT 20;
+
+-- 9. Count query (Page.totalElements) - không join roles
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(u.user_id) FROM users u WHERE u.role_id = 7 AND u.is_active = true;
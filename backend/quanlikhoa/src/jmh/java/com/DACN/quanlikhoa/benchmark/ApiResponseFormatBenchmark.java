@@ -0,0 +1,108 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.dto.ApiResponse;
+import com.DACN.quanlikhoa.dto.PageResponse;
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmark: kích thước và thời gian serialize / deserialize 1 trang users theo định dạng
+ * (ContentNegotiationConfig: JSON, CBOR, Smile)
+ *
+ * File: ApiResponseFormatBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/ApiResponseFormatBenchmark.java
+ *
+ * Payload: ApiResponse<PageResponse<UserDTO>> như GET /api/admin/users, rows users / trang.
+ * - serialize: object → byte[] (CPU server)
+ * - deserialize: byte[] → object (CPU client)
+ * Kích thước (bytes, và bytes sau gzip) được in ra khi setup mỗi tổ hợp tham số.
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=ApiResponseFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseFormatBenchmark {
+
+    @Param({"20", "100", "1000"})
+    public int rows;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public String format;
+
+    private ObjectMapper mapper;
+
+    private JavaType responseType;
+
+    private ApiResponse<PageResponse<UserDTO>> response;
+
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mapper = switch (format) {
+            case "CBOR" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "SMILE" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        responseType = mapper.getTypeFactory().constructParametricType(ApiResponse.class,
+                mapper.getTypeFactory().constructParametricType(PageResponse.class, UserDTO.class));
+
+        List<UserDTO> users = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            users.add(user(i));
+        }
+        response = ApiResponse.success("Lấy danh sách users thành công", PageResponse.<UserDTO>builder()
+                .content(users)
+                .currentPage(0)
+                .pageSize(rows)
+                .totalElements(50_000L)
+                .totalPages(50_000 / rows)
+                .hasNext(true)
+                .hasPrevious(false)
+                .build());
+
+        encoded = mapper.writeValueAsBytes(response);
+        System.out.printf("%n%s, %d rows: %d bytes, %d bytes gzip%n", format, rows, encoded.length, gzipSize(encoded));
+    }
+
+    private static UserDTO user(int id) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 9, 1, 8, 0).plusMinutes(id);
+        return new UserDTO(id, "sv" + (2024000 + id), "sv" + (2024000 + id) + "@student.edu.vn",
+                "09" + (10000000 + id), "Nguyễn Văn Sinh Viên " + id, "/uploads/avatars/" + id + ".jpg",
+                5, "SINH_VIEN", "Sinh viên", id % 10 != 0,
+                createdAt.plusDays(30), createdAt, createdAt.plusDays(1));
+    }
+
+    private static int gzipSize(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return mapper.readValue(encoded, responseType);
+    }
+}
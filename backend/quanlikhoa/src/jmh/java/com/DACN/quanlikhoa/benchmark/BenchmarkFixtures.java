@@ -0,0 +1,94 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.entity.Role;
+import com.DACN.quanlikhoa.entity.User;
+import com.DACN.quanlikhoa.security.JwtAuthenticationFilter;
+import com.DACN.quanlikhoa.security.JwtTokenProvider;
+import com.DACN.quanlikhoa.security.TokenRevocationStore;
+import com.DACN.quanlikhoa.security.UserPrincipal;
+import com.DACN.quanlikhoa.security.UserPrincipalCache;
+import com.DACN.quanlikhoa.service.RoleRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * Dựng các bean security cho benchmark (không cần Spring context / database)
+ *
+ * File: BenchmarkFixtures.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/BenchmarkFixtures.java
+ */
+final class BenchmarkFixtures {
+
+    static final String JWT_SECRET = "BenchmarkSecretKeyForJwtFilterThatIsLongEnough1234567890";
+
+    static final long JWT_EXPIRATION_MS = 3_600_000L;
+
+    static final String PASSWORD_HASH = "$2a$10$abcdefghijklmnopqrstuuJ1cQ0lqCgxMxKfhzCnrQ2b5uS1v2mW";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtTokenProvider tokenProvider(long verifiedTokenCacheSize) {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", JWT_SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", JWT_EXPIRATION_MS);
+        ReflectionTestUtils.setField(tokenProvider, "verifiedTokenCacheSize", verifiedTokenCacheSize);
+        tokenProvider.init();
+        return tokenProvider;
+    }
+
+    static JwtAuthenticationFilter filter(JwtTokenProvider tokenProvider,
+                                          UserDetailsService userDetailsService,
+                                          boolean principalCacheEnabled,
+                                          boolean claimsAuthorizationEnabled) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "principalCache",
+                new UserPrincipalCache(principalCacheEnabled, 10_000, 300, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(filter, "revocationStore",
+                new TokenRevocationStore(10_000, 0.01, JWT_EXPIRATION_MS, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(filter, "claimsAuthorizationEnabled", claimsAuthorizationEnabled);
+        return filter;
+    }
+
+    static Role role() {
+        Role role = new Role();
+        role.setRoleId(1);
+        role.setRoleName("ADMIN");
+        role.setRoleDescription("Quản trị viên hệ thống");
+        role.setPriorityLevel(1);
+        return role;
+    }
+
+    static RoleRegistry roleRegistry() {
+        RoleRegistry roleRegistry = new RoleRegistry();
+        roleRegistry.load(List.of(role()), "");
+        return roleRegistry;
+    }
+
+    static User user(int id) {
+        Role role = role();
+
+        User user = new User();
+        user.setUserId(id);
+        user.setUsername("user" + id);
+        user.setPasswordHash(PASSWORD_HASH);
+        user.setEmail("user" + id + "@example.com");
+        user.setFullName("Benchmark User " + id);
+        user.setRole(role);
+        user.setIsActive(true);
+        return user;
+    }
+
+    static UserPrincipal principal(int id) {
+        return new UserPrincipal(id, "user" + id, PASSWORD_HASH,
+                "user" + id + "@example.com", "Benchmark User " + id,
+                1, "ADMIN", "Quản trị viên hệ thống", true,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+}
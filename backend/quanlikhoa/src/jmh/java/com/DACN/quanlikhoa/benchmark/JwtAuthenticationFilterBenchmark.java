@@ -0,0 +1,77 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.security.JwtAuthenticationFilter;
+import com.DACN.quanlikhoa.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: chi phí JwtAuthenticationFilter.doFilterInternal cho 1 request
+ *
+ * File: JwtAuthenticationFilterBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/JwtAuthenticationFilterBenchmark.java
+ *
+ * UserDetailsService được stub (không có độ trễ database), principal cache tắt,
+ * để đo riêng phần việc của filter:
+ * - claims: token có claim role, principal dựng từ claims
+ * - legacy: token chỉ có subject, filter gọi UserDetailsService
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=JwtAuthenticationFilterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final int USER_COUNT = 200;
+
+    @Param({"claims", "legacy"})
+    public String tokenType;
+
+    private JwtAuthenticationFilter filter;
+
+    private String[] authorizationHeaders;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JwtTokenProvider tokenProvider = BenchmarkFixtures.tokenProvider(10_000);
+        UserDetailsService userDetailsService = username ->
+                BenchmarkFixtures.principal(Integer.parseInt(username.substring("user".length())));
+
+        filter = BenchmarkFixtures.filter(tokenProvider, userDetailsService, false, true);
+
+        authorizationHeaders = new String[USER_COUNT];
+        for (int i = 0; i < USER_COUNT; i++) {
+            String token = "claims".equals(tokenType)
+                    ? tokenProvider.generateToken(BenchmarkFixtures.principal(i))
+                    : tokenProvider.generateTokenFromUsername("user" + i);
+            authorizationHeaders[i] = "Bearer " + token;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestState {
+        int next;
+    }
+
+    @Benchmark
+    public Object doFilterInternal(RequestState state) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/users");
+        request.addHeader("Authorization", authorizationHeaders[state.next++ % USER_COUNT]);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
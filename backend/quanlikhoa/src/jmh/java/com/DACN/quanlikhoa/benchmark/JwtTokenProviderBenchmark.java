@@ -0,0 +1,66 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.security.JwtTokenProvider;
+import com.DACN.quanlikhoa.security.UserPrincipal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: JwtTokenProvider - tạo token và validate + lấy username
+ *
+ * File: JwtTokenProviderBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/JwtTokenProviderBenchmark.java
+ *
+ * - generateToken: token có claims uid/role/jti (login, refresh)
+ * - validateAndGetUsername: validateToken() + getUsernameFromToken() như code gọi 2 bước
+ *   verifiedTokenCacheSize = 0 → mỗi lần đều parse + verify HMAC
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=JwtTokenProviderBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private static final int TOKEN_COUNT = 200;
+
+    @Param({"10000", "0"})
+    public long verifiedTokenCacheSize;
+
+    private JwtTokenProvider tokenProvider;
+
+    private UserPrincipal principal;
+
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tokenProvider = BenchmarkFixtures.tokenProvider(verifiedTokenCacheSize);
+        principal = BenchmarkFixtures.principal(1);
+
+        tokens = new String[TOKEN_COUNT];
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            tokens[i] = tokenProvider.generateToken(BenchmarkFixtures.principal(i));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TokenState {
+        int next;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken(principal);
+    }
+
+    @Benchmark
+    public String validateAndGetUsername(TokenState state) {
+        String token = tokens[state.next++ % TOKEN_COUNT];
+        return tokenProvider.validateToken(token) ? tokenProvider.getUsernameFromToken(token) : null;
+    }
+}
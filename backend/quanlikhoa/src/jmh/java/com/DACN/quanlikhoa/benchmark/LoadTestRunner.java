@@ -0,0 +1,219 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test: so sánh chế độ platform threads và virtual threads với nhiều client đồng thời
+ *
+ * File: LoadTestRunner.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/LoadTestRunner.java
+ *
+ * Không phải JMH: chạy với server thật (database thật), mỗi client là 1 virtual thread
+ * gửi request liên tục trong thời gian cho trước, ghi kết quả JSON
+ * (throughput, p50/p90/p99/max, số lỗi theo status code).
+ *
+ * Cách so sánh 2 chế độ:
+ *   1. Chạy server với spring.threads.virtual.enabled=false, rồi:
+ *      mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="--label=platform"
+ *   2. Chạy lại server với spring.threads.virtual.enabled=true, rồi:
+ *      mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="--label=virtual"
+ *   3. So sánh target/load-test-platform.json và target/load-test-virtual.json
+ *
+ * Tham số (--key=value):
+ *   --base-url   (http://localhost:8080/api)
+ *   --path       (/admin/users?page=0&size=20) - endpoint được gọi
+ *   --username / --password (admin / admin123) - login 1 lần lấy access token
+ *   --clients    (1000)
+ *   --duration   (30) giây đo, --warmup (10) giây warmup
+ *   --label      (run), --out (target/load-test-<label>.json)
+ *
+ * Kết quả đo (1 vCPU chung cho server + load test, PostgreSQL 16.4, Hikari pool 10,
+ * 1000 clients, 30 giây, /admin/users?page=0&size=20, log ở mức WARN, show-sql=false):
+ *   platform threads            192 req/s, 100% 200, p50 2,0 s, p99 19,8 s, max 22,7 s
+ *   virtual threads, bulkhead   312 req/s, 125 req/s thành công (60% là 503),
+ *                               p50 3,4 s, p99 5,7 s, max 6,9 s
+ *   virtual threads, không bulkhead (bulkhead.enabled=false)
+ *                               287 req/s, 100% 200, p50 3,3 s, p99 9,6 s, max 14,4 s
+ * Bulkhead giữ được latency đuôi nhưng khi quá tải kéo dài thì từ chối phần lớn request;
+ * với máy ít CPU có thể tăng bulkhead.max-wait-ms hoặc bulkhead.admin.max-concurrent.
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080/api");
+        String path = options.getOrDefault("path", "/admin/users?page=0&size=20");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        String label = options.getOrDefault("label", "run");
+        Path out = Path.of(options.getOrDefault("out", "target/load-test-" + label + ".json"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        String accessToken = login(httpClient, objectMapper, baseUrl,
+                options.getOrDefault("username", "admin"), options.getOrDefault("password", "admin123"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + accessToken)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        System.out.printf("Warmup %ds với %d clients...%n", warmupSeconds, clients);
+        run(httpClient, request, clients, warmupSeconds);
+
+        System.out.printf("Đo %ds với %d clients...%n", durationSeconds, clients);
+        long start = System.nanoTime();
+        List<ClientResult> results = run(httpClient, request, clients, durationSeconds);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> report = summarize(label, baseUrl + path, clients, elapsedSeconds, results);
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+
+        System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        System.out.println("Kết quả: " + out.toAbsolutePath());
+    }
+
+    private static String login(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl,
+                                String username, String password) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("username", username, "password", password));
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login thất bại: " + response.statusCode() + " " + response.body());
+        }
+        JsonNode data = objectMapper.readTree(response.body()).path("data");
+        return data.path("accessToken").asText();
+    }
+
+    /**
+     * Chạy clients virtual threads, mỗi thread gửi request liên tục tới hết thời gian
+     */
+    private static List<ClientResult> run(HttpClient httpClient, HttpRequest request,
+                                          int clients, int durationSeconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(durationSeconds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ClientResult>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    ClientResult result = new ClientResult();
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        int status;
+                        try {
+                            status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        result.record(System.nanoTime() - begin, status);
+                    }
+                    return result;
+                }));
+            }
+
+            List<ClientResult> results = new ArrayList<>(clients);
+            for (Future<ClientResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+
+    private static Map<String, Object> summarize(String label, String url, int clients,
+                                                 double elapsedSeconds, List<ClientResult> results) {
+        int total = results.stream().mapToInt(r -> r.count).sum();
+        long[] latencies = new long[total];
+        Map<Integer, Integer> statusCounts = new HashMap<>();
+        int offset = 0;
+        for (ClientResult result : results) {
+            System.arraycopy(result.latencies, 0, latencies, offset, result.count);
+            offset += result.count;
+            result.statusCounts.forEach((status, count) -> statusCounts.merge(status, count, Integer::sum));
+        }
+        Arrays.sort(latencies);
+
+        int ok = statusCounts.getOrDefault(200, 0);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("url", url);
+        report.put("clients", clients);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("requests", total);
+        report.put("throughputPerSecond", total / elapsedSeconds);
+        report.put("successPerSecond", ok / elapsedSeconds);
+        report.put("latencyMillis", Map.of(
+                "p50", percentile(latencies, 0.50),
+                "p90", percentile(latencies, 0.90),
+                "p99", percentile(latencies, 0.99),
+                "max", total == 0 ? 0 : latencies[total - 1] / 1e6));
+        report.put("statusCounts", statusCounts);
+        return report;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Kết quả của 1 client (chỉ 1 thread ghi)
+     */
+    private static class ClientResult {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private final Map<Integer, Integer> statusCounts = new HashMap<>();
+
+        void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statusCounts.merge(status, 1, Integer::sum);
+        }
+    }
+}
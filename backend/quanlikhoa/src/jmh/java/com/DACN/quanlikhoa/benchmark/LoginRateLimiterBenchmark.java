@@ -0,0 +1,62 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.security.LoginRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: LoginRateLimiter.tryAcquire() khi nhiều thread cùng gọi
+ *
+ * File: LoginRateLimiterBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/LoginRateLimiterBenchmark.java
+ *
+ * - keyCount = 1: mọi thread cùng 1 IP + 1 username (CAS tranh chấp nhiều nhất)
+ * - keyCount = 10000: key ngẫu nhiên, bucket phân tán
+ * - refillPerMinute lớn: hầu hết lượt được phép (đường CAS),
+ *   nhỏ: hầu hết bị từ chối (chỉ đọc)
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=LoginRateLimiterBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LoginRateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    public int keyCount;
+
+    @Param({"10", "1000000000"})
+    public int refillPerMinute;
+
+    private LoginRateLimiter limiter;
+
+    private String[] ips;
+
+    private String[] usernames;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        limiter = new LoginRateLimiter(true, false,
+                20, refillPerMinute, 5, refillPerMinute, 100_000, new SimpleMeterRegistry());
+
+        ips = new String[keyCount];
+        usernames = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            ips[i] = "10.0." + (i / 256) + "." + (i % 256);
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        int i = keyCount == 1 ? 0 : ThreadLocalRandom.current().nextInt(keyCount);
+        return limiter.tryAcquire(ips[i], usernames[i]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: chi phí verify password theo BCrypt strength
+ *
+ * File: PasswordEncoderBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/PasswordEncoderBenchmark.java
+ *
+ * Dùng để ước lượng năng lực login: số login/giây/core ≈ 1000 / (ms/op).
+ * So sánh với security.password-hashing.target-ms khi chọn strength.
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=PasswordEncoderBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Password@2025";
+
+    @Param({"10", "11", "12", "13"})
+    public int strength;
+
+    private BCryptPasswordEncoder encoder;
+
+    private String encodedPassword;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        encoder = new BCryptPasswordEncoder(strength);
+        encodedPassword = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches(PASSWORD, encodedPassword);
+    }
+}
@@ -0,0 +1,91 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.security.JwtAuthenticationFilter;
+import com.DACN.quanlikhoa.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmark: requests/giây qua JwtAuthenticationFilter khi bật / tắt principal cache
+ *
+ * File: PrincipalCacheBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/PrincipalCacheBenchmark.java
+ *
+ * UserDetailsService được stub với độ trễ giả lập 1 round trip database
+ * (dbLatencyMicros), 200 users xoay vòng để cache có cả hit lẫn miss lúc warmup.
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=PrincipalCacheBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class PrincipalCacheBenchmark {
+
+    private static final int USER_COUNT = 200;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"300"})
+    public long dbLatencyMicros;
+
+    private JwtAuthenticationFilter filter;
+
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JwtTokenProvider tokenProvider = BenchmarkFixtures.tokenProvider(10_000);
+
+        UserDetailsService userDetailsService = username -> {
+            LockSupport.parkNanos(dbLatencyMicros * 1_000L);
+            return stubUser(username);
+        };
+
+        filter = BenchmarkFixtures.filter(tokenProvider, userDetailsService, cacheEnabled, false);
+
+        tokens = new String[USER_COUNT];
+        for (int i = 0; i < USER_COUNT; i++) {
+            tokens[i] = tokenProvider.generateTokenFromUsername("user" + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestState {
+        int next;
+    }
+
+    @Benchmark
+    public Object authenticatedRequest(RequestState state) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/users");
+        request.addHeader("Authorization", "Bearer " + tokens[state.next++ % USER_COUNT]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        Object principal = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    static UserDetails stubUser(String username) {
+        return User.builder()
+                .username(username)
+                .password(BenchmarkFixtures.PASSWORD_HASH)
+                .roles("ADMIN")
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.security.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: chi phí TokenRevocationStore.isRevoked() trên mỗi request
+ *
+ * File: TokenRevocationBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/TokenRevocationBenchmark.java
+ *
+ * - activeToken: token chưa bị thu hồi (trường hợp thường gặp, Bloom filter trả về false)
+ * - revokedToken: token đã bị thu hồi (Bloom filter + tra map)
+ * Store chứa sẵn revokedCount token bị thu hồi.
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=TokenRevocationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TokenRevocationBenchmark {
+
+    @Param({"0", "10000"})
+    public int revokedCount;
+
+    private TokenRevocationStore store;
+
+    private Claims activeClaims;
+
+    private Claims revokedClaims;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new TokenRevocationStore(10_000, 0.01, 900_000L, new SimpleMeterRegistry());
+
+        Date expiration = new Date(System.currentTimeMillis() + 900_000L);
+        for (int i = 0; i < revokedCount; i++) {
+            store.revoke(claims("user" + i, expiration));
+        }
+
+        revokedClaims = claims("revoked", expiration);
+        store.revoke(revokedClaims);
+        activeClaims = claims("active", expiration);
+    }
+
+    @Benchmark
+    public boolean activeToken() {
+        return store.isRevoked(activeClaims);
+    }
+
+    @Benchmark
+    public boolean revokedToken() {
+        return store.isRevoked(revokedClaims);
+    }
+
+    private static Claims claims(String username, Date expiration) {
+        Claims claims = Jwts.claims().setSubject(username);
+        claims.setId(UUID.randomUUID().toString());
+        claims.setIssuedAt(new Date());
+        claims.setExpiration(expiration);
+        return claims;
+    }
+}
@@ -0,0 +1,53 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.entity.User;
+import com.DACN.quanlikhoa.security.CustomUserDetailsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: CustomUserDetailsService.buildUserDetails (User entity → UserPrincipal)
+ *
+ * File: UserDetailsBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/UserDetailsBenchmark.java
+ *
+ * buildUserDetails là private, gọi qua MethodHandle (chi phí gọi gần như gọi trực tiếp).
+ * Role lấy từ RoleRegistry đã load sẵn 1 role (như sau khi khởi động).
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=UserDetailsBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDetailsBenchmark {
+
+    private CustomUserDetailsService userDetailsService;
+
+    private MethodHandle buildUserDetails;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        userDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "roleRegistry", BenchmarkFixtures.roleRegistry());
+        buildUserDetails = MethodHandles.privateLookupIn(CustomUserDetailsService.class, MethodHandles.lookup())
+                .findVirtual(CustomUserDetailsService.class, "buildUserDetails",
+                        MethodType.methodType(UserDetails.class, User.class));
+        user = BenchmarkFixtures.user(1);
+    }
+
+    @Benchmark
+    public UserDetails buildUserDetails() throws Throwable {
+        return (UserDetails) buildUserDetails.invokeExact(userDetailsService, user);
+    }
+}
@@ -0,0 +1,93 @@
+package com.DACN.quanlikhoa.benchmark;
+
+import com.DACN.quanlikhoa.dto.UserSuggestion;
+import com.DACN.quanlikhoa.service.UserSuggestIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: thời gian trả lời của UserSuggestIndex.suggest() (GET /api/admin/users/suggest)
+ *
+ * File: UserSuggestIndexBenchmark.java
+ * Location: src/jmh/java/com/DACN/quanlikhoa/benchmark/UserSuggestIndexBenchmark.java
+ *
+ * Index chứa userCount users giả (họ tên tiếng Việt có dấu), từ khóa gõ không dấu:
+ * - shortPrefix: 2 ký tự đầu ("ng"), rất nhiều ứng viên
+ * - commonName: họ phổ biến ("nguyen")
+ * - fullName: họ + tên ("nguyen hai")
+ * - username: gần như duy nhất ("sv199999")
+ * - upsert: sửa 1 user (đánh dấu slot cũ + thêm slot mới)
+ *
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Djmh.args=UserSuggestIndexBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSuggestIndexBenchmark {
+
+    private static final String[] LAST_NAMES = {
+            "Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng", "Bùi", "Đỗ"};
+
+    private static final String[] MIDDLE_NAMES = {"Văn", "Thị", "Hữu", "Đức", "Minh", "Ngọc", "Thanh", "Quốc"};
+
+    private static final String[] FIRST_NAMES = {
+            "An", "Bình", "Cường", "Dũng", "Giang", "Hải", "Hương", "Khoa", "Linh", "Long",
+            "Nam", "Phúc", "Quân", "Sơn", "Thảo", "Trang", "Tuấn", "Uyên", "Việt", "Yến"};
+
+    @Param({"200000"})
+    public int userCount;
+
+    private UserSuggestIndex index;
+
+    private int nextUpdate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<UserSuggestion> users = new ArrayList<>(userCount);
+        for (int i = 1; i <= userCount; i++) {
+            users.add(user(i, i));
+        }
+        index = new UserSuggestIndex();
+        index.load(users);
+    }
+
+    private UserSuggestion user(int id, int seed) {
+        String fullName = LAST_NAMES[seed % LAST_NAMES.length] + " "
+                + MIDDLE_NAMES[(seed / LAST_NAMES.length) % MIDDLE_NAMES.length] + " "
+                + FIRST_NAMES[(seed / 96) % FIRST_NAMES.length];
+        return new UserSuggestion(id, "sv" + id, "sv" + id + "@student.edu.vn",
+                fullName, null, "SINH_VIEN", seed % 10 != 0);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> shortPrefix() {
+        return index.suggest("ng", 10, false);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> commonName() {
+        return index.suggest("nguyen", 10, false);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> fullName() {
+        return index.suggest("nguyen hai", 10, false);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> username() {
+        return index.suggest("sv199999", 10, false);
+    }
+
+    @Benchmark
+    public void upsert() {
+        int id = 1 + (nextUpdate++ % userCount);
+        index.upsert(user(id, id + nextUpdate));
+    }
+}
@@ -0,0 +1,73 @@
+package com.DACN.quanlikhoa.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Bulkhead Configuration
+ *
+ * File: BulkheadConfig.java
+ * Location: src/main/java/com/DACN/quanlikhoa/config/BulkheadConfig.java
+ *
+ * Mô tả: Đăng ký BulkheadFilter khi chạy chế độ virtual threads
+ * (spring.threads.virtual.enabled=true), hoặc bật/tắt riêng bằng bulkhead.enabled.
+ *
+ * Số request đồng thời mỗi nhóm mặc định = maximum-pool-size của Hikari
+ * (upload = 1/4 pool vì giữ connection lâu hơn), cấu hình lại bằng
+ * bulkhead.<group>.max-concurrent (0 = mặc định).
+ *
+ * Filter đứng sau Spring Security: request bị từ chối vẫn có CORS headers,
+ * và JWT đã được kiểm tra trước khi chiếm permit.
+ */
+@Configuration
+@ConditionalOnExpression("${bulkhead.enabled:${spring.threads.virtual.enabled:false}}")
+public class BulkheadConfig {
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${bulkhead.auth.max-concurrent:0}")
+    private int authMaxConcurrent;
+
+    @Value("${bulkhead.admin.max-concurrent:0}")
+    private int adminMaxConcurrent;
+
+    @Value("${bulkhead.upload.max-concurrent:0}")
+    private int uploadMaxConcurrent;
+
+    @Value("${bulkhead.max-wait-ms:2000}")
+    private long maxWaitMillis;
+
+    @Value("${bulkhead.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(ObjectMapper objectMapper,
+                                                                 MeterRegistry meterRegistry) {
+        // Thứ tự quan trọng: upload nằm dưới /admin/** nên phải khớp trước
+        List<BulkheadFilter.Group> groups = List.of(
+                new BulkheadFilter.Group("upload",
+                        orDefault(uploadMaxConcurrent, Math.max(1, connectionPoolSize / 4)),
+                        "/**/upload-*", "/**/upload"),
+                new BulkheadFilter.Group("auth", orDefault(authMaxConcurrent, connectionPoolSize), "/auth/**"),
+                new BulkheadFilter.Group("admin", orDefault(adminMaxConcurrent, connectionPoolSize), "/admin/**")
+        );
+
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+                new BulkheadFilter(groups, maxWaitMillis, retryAfterSeconds, objectMapper, meterRegistry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    private static int orDefault(int configured, int defaultValue) {
+        return configured > 0 ? configured : defaultValue;
+    }
+}
@@ -0,0 +1,156 @@
+package com.DACN.quanlikhoa.config;
+
+import com.DACN.quanlikhoa.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead theo nhóm endpoint (semaphore)
+ *
+ * File: BulkheadFilter.java
+ * Location: src/main/java/com/DACN/quanlikhoa/config/BulkheadFilter.java
+ *
+ * Khi chạy trên virtual threads, Tomcat không còn giới hạn số thread xử lý request,
+ * hàng nghìn request có thể cùng chờ connection của Hikari (pool chỉ 10-20).
+ * Filter này giới hạn số request đồng thời cho từng nhóm:
+ * - upload: các endpoint upload file
+ * - auth:   /auth/**
+ * - admin:  /admin/**
+ * Request chờ permit tối đa bulkhead.max-wait-ms, quá thời gian thì trả về 503 + Retry-After.
+ * Request không thuộc nhóm nào đi thẳng.
+ * Permit được trả khi dispatch đầu kết thúc, nên phần ghi dần trên async executor
+ * (export users) không nằm trong bulkhead: export có giới hạn riêng (UserExportLimiter).
+ *
+ * Metrics: bulkhead.available{group}, bulkhead.rejected{group}
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadFilter.class);
+
+    private final List<Group> groups;
+
+    private final long maxWaitMillis;
+
+    private final long retryAfterSeconds;
+
+    private final ObjectMapper objectMapper;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public BulkheadFilter(List<Group> groups, long maxWaitMillis, long retryAfterSeconds,
+                          ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.groups = groups;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+
+        for (Group group : groups) {
+            Gauge.builder("bulkhead.available", group.semaphore, Semaphore::availablePermits)
+                    .tag("group", group.name)
+                    .description("Số permit còn trống")
+                    .register(meterRegistry);
+            group.rejectedCounter = Counter.builder("bulkhead.rejected")
+                    .tag("group", group.name)
+                    .description("Số request bị từ chối do bulkhead đầy")
+                    .register(meterRegistry);
+            logger.info("Bulkhead {}: {} request đồng thời, patterns={}", group.name, group.maxConcurrent, group.patterns);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Group group = resolveGroup(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = group.semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            group.rejectedCounter.increment();
+            logger.warn("Bulkhead {} đầy, từ chối {} {}", group.name, request.getMethod(), request.getRequestURI());
+            reject(response);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            group.semaphore.release();
+        }
+    }
+
+    /**
+     * Nhóm đầu tiên có pattern khớp với path (không tính context-path)
+     */
+    private Group resolveGroup(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Group group : groups) {
+            for (String pattern : group.patterns) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(),
+                ApiResponse.error("Hệ thống đang quá tải, vui lòng thử lại sau"));
+    }
+
+    /**
+     * Nhóm endpoint và semaphore của nhóm
+     */
+    public static class Group {
+
+        private final String name;
+
+        private final List<String> patterns;
+
+        private final int maxConcurrent;
+
+        private final Semaphore semaphore;
+
+        private Counter rejectedCounter;
+
+        public Group(String name, int maxConcurrent, String... patterns) {
+            this.name = name;
+            this.patterns = List.of(patterns);
+            this.maxConcurrent = maxConcurrent;
+            this.semaphore = new Semaphore(maxConcurrent);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.DACN.quanlikhoa.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Content negotiation: JSON (mặc định), CBOR, Smile cho mọi API trả về ApiResponse
+ * 
+ * File: ContentNegotiationConfig.java
+ * Location: src/main/java/com/DACN/quanlikhoa/config/ContentNegotiationConfig.java
+ * 
+ * Client chọn định dạng bằng header Accept:
+ * - application/json, không gửi Accept hoặc Accept nhận mọi loại: JSON như cũ
+ * - application/cbor: CBOR (RFC 8949)
+ * - application/x-jackson-smile: Smile (định dạng nhị phân của Jackson)
+ * Request body cũng đọc được theo Content-Type tương ứng.
+ * 
+ * Converter CBOR / Smile dùng ObjectMapper dựng từ Jackson2ObjectMapperBuilder của Spring Boot
+ * (cùng cấu hình spring.jackson.*, module, định dạng ngày giờ với JSON). Spring Boot đặt chúng
+ * vào đúng vị trí converter mặc định cùng loại (sau JSON), nên JSON vẫn là mặc định.
+ * 
+ * Response có Vary: Accept để cache của trình duyệt / proxy không trả nhầm định dạng.
+ * ETag của /api/auth/me, /api/admin/users/{id}, /api/admin/roles chỉ tính từ phiên bản dữ liệu,
+ * không từ định dạng, nên là weak ETag (W/"..."): cùng dữ liệu nhưng byte khác nhau theo Accept.
+ * If-None-Match so khớp kiểu weak nên 304 vẫn hoạt động với mọi định dạng.
+ * 
+ * So sánh kích thước / thời gian: ApiResponseFormatBenchmark
+ */
+@Configuration
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+    
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof HandlerMethod) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        });
+    }
+}
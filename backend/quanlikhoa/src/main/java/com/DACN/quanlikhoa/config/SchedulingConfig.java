@@ -0,0 +1,18 @@
+package com.DACN.quanlikhoa.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ *
+ * File: SchedulingConfig.java
+ * Location: src/main/java/com/DACN/quanlikhoa/config/SchedulingConfig.java
+ *
+ * Mô tả: Bật @Scheduled cho các tác vụ chạy nền
+ * (ví dụ: flush last_login trong LastLoginService)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,7 +1,12 @@
 package com.DACN.quanlikhoa.config;
 
+import com.DACN.quanlikhoa.security.BoundedPasswordEncoder;
+import com.DACN.quanlikhoa.security.CalibratedPasswordEncoder;
 import com.DACN.quanlikhoa.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -12,7 +17,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -26,7 +30,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
  * Mô tả: Cấu hình bảo mật cho ứng dụng
  * - JWT Token-based authentication
  * - Password encoding với BCrypt
- * - Role-based access control
+ * - Role-based access control + permission matrix (PermissionMatrix, @PreAuthorize)
  * - CORS configuration
  */
 @Configuration
@@ -40,12 +44,69 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * Số thread hash password (0 = số CPU)
+     */
+    @Value("${security.password-hashing.pool-size:0}")
+    private int passwordHashingPoolSize;
+    
+    /**
+     * Số tác vụ hash password tối đa được xếp hàng
+     */
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+    
+    /**
+     * Retry-After (giây) trả về khi hàng đợi hash password đầy
+     */
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private long passwordHashingRetryAfterSeconds;
+    
+    /**
+     * BCrypt strength cố định (0 = tự đo lúc khởi động)
+     */
+    @Value("${security.password-hashing.strength:0}")
+    private int passwordHashingStrength;
+    
+    /**
+     * Ngân sách thời gian cho 1 lần hash khi tự đo strength (ms)
+     */
+    @Value("${security.password-hashing.target-ms:250}")
+    private long passwordHashingTargetMs;
+    
+    @Value("${security.password-hashing.min-strength:10}")
+    private int passwordHashingMinStrength;
+    
+    @Value("${security.password-hashing.max-strength:14}")
+    private int passwordHashingMaxStrength;
+    
     /**
      * Password Encoder Bean - BCrypt
+     * 
+     * - Strength được đo lúc khởi động theo ngân sách thời gian (CalibratedPasswordEncoder),
+     *   hash cũ có strength thấp hơn được hash lại khi login thành công
+     * - BCrypt chạy trên pool riêng có giới hạn (BoundedPasswordEncoder): giới hạn số hash
+     *   chạy cùng lúc + hàng đợi, đầy thì trả 503 ngay. Thread Tomcat vẫn chờ trong lúc hash
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        CalibratedPasswordEncoder bcrypt = passwordHashingStrength > 0
+                ? new CalibratedPasswordEncoder(passwordHashingStrength)
+                : CalibratedPasswordEncoder.calibrate(
+                        passwordHashingTargetMs,
+                        passwordHashingMinStrength,
+                        passwordHashingMaxStrength);
+        meterRegistry.gauge("password.hashing.strength", bcrypt, CalibratedPasswordEncoder::getStrength);
+        
+        return new BoundedPasswordEncoder(
+                bcrypt,
+                passwordHashingPoolSize,
+                passwordHashingQueueCapacity,
+                passwordHashingRetryAfterSeconds,
+                meterRegistry);
     }
     
     /**
@@ -90,17 +151,22 @@ public class SecurityConfig {
             
             // Authorization configuration
             .authorizeHttpRequests()
+                // Async dispatch (StreamingResponseBody của export) hoàn tất request đã được
+                // xác thực ở lần dispatch đầu, JWT filter không chạy lại nên không chặn ở đây
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // Public endpoints (không cần xác thực)
                 .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth/register").permitAll()
+                .requestMatchers(HttpMethod.POST, "/auth/refresh").permitAll()
                 .requestMatchers("/health").permitAll()
-                .requestMatchers("/actuator/**").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+                // Metrics (cache, token revocation, rate limit, hash password): chỉ ADMIN
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 
-                // Admin endpoints (chỉ ADMIN và TRUONG_KHOA)
-                .requestMatchers(HttpMethod.GET, "/admin/**").hasAnyRole("ADMIN", "TRUONG_KHOA")
-                .requestMatchers(HttpMethod.POST, "/admin/**").hasAnyRole("ADMIN", "TRUONG_KHOA")
-                .requestMatchers(HttpMethod.PUT, "/admin/**").hasAnyRole("ADMIN", "TRUONG_KHOA")
-                .requestMatchers(HttpMethod.DELETE, "/admin/**").hasAnyRole("ADMIN", "TRUONG_KHOA")
+                // Admin endpoints: chỉ yêu cầu đăng nhập, quyền của từng endpoint
+                // do @PreAuthorize + PermissionMatrix (role_permissions) quyết định
+                .requestMatchers("/admin/**").authenticated()
                 
                 // Tất cả request khác cần xác thực
                 .anyRequest().authenticated()
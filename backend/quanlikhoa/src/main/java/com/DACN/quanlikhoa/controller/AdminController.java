@@ -2,23 +2,52 @@ package com.DACN.quanlikhoa.controller;
 
 import com.DACN.quanlikhoa.dto.ApiResponse;
 import com.DACN.quanlikhoa.dto.PageResponse;
+import com.DACN.quanlikhoa.dto.UserBulkActionRequest;
+import com.DACN.quanlikhoa.dto.UserBulkActionResult;
 import com.DACN.quanlikhoa.dto.UserCreateRequest;
 import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.dto.UserImportResult;
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import com.DACN.quanlikhoa.dto.UserSuggestion;
 import com.DACN.quanlikhoa.dto.UserUpdateRequest;
 import com.DACN.quanlikhoa.entity.Role;
+import com.DACN.quanlikhoa.security.PasswordHashingRejectedException;
+import com.DACN.quanlikhoa.security.PermissionMatrix;
 import com.DACN.quanlikhoa.service.AdminService;
 import com.DACN.quanlikhoa.service.FileStorageService;
+import com.DACN.quanlikhoa.service.UserExportLimiter;
+import com.DACN.quanlikhoa.service.UserExportWriter;
+import com.DACN.quanlikhoa.service.UserImportParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Admin Controller - Quản lý Users (CRUD)
@@ -27,23 +56,39 @@ import java.util.List;
  * Location: src/main/java/com/DACN/quanlikhoa/controller/AdminController.java
  * 
  * Base URL: /api/admin
- * Authorization: Chỉ ADMIN và TRUONG_KHOA mới được truy cập
+ * Authorization: Mỗi endpoint tự khai báo @PreAuthorize, kiểm tra permission
+ * qua PermissionMatrix (@permissions.has) theo bảng role_permissions, nên role
+ * khác ADMIN truy cập được ngay khi được cấp permission tương ứng.
+ * TRUONG_KHOA chưa có dữ liệu trong role_permissions nên giữ quyền theo role.
  * 
  * KHÔNG ẢNH HƯỞNG đến Authentication endpoints (/api/auth/*)
  */
 @RestController
 @RequestMapping("/admin")
-@PreAuthorize("hasAnyRole('ADMIN', 'TRUONG_KHOA')")
 public class AdminController {
     
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
     
+    private static final Object EXPORT_PERMIT_KEY = AdminController.class.getName() + ".exportPermit";
+    
     @Autowired
     private AdminService adminService;
     
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private PermissionMatrix permissionMatrix;
+    
+    @Autowired
+    private UserImportParser userImportParser;
+    
+    @Autowired
+    private UserExportLimiter exportLimiter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
      * 1. Lấy danh sách users với phân trang, tìm kiếm, lọc, sắp xếp
      * 
@@ -52,11 +97,17 @@ public class AdminController {
      * Query Parameters:
      * - page: Số trang (default: 0)
      * - size: Số items/trang (default: 20, max: 100)
-     * - search: Từ khóa tìm kiếm (username, email, fullName)
+     * - search: Từ khóa tìm kiếm (username, email, fullName), không phân biệt hoa thường và dấu
      * - roleId: Filter theo role ID
      * - isActive: Filter theo status (true/false)
-     * - sortBy: Sắp xếp theo field (createdAt, username, fullName, email)
+     * - lastLoginFrom, lastLoginTo: Khoảng thời gian login gần nhất (ISO, VD: 2025-01-01T00:00:00)
+     * - createdFrom, createdTo: Khoảng thời gian tạo tài khoản (ISO)
+     * - sortBy: Sắp xếp theo field (createdAt, username, fullName, email),
+     *           hoặc relevance (độ giống với search, chỉ chế độ offset)
      * - sortDirection: Hướng sắp xếp (asc, desc)
+     * - pagination: offset (mặc định, có tổng), slice (không có tổng, chỉ hasNext / hasPrevious)
+     *               hoặc cursor (keyset, không đếm tổng, bỏ qua page)
+     * - cursor: nextCursor / previousCursor của response trước (chỉ dùng với pagination=cursor)
      * 
      * Response:
      * {
@@ -69,22 +120,36 @@ public class AdminController {
      *     "totalElements": 100,
      *     "pageSize": 20,
      *     "hasNext": true,
-     *     "hasPrevious": false
+     *     "hasPrevious": false,
+     *     "totalApproximate": false
      *   }
      * }
+     * 
+     * totalElements không COUNT mỗi request: lấy từ cache theo filter (TTL ngắn),
+     * danh sách lớn không filter dùng ước lượng (totalApproximate = true).
+     * Chế độ slice: totalPages, totalElements = null.
+     * Chế độ cursor: currentPage, totalPages, totalElements = null,
+     * thêm "nextCursor" / "previousCursor" (chuỗi opaque)
      */
     @GetMapping("/users")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
     public ResponseEntity<ApiResponse<PageResponse<UserDTO>>> getUsers(
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "20") Integer size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) Integer roleId,
             @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDirection
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(defaultValue = "offset") String pagination,
+            @RequestParam(required = false) String cursor
     ) {
-        logger.info("GET /api/admin/users - page={}, size={}, search={}, roleId={}, isActive={}, sortBy={}, sortDirection={}", 
-                page, size, search, roleId, isActive, sortBy, sortDirection);
+        logger.info("GET /api/admin/users - page={}, size={}, search={}, roleId={}, isActive={}, sortBy={}, sortDirection={}, pagination={}", 
+                page, size, search, roleId, isActive, sortBy, sortDirection, pagination);
         
         try {
             // Validate page và size
@@ -92,12 +157,28 @@ public class AdminController {
             if (size < 1) size = 20;
             if (size > 100) size = 100; // Max 100 items per page
             
-            PageResponse<UserDTO> result = adminService.getUsers(
-                    page, size, search, roleId, isActive, sortBy, sortDirection);
+            UserSearchCriteria criteria = UserSearchCriteria.builder()
+                    .search(search)
+                    .roleId(roleId)
+                    .isActive(isActive)
+                    .lastLoginFrom(lastLoginFrom)
+                    .lastLoginTo(lastLoginTo)
+                    .createdFrom(createdFrom)
+                    .createdTo(createdTo)
+                    .build();
+            
+            PageResponse<UserDTO> result = "cursor".equalsIgnoreCase(pagination)
+                    ? adminService.getUsersByCursor(size, criteria, sortBy, sortDirection, cursor)
+                    : adminService.getUsers(page, size, criteria, sortBy, sortDirection,
+                            !"slice".equalsIgnoreCase(pagination));
             
             return ResponseEntity.ok(
                     ApiResponse.success("Lấy danh sách users thành công", result)
             );
+        } catch (IllegalArgumentException e) {
+            logger.warn("Tham số lấy danh sách users không hợp lệ: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Lỗi khi lấy danh sách users: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -110,6 +191,9 @@ public class AdminController {
      * 
      * GET /api/admin/users/{id}
      * 
+     * Response có ETag (từ users.updated_at, roles.updated_at) và Cache-Control: no-cache;
+     * gửi lại If-None-Match với ETag đó → 304 Not Modified, không có body.
+     * 
      * Response:
      * {
      *   "success": true,
@@ -123,14 +207,26 @@ public class AdminController {
      * }
      */
     @GetMapping("/users/{id}")
-    public ResponseEntity<ApiResponse<UserDTO>> getUserById(@PathVariable Integer id) {
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
+    public ResponseEntity<ApiResponse<UserDTO>> getUserById(@PathVariable Integer id, WebRequest request) {
         logger.info("GET /api/admin/users/{}", id);
         
         try {
+            // ETag từ cột phiên bản (không dựng UserDTO): khớp If-None-Match thì trả 304 luôn
+            String etag = adminService.getUserEtag(id);
+            if (etag != null && request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            
             UserDTO user = adminService.getUserById(id);
-            return ResponseEntity.ok(
-                    ApiResponse.success("Lấy thông tin user thành công", user)
-            );
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+            if (etag != null) {
+                response.eTag(etag);
+            }
+            return response.body(ApiResponse.success("Lấy thông tin user thành công", user));
         } catch (RuntimeException e) {
             logger.error("User không tồn tại: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -167,6 +263,7 @@ public class AdminController {
      * }
      */
     @PostMapping("/users")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('CREATE_USER')")
     public ResponseEntity<ApiResponse<UserDTO>> createUser(
             @Valid @RequestBody UserCreateRequest request) {
         
@@ -178,6 +275,11 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success("Tạo user thành công", createdUser));
                     
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Hash password bị từ chối do quá tải");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             logger.error("Lỗi validation: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -213,6 +315,7 @@ public class AdminController {
      * }
      */
     @PutMapping("/users/{id}")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('EDIT_USER')")
     public ResponseEntity<ApiResponse<UserDTO>> updateUser(
             @PathVariable Integer id,
             @Valid @RequestBody UserUpdateRequest request) {
@@ -226,6 +329,11 @@ public class AdminController {
                     ApiResponse.success("Cập nhật user thành công", updatedUser)
             );
             
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Hash password bị từ chối do quá tải");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             logger.error("Lỗi validation: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -250,6 +358,7 @@ public class AdminController {
      * }
      */
     @DeleteMapping("/users/{id}")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('DELETE_USER')")
     public ResponseEntity<ApiResponse<Void>> deleteUser(@PathVariable Integer id) {
         logger.info("DELETE /api/admin/users/{} - Xóa user (soft delete)", id);
         
@@ -284,6 +393,7 @@ public class AdminController {
      * }
      */
     @PutMapping("/users/{id}/restore")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('EDIT_USER')")
     public ResponseEntity<ApiResponse<UserDTO>> restoreUser(@PathVariable Integer id) {
         logger.info("PUT /api/admin/users/{}/restore - Khôi phục user", id);
         
@@ -318,6 +428,7 @@ public class AdminController {
      * }
      */
     @PutMapping("/users/{id}/toggle-status")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('EDIT_USER')")
     public ResponseEntity<ApiResponse<UserDTO>> toggleUserStatus(@PathVariable Integer id) {
         logger.info("PUT /api/admin/users/{}/toggle-status", id);
         
@@ -356,6 +467,7 @@ public class AdminController {
      * }
      */
     @PostMapping("/users/upload-avatar")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('EDIT_USER')")
     public ResponseEntity<ApiResponse<String>> uploadAvatar(
             @RequestParam("file") MultipartFile file) {
         
@@ -398,17 +510,32 @@ public class AdminController {
      *     ...
      *   ]
      * }
+     * 
+     * Đọc từ RoleRegistry (bộ nhớ). Response có header ETag (weak, đổi khi bảng roles đổi)
+     * và Cache-Control: no-cache; gửi lại If-None-Match với ETag đó → 304 Not Modified, không có body.
      */
     @GetMapping("/roles")
-    public ResponseEntity<ApiResponse<List<Role>>> getAllRoles() {
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
+    public ResponseEntity<ApiResponse<List<Role>>> getAllRoles(WebRequest request) {
         logger.info("GET /api/admin/roles - Lấy danh sách roles");
         
         try {
+            // Lấy ETag trước danh sách: nếu registry load lại ở giữa, client nhận roles mới
+            // với ETag cũ và sẽ tải lại ở lần sau (không bao giờ giữ roles cũ với ETag mới)
+            String etag = adminService.getRolesEtag();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            
             List<Role> roles = adminService.getAllRoles();
             
-            return ResponseEntity.ok(
-                    ApiResponse.success("Lấy danh sách roles thành công", roles)
-            );
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(ApiResponse.success("Lấy danh sách roles thành công", roles));
             
         } catch (Exception e) {
             logger.error("Lỗi khi lấy roles: {}", e.getMessage(), e);
@@ -429,11 +556,20 @@ public class AdminController {
      *   "data": {
      *     "totalUsers": 150,
      *     "activeUsers": 120,
-     *     "inactiveUsers": 30
+     *     "inactiveUsers": 30,
+     *     "byStatus": { "active": 120, "inactive": 30 },
+     *     "byRole": [
+     *       { "roleId": 1, "roleName": "ADMIN", "totalUsers": 2, "activeUsers": 2, "inactiveUsers": 0 },
+     *       ...
+     *     ],
+     *     "reconciledAt": "2025-01-15T10:30:00"
      *   }
      * }
+     * 
+     * Đọc từ bộ đếm trong bộ nhớ (UserStatisticsCounters), không COUNT mỗi request.
      */
     @GetMapping("/users/statistics")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
     public ResponseEntity<ApiResponse<AdminService.UserStatistics>> getUserStatistics() {
         logger.info("GET /api/admin/users/statistics - Lấy thống kê users");
         
@@ -450,4 +586,352 @@ public class AdminController {
                     .body(ApiResponse.error("Lỗi: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 11. Load lại permission matrix từ database
+     * 
+     * POST /api/admin/permissions/reload
+     * 
+     * Dùng sau khi sửa trực tiếp bảng permissions / role_permissions
+     * (matrix cũng tự load lại định kỳ khi dữ liệu thay đổi).
+     */
+    @PostMapping("/permissions/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Set<String>>> reloadPermissions() {
+        logger.info("POST /api/admin/permissions/reload - Load lại permission matrix");
+        
+        try {
+            permissionMatrix.reload();
+            
+            return ResponseEntity.ok(
+                    ApiResponse.success("Load lại permissions thành công", permissionMatrix.getPermissionCodes())
+            );
+            
+        } catch (Exception e) {
+            logger.error("Lỗi khi load lại permissions: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 12. Gợi ý users cho ô chọn user (typeahead)
+     * 
+     * GET /api/admin/users/suggest?q=nguyen&limit=10&includeInactive=false
+     * 
+     * Tìm trong index n-gram trong bộ nhớ (UserSuggestIndex), không query database.
+     * Không phân biệt hoa thường và dấu ("nguyen" khớp "Nguyễn").
+     * 
+     * Query Parameters:
+     * - q: Từ khóa (username, họ tên, email)
+     * - limit: Số kết quả tối đa (default: 10, max: 50)
+     * - includeInactive: Có trả về user đã khóa / xóa không (default: false)
+     * 
+     * Response:
+     * {
+     *   "success": true,
+     *   "message": "Gợi ý users thành công",
+     *   "data": [
+     *     { "userId": 5, "username": "nguyenvana", "email": "...", "fullName": "Nguyễn Văn A",
+     *       "avatarUrl": null, "roleName": "GIANG_VIEN", "isActive": true }
+     *   ]
+     * }
+     */
+    @GetMapping("/users/suggest")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
+    public ResponseEntity<ApiResponse<List<UserSuggestion>>> suggestUsers(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(defaultValue = "false") Boolean includeInactive
+    ) {
+        // Gọi mỗi lần gõ phím → log ở mức debug
+        logger.debug("GET /api/admin/users/suggest - q={}, limit={}", q, limit);
+        
+        try {
+            if (limit < 1) limit = 10;
+            if (limit > 50) limit = 50; // Max 50 gợi ý
+            
+            List<UserSuggestion> suggestions = adminService.suggestUsers(q, limit, includeInactive);
+            
+            return ResponseEntity.ok(
+                    ApiResponse.success("Gợi ý users thành công", suggestions)
+            );
+            
+        } catch (Exception e) {
+            logger.error("Lỗi khi gợi ý users: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 13. Export users (CSV / NDJSON), cùng filter với API danh sách
+     * 
+     * GET /api/admin/users/export?format=csv&gzip=false&search=nguyen&roleId=4&isActive=true
+     * 
+     * Query Parameters:
+     * - format: csv (mặc định, UTF-8 có BOM) hoặc ndjson (mỗi dòng 1 object JSON)
+     * - gzip: Nén gzip, file tải về là .csv.gz / .ndjson.gz (default: false)
+     * - search, roleId, isActive, lastLoginFrom, lastLoginTo, createdFrom, createdTo,
+     *   sortBy, sortDirection: giống GET /api/admin/users
+     * 
+     * Response: file đính kèm (Content-Disposition), ghi dần từng dòng trong lúc đọc database
+     * (StreamingResponseBody), bộ nhớ dùng như nhau dù export 1k hay 500k users.
+     * Lỗi giữa chừng thì kết nối bị ngắt (file không đầy đủ), xem log server.
+     * 
+     * Số export đồng thời bị giới hạn (users.export.max-concurrent, UserExportLimiter),
+     * vượt giới hạn trả về 503 + Retry-After.
+     */
+    @GetMapping("/users/export")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('VIEW_USERS')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") Boolean gzip,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Integer roleId,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            HttpServletRequest request
+    ) {
+        logger.info("GET /api/admin/users/export - format={}, gzip={}, search={}, roleId={}, isActive={}",
+                format, gzip, search, roleId, isActive);
+        
+        try {
+            UserExportWriter.Format exportFormat = UserExportWriter.Format.parse(format);
+            
+            UserSearchCriteria criteria = UserSearchCriteria.builder()
+                    .search(search)
+                    .roleId(roleId)
+                    .isActive(isActive)
+                    .lastLoginFrom(lastLoginFrom)
+                    .lastLoginTo(lastLoginTo)
+                    .createdFrom(createdFrom)
+                    .createdTo(createdTo)
+                    .build();
+            
+            String filename = "users-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE)
+                    + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+            
+            UserExportLimiter.Permit permit = exportLimiter.tryAcquire();
+            if (permit == null) {
+                logger.warn("Đã đủ {} export đồng thời, từ chối export", exportLimiter.getMaxConcurrent());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(exportLimiter.getRetryAfterSeconds()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(errorBody("Đang có quá nhiều export, vui lòng thử lại sau"));
+            }
+            
+            // Stream chạy trên async executor sau khi request này kết thúc: async request
+            // kết thúc (timeout / lỗi) mà stream chưa chạy thì trả permit tại đây
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_PERMIT_KEY,
+                    new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                            permit.releaseIfNotStarted();
+                        }
+                    });
+            
+            StreamingResponseBody body = out -> {
+                if (!permit.start()) {
+                    return;
+                }
+                try {
+                    if (gzip) {
+                        GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                        adminService.exportUsers(criteria, sortBy, sortDirection, exportFormat, gzipOut);
+                        gzipOut.finish();
+                    } else {
+                        adminService.exportUsers(criteria, sortBy, sortDirection, exportFormat, out);
+                    }
+                } catch (Exception e) {
+                    logger.error("Lỗi khi export users: {}", e.getMessage(), e);
+                    throw e;
+                } finally {
+                    permit.release();
+                }
+            };
+            
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(body);
+            
+        } catch (IllegalArgumentException e) {
+            logger.warn("Export không hợp lệ: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(errorBody(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Lỗi khi export users: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(errorBody("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 14. Import users hàng loạt từ file (CSV / JSON)
+     * 
+     * POST /api/admin/users/import
+     * Content-Type: multipart/form-data, field "file"
+     * 
+     * - File .json (hoặc Content-Type application/json): mảng object như POST /api/admin/users
+     * - File khác: CSV có header, VD:
+     *     username,password,email,phone,fullName,roleName
+     *     sv2025001,Abc@12345,sv2025001@student.edu.vn,,Nguyễn Văn A,SINH_VIEN
+     *   (roleId hoặc roleName, phân cách ',' hoặc ';', UTF-8)
+     * 
+     * Dòng lỗi (thiếu field, trùng username / email, role sai) được bỏ qua và báo lại,
+     * các dòng hợp lệ vẫn được tạo.
+     * 
+     * Response:
+     * {
+     *   "success": true,
+     *   "message": "Import users: 998 thành công, 2 lỗi",
+     *   "data": {
+     *     "totalRows": 1000, "createdCount": 998, "failedCount": 2,
+     *     "created": [ { "row": 2, "userId": 501, "username": "sv2025001" }, ... ],
+     *     "errors": [ { "row": 15, "username": "sv2025014", "message": "Email đã tồn tại: ..." }, ... ]
+     *   }
+     * }
+     */
+    @PostMapping(value = "/users/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('CREATE_USER')")
+    public ResponseEntity<ApiResponse<UserImportResult>> importUsers(@RequestParam("file") MultipartFile file) {
+        logger.info("POST /api/admin/users/import - file={}, size={}", file.getOriginalFilename(), file.getSize());
+        
+        try {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("File rỗng");
+            }
+            
+            String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+            boolean json = filename.endsWith(".json") || MediaType.APPLICATION_JSON_VALUE.equals(file.getContentType());
+            
+            List<UserImportParser.Row> rows;
+            try (InputStream in = file.getInputStream()) {
+                rows = json ? userImportParser.parseJson(in) : userImportParser.parseCsv(in);
+            }
+            
+            return importRows(rows);
+            
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Hash password bị từ chối do quá tải");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("File import không hợp lệ: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Lỗi khi import users: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 14b. Import users hàng loạt từ body JSON
+     * 
+     * POST /api/admin/users/import
+     * Content-Type: application/json
+     * 
+     * Body: mảng object như POST /api/admin/users, response giống 14.
+     */
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('CREATE_USER')")
+    public ResponseEntity<ApiResponse<UserImportResult>> importUsersJson(@RequestBody List<UserCreateRequest> requests) {
+        logger.info("POST /api/admin/users/import - {} users (JSON)", requests.size());
+        
+        try {
+            return importRows(userImportParser.fromRequests(requests));
+            
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Hash password bị từ chối do quá tải");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Dữ liệu import không hợp lệ: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Lỗi khi import users: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 15. Kích hoạt / khóa / đổi role hàng loạt
+     * 
+     * POST /api/admin/users/bulk
+     * 
+     * Request Body (chọn users bằng userIds HOẶC filter):
+     * {
+     *   "action": "DEACTIVATE",              // ACTIVATE | DEACTIVATE | CHANGE_ROLE
+     *   "userIds": [501, 502, 503]
+     * }
+     * {
+     *   "action": "CHANGE_ROLE",
+     *   "roleId": 4,
+     *   "filter": { "roleId": 5, "createdTo": "2021-09-01T00:00:00" }   // cùng filter với API 1
+     * }
+     * 
+     * Response:
+     * {
+     *   "success": true,
+     *   "message": "Cập nhật hàng loạt: 2 users",
+     *   "data": {
+     *     "action": "DEACTIVATE", "matchedCount": 3, "updatedCount": 2, "unchangedCount": 1,
+     *     "updatedUserIds": [501, 503]
+     *   }
+     * }
+     */
+    @PostMapping("/users/bulk")
+    @PreAuthorize("hasRole('TRUONG_KHOA') or @permissions.has('EDIT_USER')")
+    public ResponseEntity<ApiResponse<UserBulkActionResult>> bulkUpdateUsers(
+            @Valid @RequestBody UserBulkActionRequest request) {
+        logger.info("POST /api/admin/users/bulk - action={}", request.getAction());
+        
+        try {
+            UserBulkActionResult result = adminService.bulkUpdateUsers(request);
+            
+            return ResponseEntity.ok(
+                    ApiResponse.success("Cập nhật hàng loạt: " + result.getUpdatedCount() + " users", result)
+            );
+            
+        } catch (IllegalArgumentException e) {
+            logger.warn("Request bulk không hợp lệ: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Lỗi khi cập nhật users hàng loạt: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Body lỗi dạng ApiResponse cho endpoint trả về StreamingResponseBody
+     * (ResponseEntity của export phải khai báo đúng kiểu StreamingResponseBody thì Spring mới ghi dần)
+     */
+    private StreamingResponseBody errorBody(String message) {
+        return out -> objectMapper.writeValue(out, ApiResponse.error(message));
+    }
+    
+    private ResponseEntity<ApiResponse<UserImportResult>> importRows(List<UserImportParser.Row> rows) {
+        UserImportResult result = adminService.importUsers(rows);
+        return ResponseEntity.ok(
+                ApiResponse.success("Import users: " + result.getCreatedCount() + " thành công, "
+                        + result.getFailedCount() + " lỗi", result)
+        );
+    }
+}
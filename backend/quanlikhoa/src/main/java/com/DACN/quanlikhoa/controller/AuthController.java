@@ -3,19 +3,29 @@ package com.DACN.quanlikhoa.controller;
 import com.DACN.quanlikhoa.dto.ApiResponse;
 import com.DACN.quanlikhoa.dto.LoginRequest;
 import com.DACN.quanlikhoa.dto.LoginResponse;
+import com.DACN.quanlikhoa.dto.RefreshTokenRequest;
 import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.security.JwtAuthenticationFilter;
+import com.DACN.quanlikhoa.security.LoginRateLimiter;
+import com.DACN.quanlikhoa.security.PasswordHashingRejectedException;
+import com.DACN.quanlikhoa.security.RateLimitExceededException;
 import com.DACN.quanlikhoa.service.AuthService;
 import com.DACN.quanlikhoa.service.UserService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Authentication Controller
@@ -32,13 +42,20 @@ public class AuthController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+    
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<LoginResponse>> login(
-            @Valid @RequestBody LoginRequest loginRequest) {
+            @Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
         
         logger.info("API /api/auth/login - username: {}", loginRequest.getUsername());
         
         try {
+            // Giới hạn số lần login theo IP + username trước khi verify BCrypt
+            loginRateLimiter.checkLogin(request, loginRequest.getUsername());
+            
             LoginResponse loginResponse = authService.login(loginRequest);
             return ResponseEntity.ok(
                     ApiResponse.success("Đăng nhập thành công", loginResponse)
@@ -47,6 +64,16 @@ public class AuthController {
             logger.warn("Login thất bại: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(ApiResponse.error("Username hoặc password không đúng"));
+        } catch (RateLimitExceededException e) {
+            logger.warn("Login bị giới hạn: username={}, ip={}", loginRequest.getUsername(), request.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Login bị từ chối do quá tải: {}", loginRequest.getUsername());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Lỗi khi xử lý login: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -54,12 +81,54 @@ public class AuthController {
         }
     }
     
+    /**
+     * Đổi refresh token lấy access token mới
+     * 
+     * POST /api/auth/refresh
+     * Request Body: { "refreshToken": "..." }
+     * 
+     * Refresh token chỉ dùng được 1 lần, response trả về refresh token mới.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<LoginResponse>> refresh(
+            @Valid @RequestBody RefreshTokenRequest request) {
+        
+        logger.info("API /api/auth/refresh");
+        
+        try {
+            LoginResponse loginResponse = authService.refresh(request.getRefreshToken());
+            return ResponseEntity.ok(
+                    ApiResponse.success("Refresh token thành công", loginResponse)
+            );
+        } catch (BadCredentialsException e) {
+            logger.warn("Refresh token thất bại: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Lỗi khi refresh token: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Có lỗi xảy ra: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Logout
+     * 
+     * POST /api/auth/logout
+     * Request Body (tùy chọn): { "refreshToken": "..." }
+     * 
+     * Access token hiện tại bị thu hồi ngay, refresh token (nếu có) bị thu hồi cả family.
+     */
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout() {
+    public ResponseEntity<ApiResponse<Void>> logout(
+            HttpServletRequest request,
+            @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
         logger.info("API /api/auth/logout");
         
         try {
-            authService.logout();
+            Claims claims = (Claims) request.getAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE);
+            String refreshToken = refreshTokenRequest != null ? refreshTokenRequest.getRefreshToken() : null;
+            authService.logout(claims, refreshToken);
             return ResponseEntity.ok(
                     ApiResponse.success("Đăng xuất thành công", null)
             );
@@ -71,18 +140,29 @@ public class AuthController {
     }
     
     @GetMapping("/me")
-    public ResponseEntity<ApiResponse<UserDTO>> getCurrentUser() {
+    public ResponseEntity<ApiResponse<UserDTO>> getCurrentUser(WebRequest request) {
         logger.info("API /api/auth/me");
         
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String username = authentication.getName();
             
+            // ETag từ UserProfileCache (cache miss: query cột phiên bản): khớp If-None-Match thì trả 304 luôn
+            String etag = userService.getUserInfoEtag(username);
+            if (etag != null && request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
+            
             UserDTO userDTO = userService.getUserInfo(username);
             
-            return ResponseEntity.ok(
-                    ApiResponse.success("Lấy thông tin user thành công", userDTO)
-            );
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+            if (etag != null) {
+                response.eTag(etag);
+            }
+            return response.body(ApiResponse.success("Lấy thông tin user thành công", userDTO));
         } catch (Exception e) {
             logger.error("Lỗi khi lấy thông tin user: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
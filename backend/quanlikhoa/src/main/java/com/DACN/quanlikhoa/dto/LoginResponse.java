@@ -15,7 +15,14 @@ import lombok.NoArgsConstructor;
 public class LoginResponse {
     
     private String accessToken;
+    private String refreshToken;
     private String tokenType = "Bearer";
+    
+    /**
+     * Thời hạn access token (giây)
+     */
+    private Long expiresIn;
+    
     private Integer userId;
     private String username;
     private String fullName;
@@ -12,6 +12,10 @@ import java.util.List;
  * 
  * File: PageResponse.java
  * Location: src/main/java/com/DACN/quanlikhoa/dto/PageResponse.java
+ * 
+ * Chế độ cursor (keyset): currentPage, totalPages, totalElements = null (không đếm),
+ * client dùng nextCursor / previousCursor để chuyển trang.
+ * Chế độ slice: totalPages, totalElements = null, chỉ có hasNext / hasPrevious.
  */
 @Data
 @NoArgsConstructor
@@ -53,4 +57,19 @@ public class PageResponse<T> {
      * Có trang trước đó không
      */
     private Boolean hasPrevious;
+    
+    /**
+     * totalElements là ước lượng (danh sách lớn không filter), null nếu không có tổng
+     */
+    private Boolean totalApproximate;
+    
+    /**
+     * Cursor của trang tiếp theo (chỉ có ở chế độ cursor, null nếu hết)
+     */
+    private String nextCursor;
+    
+    /**
+     * Cursor của trang trước đó (chỉ có ở chế độ cursor, null nếu là trang đầu)
+     */
+    private String previousCursor;
 }
\ No newline at end of file
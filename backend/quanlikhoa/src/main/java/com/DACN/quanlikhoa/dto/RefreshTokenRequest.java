@@ -0,0 +1,26 @@
+package com.DACN.quanlikhoa.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO cho request refresh token / logout
+ * 
+ * File: RefreshTokenRequest.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/RefreshTokenRequest.java
+ * 
+ * Request body dạng JSON:
+ * {
+ *   "refreshToken": "q3Xk..."
+ * }
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenRequest {
+    
+    @NotBlank(message = "Refresh token không được để trống")
+    private String refreshToken;
+}
@@ -0,0 +1,51 @@
+package com.DACN.quanlikhoa.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho request thao tác hàng loạt trên users - POST /api/admin/users/bulk
+ * 
+ * File: UserBulkActionRequest.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserBulkActionRequest.java
+ * 
+ * Chọn users bằng userIds HOẶC filter (cùng điều kiện với GET /api/admin/users), không dùng cả 2.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserBulkActionRequest {
+    
+    @NotNull(message = "Action không được để trống")
+    private Action action;
+    
+    /**
+     * Danh sách user ID
+     */
+    private List<Integer> userIds;
+    
+    /**
+     * Bộ lọc (phải có ít nhất 1 điều kiện)
+     */
+    private UserSearchCriteria filter;
+    
+    /**
+     * Role mới (chỉ dùng với CHANGE_ROLE)
+     */
+    private Integer roleId;
+    
+    /**
+     * Thao tác hàng loạt
+     */
+    public enum Action {
+        ACTIVATE,
+        DEACTIVATE,
+        CHANGE_ROLE
+    }
+}
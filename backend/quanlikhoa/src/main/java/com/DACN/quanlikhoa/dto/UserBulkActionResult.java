@@ -0,0 +1,45 @@
+package com.DACN.quanlikhoa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả thao tác hàng loạt trên users - POST /api/admin/users/bulk
+ * 
+ * File: UserBulkActionResult.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserBulkActionResult.java
+ * 
+ * Users đã ở trạng thái / role đích hoặc không tồn tại không bị sửa, được tính vào unchangedCount.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserBulkActionResult {
+    
+    private UserBulkActionRequest.Action action;
+    
+    /**
+     * Số user ID được chọn (theo userIds hoặc filter)
+     */
+    private Integer matchedCount;
+    
+    /**
+     * Số users đã được sửa
+     */
+    private Integer updatedCount;
+    
+    /**
+     * Số users không cần sửa / không tồn tại
+     */
+    private Integer unchangedCount;
+    
+    /**
+     * ID các users đã được sửa (tăng dần)
+     */
+    private List<Integer> updatedUserIds;
+}
@@ -0,0 +1,111 @@
+package com.DACN.quanlikhoa.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination của danh sách users
+ *
+ * File: UserCursor.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserCursor.java
+ *
+ * Client chỉ thấy chuỗi Base64 URL (opaque), bên trong là JSON:
+ * {"sortBy": "createdAt", "direction": "DESC", "value": "2025-01-01T08:00:00", "userId": 42, "backward": false}
+ *
+ * - value + userId: vị trí (sortField, user_id) của bản ghi cuối (hoặc đầu) trang trước
+ * - backward = true: cursor của previousCursor (lấy trang phía trước vị trí này)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCursor {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String sortBy;
+
+    private String direction;
+
+    /**
+     * Giá trị sort field dạng chuỗi (null nếu field null)
+     */
+    private String value;
+
+    private Integer userId;
+
+    private boolean backward;
+
+    /**
+     * Tạo cursor tại vị trí của user
+     */
+    public static UserCursor of(UserDTO user, String sortBy, String direction, boolean backward) {
+        Object value = sortValue(user, sortBy);
+        return new UserCursor(sortBy, direction, value != null ? value.toString() : null, user.getUserId(), backward);
+    }
+
+    /**
+     * Giá trị sort field của user (khớp với whitelist của AdminService.validateSortField)
+     */
+    public static Object sortValue(UserDTO user, String sortBy) {
+        return switch (sortBy) {
+            case "userId" -> user.getUserId();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "fullName" -> user.getFullName();
+            case "createdAt" -> user.getCreatedAt();
+            case "updatedAt" -> user.getUpdatedAt();
+            case "lastLogin" -> user.getLastLogin();
+            case "isActive" -> user.getIsActive();
+            default -> throw new IllegalArgumentException("Không hỗ trợ sort field: " + sortBy);
+        };
+    }
+
+    /**
+     * Giá trị sort field đã chuyển về đúng kiểu của field
+     */
+    public Comparable<?> typedValue() {
+        if (value == null) {
+            return null;
+        }
+        return switch (sortBy) {
+            case "userId" -> Integer.valueOf(value);
+            case "username", "email", "fullName" -> value;
+            case "createdAt", "updatedAt", "lastLogin" -> LocalDateTime.parse(value);
+            case "isActive" -> Boolean.valueOf(value);
+            default -> throw new IllegalArgumentException("Không hỗ trợ sort field: " + sortBy);
+        };
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(this));
+        } catch (IOException e) {
+            throw new IllegalStateException("Không thể tạo cursor", e);
+        }
+    }
+
+    /**
+     * Giải mã cursor từ client
+     *
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static UserCursor decode(String encoded) {
+        try {
+            UserCursor cursor = objectMapper.readValue(Base64.getUrlDecoder().decode(encoded), UserCursor.class);
+            if (cursor.getSortBy() == null || cursor.getDirection() == null || cursor.getUserId() == null) {
+                throw new IllegalArgumentException("Thiếu thông tin");
+            }
+            cursor.typedValue();
+            return cursor;
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.DACN.quanlikhoa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả import users hàng loạt - POST /api/admin/users/import
+ *
+ * File: UserImportResult.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserImportResult.java
+ *
+ * Dòng hợp lệ được tạo, dòng lỗi được bỏ qua và liệt kê trong errors
+ * (row = số dòng trong file CSV, tính cả dòng header; với JSON là thứ tự phần tử, từ 1).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserImportResult {
+
+    /**
+     * Tổng số dòng dữ liệu đã đọc
+     */
+    private Integer totalRows;
+
+    /**
+     * Số users đã tạo
+     */
+    private Integer createdCount;
+
+    /**
+     * Số dòng lỗi
+     */
+    private Integer failedCount;
+
+    /**
+     * Users đã tạo (theo thứ tự dòng)
+     */
+    private List<CreatedUser> created;
+
+    /**
+     * Lỗi từng dòng (theo thứ tự dòng)
+     */
+    private List<RowError> errors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CreatedUser {
+        private Integer row;
+        private Integer userId;
+        private String username;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Integer row;
+        private String username;
+        private String message;
+    }
+}
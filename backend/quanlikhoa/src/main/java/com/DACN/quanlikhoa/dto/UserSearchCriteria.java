@@ -0,0 +1,41 @@
+package com.DACN.quanlikhoa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Điều kiện lọc danh sách users (admin)
+ * 
+ * File: UserSearchCriteria.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserSearchCriteria.java
+ * 
+ * Field nào null thì không lọc theo field đó.
+ * Khoảng thời gian: from <= giá trị < to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserSearchCriteria {
+    
+    /**
+     * Từ khóa tìm kiếm (username, email, fullName)
+     */
+    private String search;
+    
+    private Integer roleId;
+    
+    private Boolean isActive;
+    
+    private LocalDateTime lastLoginFrom;
+    
+    private LocalDateTime lastLoginTo;
+    
+    private LocalDateTime createdFrom;
+    
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,48 @@
+package com.DACN.quanlikhoa.dto;
+
+import com.DACN.quanlikhoa.entity.Role;
+import com.DACN.quanlikhoa.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả gợi ý user (typeahead) - GET /api/admin/users/suggest
+ *
+ * File: UserSuggestion.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserSuggestion.java
+ *
+ * Chỉ chứa các field cần cho ô chọn user, được giữ trong UserSuggestIndex.
+ * Thứ tự field = thứ tự tham số của constructor expression trong UserRepository.findAllSuggestions().
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserSuggestion {
+
+    private Integer userId;
+    private String username;
+    private String email;
+    private String fullName;
+    private String avatarUrl;
+    private String roleName;
+    private Boolean isActive;
+
+    /**
+     * @param user User vừa lưu
+     * @param role Role của user lấy từ RoleRegistry (User.role là LAZY)
+     */
+    public static UserSuggestion from(User user, Role role) {
+        return new UserSuggestion(
+                user.getUserId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getFullName(),
+                user.getAvatarUrl(),
+                role != null ? role.getRoleName() : null,
+                user.getIsActive()
+        );
+    }
+}
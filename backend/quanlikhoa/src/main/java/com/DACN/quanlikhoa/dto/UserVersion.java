@@ -0,0 +1,39 @@
+package com.DACN.quanlikhoa.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Phiên bản dữ liệu của 1 user (users.updated_at + roles.updated_at), dùng làm ETag
+ * 
+ * File: UserVersion.java
+ * Location: src/main/java/com/DACN/quanlikhoa/dto/UserVersion.java
+ * 
+ * UserDTO gồm cột của users và của role: mọi thay đổi đều đổi ít nhất 1 trong 2 updated_at
+ * (@PreUpdate / trigger update_updated_at_column) hoặc role_id.
+ * Query chỉ đọc 4 cột theo khóa chính (UserRepository.findVersionById / findVersionByUsername).
+ */
+public record UserVersion(Integer userId,
+                          LocalDateTime updatedAt,
+                          Integer roleId,
+                          LocalDateTime roleUpdatedAt) {
+    
+    /**
+     * ETag (weak, W/"..."): SHA-256 của các cột phiên bản, lấy 128 bit đầu
+     * 
+     * Weak vì cùng 1 phiên bản dữ liệu có nhiều biểu diễn byte khác nhau
+     * (JSON / CBOR / Smile, có hoặc không nén gzip).
+     */
+    public String etag() {
+        String version = userId + "\u0000" + updatedAt + "\u0000" + roleId + "\u0000" + roleUpdatedAt;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(version.getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
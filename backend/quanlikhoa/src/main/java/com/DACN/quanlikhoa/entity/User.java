@@ -3,7 +3,9 @@ package com.DACN.quanlikhoa.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -40,8 +42,14 @@ public class User {
     @Column(name = "avatar_url", length = 500)
     private String avatarUrl;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    /**
+     * LAZY: chỉ đọc role_id (getRoleId() của proxy không query),
+     * thông tin role đầy đủ lấy từ RoleRegistry
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "role_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Role role;
     
     @Column(name = "is_active", nullable = false)
@@ -0,0 +1,56 @@
+package com.DACN.quanlikhoa.repository;
+
+import com.DACN.quanlikhoa.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository cho RefreshToken
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Tìm token theo hash, khóa row để 2 request refresh song song không cùng rotate 1 token
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashForUpdate(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Thu hồi toàn bộ tokens trong 1 family (phát hiện reuse)
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    /**
+     * Thu hồi toàn bộ tokens của 1 user
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.userId = :userId AND t.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") Integer userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Thu hồi toàn bộ tokens của nhiều users
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.userId IN :userIds AND t.revokedAt IS NULL")
+    int revokeAllByUserIds(@Param("userIds") Collection<Integer> userIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Xóa tokens đã hết hạn
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :before")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,52 @@
+package com.DACN.quanlikhoa.repository;
+
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Query đọc users dạng UserDTO (projection), dùng chung với UserRepository
+ * 
+ * File: UserProjectionRepository.java
+ * Location: src/main/java/com/DACN/quanlikhoa/repository/UserProjectionRepository.java
+ * 
+ * SELECT đúng các cột của UserDTO (JOIN roles trong SQL), không load entity User:
+ * không có password_hash, không vào persistence context, không dirty checking.
+ * Cài đặt: UserProjectionRepositoryImpl
+ */
+public interface UserProjectionRepository {
+    
+    /**
+     * 1 trang UserDTO thỏa mãn spec, lấy size + 1 dòng để biết hasNext (không COUNT)
+     */
+    Slice<UserDTO> findDtoSlice(Specification<User> spec, Pageable pageable);
+    
+    /**
+     * Tối đa limit UserDTO thỏa mãn spec, theo sort (keyset pagination)
+     */
+    List<UserDTO> findDtos(Specification<User> spec, Sort sort, int limit);
+    
+    /**
+     * Toàn bộ UserDTO thỏa mãn spec, đọc dần bằng cursor forward-only (export)
+     * 
+     * Mỗi lần chỉ giữ fetchSize dòng trong bộ nhớ. Phải gọi trong transaction
+     * (PostgreSQL chỉ dùng cursor khi autocommit tắt) và đóng Stream sau khi dùng.
+     */
+    Stream<UserDTO> streamDtos(Specification<User> spec, Sort sort, int fetchSize);
+    
+    /**
+     * Tối đa limit user_id thỏa mãn spec, tăng dần (thao tác hàng loạt theo bộ lọc)
+     */
+    List<Integer> findIds(Specification<User> spec, int limit);
+    
+    Optional<UserDTO> findDtoById(Integer userId);
+    
+    Optional<UserDTO> findDtoByUsername(String username);
+}
@@ -0,0 +1,143 @@
+package com.DACN.quanlikhoa.repository;
+
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.entity.Role;
+import com.DACN.quanlikhoa.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Cài đặt UserProjectionRepository bằng Criteria API: SELECT new UserDTO(...)
+ * 
+ * File: UserProjectionRepositoryImpl.java
+ * Location: src/main/java/com/DACN/quanlikhoa/repository/UserProjectionRepositoryImpl.java
+ * 
+ * Specification (UserSpecifications) dùng chung với query entity:
+ * matching() không join roles, ở đây role được LEFT JOIN để lấy cột (DTO đủ dữ liệu trong 1 query,
+ * không phụ thuộc RoleRegistry ở tầng repository).
+ */
+class UserProjectionRepositoryImpl implements UserProjectionRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public Slice<UserDTO> findDtoSlice(Specification<User> spec, Pageable pageable) {
+        TypedQuery<UserDTO> query = createQuery(spec, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        
+        List<UserDTO> content = query.getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+    
+    @Override
+    public List<UserDTO> findDtos(Specification<User> spec, Sort sort, int limit) {
+        return createQuery(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public Stream<UserDTO> streamDtos(Specification<User> spec, Sort sort, int fetchSize) {
+        return createQuery(spec, sort)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+    
+    @Override
+    public List<Integer> findIds(Specification<User> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
+        Root<User> root = query.from(User.class);
+        query.select(root.get("userId"));
+        
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("userId")));
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public Optional<UserDTO> findDtoById(Integer userId) {
+        return findOne((root, query, cb) -> cb.equal(root.get("userId"), userId));
+    }
+    
+    @Override
+    public Optional<UserDTO> findDtoByUsername(String username) {
+        return findOne((root, query, cb) -> cb.equal(root.get("username"), username));
+    }
+    
+    private Optional<UserDTO> findOne(Specification<User> spec) {
+        return createQuery(spec, Sort.unsorted())
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst();
+    }
+    
+    /**
+     * SELECT new UserDTO(u.userId, ..., r.roleId, r.roleName, r.roleDescription, ...)
+     * FROM User u LEFT JOIN u.role r WHERE spec ORDER BY sort
+     * 
+     * Sort không có thứ tự thì giữ ORDER BY do spec đặt (VD: UserSpecifications.orderByRelevance)
+     */
+    private TypedQuery<UserDTO> createQuery(Specification<User> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDTO> query = cb.createQuery(UserDTO.class);
+        Root<User> root = query.from(User.class);
+        Join<User, Role> role = root.join("role", JoinType.LEFT);
+        
+        query.select(cb.construct(UserDTO.class,
+                root.get("userId"),
+                root.get("username"),
+                root.get("email"),
+                root.get("phone"),
+                root.get("fullName"),
+                root.get("avatarUrl"),
+                role.get("roleId"),
+                role.get("roleName"),
+                role.get("roleDescription"),
+                root.get("isActive"),
+                root.get("lastLogin"),
+                root.get("createdAt"),
+                root.get("updatedAt")));
+        
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        
+        return entityManager.createQuery(query);
+    }
+}
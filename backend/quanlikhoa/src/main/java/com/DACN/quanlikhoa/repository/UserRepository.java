@@ -1,13 +1,16 @@
 package com.DACN.quanlikhoa.repository;
 
+import com.DACN.quanlikhoa.dto.UserSuggestion;
+import com.DACN.quanlikhoa.dto.UserVersion;
 import com.DACN.quanlikhoa.entity.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,7 +20,8 @@ import java.util.Optional;
  * Location: src/main/java/com/DACN/quanlikhoa/repository/UserRepository.java
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
+public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User>,
+        UserProjectionRepository {
     
     // ===== QUERIES CHO AUTHENTICATION (KHÔNG ĐỘNG VÀO) =====
     
@@ -36,104 +40,39 @@ public interface UserRepository extends JpaRepository<User, Integer> {
      */
     boolean existsByEmail(String email);
     
-    // ===== QUERIES CHO ADMIN CRUD =====
-    
-    /**
-     * Tìm tất cả users với phân trang
-     */
-    @Override
-    Page<User> findAll(Pageable pageable);
-    
-    /**
-     * Tìm theo roleId và isActive
-     */
-    @Query("SELECT u FROM User u WHERE u.role.roleId = :roleId AND u.isActive = :isActive")
-    Page<User> findByRoleIdAndIsActive(
-            @Param("roleId") Integer roleId,
-            @Param("isActive") Boolean isActive,
-            Pageable pageable
-    );
-    
-    /**
-     * Tìm theo roleId
-     */
-    @Query("SELECT u FROM User u WHERE u.role.roleId = :roleId")
-    Page<User> findByRoleId(@Param("roleId") Integer roleId, Pageable pageable);
-    
     /**
-     * Tìm theo isActive
+     * Cập nhật password hash (hash lại khi login với strength mới)
      */
-    @Query("SELECT u FROM User u WHERE u.isActive = :isActive")
-    Page<User> findByIsActive(@Param("isActive") Boolean isActive, Pageable pageable);
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.username = :username")
+    int updatePasswordHash(@Param("username") String username, @Param("passwordHash") String passwordHash);
     
-    /**
-     * Tìm kiếm theo keyword (username, email, fullName)
-     */
-    @Query("SELECT u FROM User u WHERE " +
-           "LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.fullName) LIKE LOWER(CONCAT('%', :search, '%'))")
-    Page<User> findBySearch(@Param("search") String search, Pageable pageable);
-    
-    /**
-     * Tìm kiếm + filter theo roleId
-     */
-    @Query("SELECT u FROM User u WHERE " +
-           "(LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.fullName) LIKE LOWER(CONCAT('%', :search, '%'))) " +
-           "AND u.role.roleId = :roleId")
-    Page<User> findBySearchAndRole(
-            @Param("search") String search,
-            @Param("roleId") Integer roleId,
-            Pageable pageable
-    );
+    // ===== QUERIES CHO ADMIN CRUD =====
     
-    /**
-     * Tìm kiếm + filter theo isActive
-     */
-    @Query("SELECT u FROM User u WHERE " +
-           "(LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.fullName) LIKE LOWER(CONCAT('%', :search, '%'))) " +
-           "AND u.isActive = :isActive")
-    Page<User> findBySearchAndStatus(
-            @Param("search") String search,
-            @Param("isActive") Boolean isActive,
-            Pageable pageable
-    );
+    // Danh sách / chi tiết users (chỉ đọc): UserProjectionRepository.findDtoSlice / findDtos / findDtoById
+    // với UserSpecifications.matching(criteria), trả về UserDTO, không load entity
     
-    /**
-     * Tìm kiếm + filter theo roleId và isActive
-     */
-    @Query("SELECT u FROM User u WHERE " +
-           "(LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.fullName) LIKE LOWER(CONCAT('%', :search, '%'))) " +
-           "AND u.role.roleId = :roleId " +
-           "AND u.isActive = :isActive")
-    Page<User> findBySearchAndRoleAndStatus(
-            @Param("search") String search,
-            @Param("roleId") Integer roleId,
-            @Param("isActive") Boolean isActive,
-            Pageable pageable
-    );
+    // Thống kê users (tổng / theo trạng thái / theo role): UserStatisticsCounters,
+    // khởi tạo bằng 1 query GROUP BY role_id, is_active thay vì COUNT từng loại
     
     /**
-     * Đếm số lượng users theo roleId
+     * Toàn bộ users dạng UserSuggestion (dựng UserSuggestIndex), không load entity
      */
-    @Query("SELECT COUNT(u) FROM User u WHERE u.role.roleId = :roleId")
-    Long countByRoleId(@Param("roleId") Integer roleId);
+    @Query("SELECT new com.DACN.quanlikhoa.dto.UserSuggestion(u.userId, u.username, u.email, u.fullName, "
+            + "u.avatarUrl, r.roleName, u.isActive) FROM User u LEFT JOIN u.role r ORDER BY u.userId")
+    List<UserSuggestion> findAllSuggestions();
     
     /**
-     * Đếm số lượng users active
+     * Phiên bản của user theo ID (ETag cho GET /api/admin/users/{id}), không load entity
      */
-    @Query("SELECT COUNT(u) FROM User u WHERE u.isActive = true")
-    Long countActiveUsers();
+    @Query("SELECT new com.DACN.quanlikhoa.dto.UserVersion(u.userId, u.updatedAt, r.roleId, r.updatedAt) "
+            + "FROM User u LEFT JOIN u.role r WHERE u.userId = :userId")
+    Optional<UserVersion> findVersionById(@Param("userId") Integer userId);
     
     /**
-     * Đếm số lượng users inactive
+     * Phiên bản của user theo username (ETag cho GET /api/auth/me), không load entity
      */
-    @Query("SELECT COUNT(u) FROM User u WHERE u.isActive = false")
-    Long countInactiveUsers();
-}
\ No newline at end of file
+    @Query("SELECT new com.DACN.quanlikhoa.dto.UserVersion(u.userId, u.updatedAt, r.roleId, r.updatedAt) "
+            + "FROM User u LEFT JOIN u.role r WHERE u.username = :username")
+    Optional<UserVersion> findVersionByUsername(@Param("username") String username);
+}
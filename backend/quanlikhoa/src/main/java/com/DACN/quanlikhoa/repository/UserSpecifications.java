@@ -0,0 +1,183 @@
+package com.DACN.quanlikhoa.repository;
+
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import com.DACN.quanlikhoa.entity.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Specifications cho User (lọc danh sách users động)
+ * 
+ * File: UserSpecifications.java
+ * Location: src/main/java/com/DACN/quanlikhoa/repository/UserSpecifications.java
+ * 
+ * Chỉ tạo predicate cho điều kiện có giá trị, nên 1 query dùng được cho mọi
+ * tổ hợp filter. Thêm filter mới = thêm 1 field vào UserSearchCriteria + 1 predicate ở đây.
+ * 
+ * Index sử dụng (xem sql/explain_user_search.sql, sql/benchmark_user_search.sql):
+ * - search: idx_users_search_trgm (GIN pg_trgm trên f_user_search_text, không phân biệt dấu)
+ * - roleId: idx_users_role_id / idx_users_role_id_created_at
+ * - lastLogin: idx_users_last_login
+ * - createdAt (lọc + sắp xếp mặc định): idx_users_created_at
+ * 
+ * Keyset pagination (after): seek theo (sortField, user_id), thứ tự null theo mặc định
+ * của PostgreSQL (ASC NULLS LAST, DESC NULLS FIRST) cho các field nullable.
+ */
+public final class UserSpecifications {
+    
+    private static final char LIKE_ESCAPE = '\\';
+    
+    /**
+     * Sort field có thể null (cần xử lý null trong keyset predicate)
+     * 
+     * Theo schema thật của bảng users, không theo @Column(nullable = false) của entity:
+     * created_at, is_active, updated_at chỉ có DEFAULT, không có NOT NULL.
+     * Các field còn lại của whitelist (user_id, username, email, full_name) là NOT NULL.
+     */
+    private static final Set<String> NULLABLE_SORT_FIELDS = Set.of("lastLogin", "updatedAt", "createdAt", "isActive");
+    
+    private UserSpecifications() {
+    }
+    
+    /**
+     * Users thỏa mãn criteria (không join roles: role lấy từ RoleRegistry theo role_id)
+     */
+    public static Specification<User> matching(UserSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            
+            if (criteria.getSearch() != null && !criteria.getSearch().trim().isEmpty()) {
+                // f_user_search_text(...) LIKE '%' || f_unaccent(lower(:keyword)) || '%'
+                Expression<String> keyword = normalize(cb, cb.literal(escapeLike(criteria.getSearch().trim())));
+                predicates.add(cb.like(searchText(root, cb), cb.concat(cb.concat("%", keyword), "%"), LIKE_ESCAPE));
+            }
+            
+            if (criteria.getRoleId() != null) {
+                predicates.add(cb.equal(root.get("role").get("roleId"), criteria.getRoleId()));
+            }
+            
+            if (criteria.getIsActive() != null) {
+                predicates.add(cb.equal(root.get("isActive"), criteria.getIsActive()));
+            }
+            
+            addRange(predicates, cb, root.get("lastLogin"), criteria.getLastLoginFrom(), criteria.getLastLoginTo());
+            addRange(predicates, cb, root.get("createdAt"), criteria.getCreatedFrom(), criteria.getCreatedTo());
+            
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    /**
+     * Sắp xếp theo độ giống với từ khóa (word_similarity của pg_trgm), cao nhất trước
+     * 
+     * Dùng kèm matching() (lọc) và Pageable không sort, vì sort của Pageable sẽ ghi đè ORDER BY này.
+     * 
+     * @param search Từ khóa tìm kiếm
+     */
+    public static Specification<User> orderByRelevance(String search) {
+        return (root, query, cb) -> {
+            if (!isCountQuery(query.getResultType())) {
+                Expression<String> keyword = normalize(cb, cb.literal(search.trim()));
+                query.orderBy(
+                        cb.desc(cb.function("word_similarity", Double.class, keyword, searchText(root, cb))),
+                        cb.asc(root.get("userId"))
+                );
+            }
+            return cb.conjunction();
+        };
+    }
+    
+    /**
+     * Users nằm sau vị trí (value, userId) theo thứ tự (sortField direction, userId direction)
+     * 
+     * ASC:  field > value OR (field = value AND user_id > userId) [OR field IS NULL]
+     * DESC: field < value OR (field = value AND user_id < userId)
+     * value null (chỉ với field nullable):
+     *   ASC:  field IS NULL AND user_id > userId
+     *   DESC: (field IS NULL AND user_id < userId) OR field IS NOT NULL
+     * 
+     * @param sortField Field sắp xếp (đã qua whitelist)
+     * @param ascending Hướng sắp xếp
+     * @param value Giá trị sort field của bản ghi mốc (đúng kiểu của field)
+     * @param userId user_id của bản ghi mốc
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<User> after(String sortField, boolean ascending, Comparable value, Integer userId) {
+        return (root, query, cb) -> {
+            Expression<Integer> id = root.get("userId");
+            Predicate idAfter = ascending ? cb.greaterThan(id, userId) : cb.lessThan(id, userId);
+            if ("userId".equals(sortField)) {
+                return idAfter;
+            }
+            
+            Expression<Comparable> field = root.get(sortField);
+            boolean nullable = NULLABLE_SORT_FIELDS.contains(sortField);
+            
+            if (value == null) {
+                Predicate sameNull = cb.and(cb.isNull(field), idAfter);
+                return ascending ? sameNull : cb.or(sameNull, cb.isNotNull(field));
+            }
+            
+            Predicate seek = cb.or(
+                    ascending ? cb.greaterThan(field, value) : cb.lessThan(field, value),
+                    cb.and(cb.equal(field, value), idAfter)
+            );
+            return nullable && ascending ? cb.or(seek, cb.isNull(field)) : seek;
+        };
+    }
+    
+    /**
+     * from <= field < to (bỏ qua đầu mút null)
+     */
+    private static void addRange(List<Predicate> predicates, CriteriaBuilder cb,
+                                 Expression<LocalDateTime> field,
+                                 LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(field, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(field, to));
+        }
+    }
+    
+    /**
+     * Chuỗi tìm kiếm của user, cùng biểu thức với index idx_users_search_trgm (schema.sql)
+     */
+    private static Expression<String> searchText(Root<User> root, CriteriaBuilder cb) {
+        return cb.function("f_user_search_text", String.class,
+                root.get("username"), root.get("email"), root.get("fullName"));
+    }
+    
+    /**
+     * Chữ thường, bỏ dấu tiếng Việt (cùng cách chuẩn hóa với f_user_search_text)
+     */
+    private static Expression<String> normalize(CriteriaBuilder cb, Expression<String> text) {
+        return cb.function("f_unaccent", String.class, cb.lower(text));
+    }
+    
+    private static boolean isCountQuery(Class<?> resultType) {
+        return resultType == Long.class || resultType == long.class;
+    }
+    
+    /**
+     * Escape ký tự đặc biệt của LIKE (%, _) trong từ khóa
+     */
+    private static String escapeLike(String keyword) {
+        StringBuilder escaped = new StringBuilder(keyword.length());
+        for (char c : keyword.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
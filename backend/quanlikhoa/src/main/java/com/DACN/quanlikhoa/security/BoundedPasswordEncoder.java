@@ -0,0 +1,213 @@
+package com.DACN.quanlikhoa.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder chạy hash/verify trên thread pool riêng có giới hạn
+ *
+ * File: BoundedPasswordEncoder.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/BoundedPasswordEncoder.java
+ *
+ * BCrypt tốn CPU. Khi có nhiều login cùng lúc mà không giới hạn, mọi worker thread
+ * cùng hash, tranh CPU với nhau và với các request nhẹ (/auth/health, ...).
+ * Encoder này giới hạn số request được nhận (admission control):
+ * - Chạy encode/matches trên pool có số thread = số CPU (hoặc cấu hình),
+ *   nên số hash chạy cùng lúc không vượt quá số CPU
+ * - Hàng đợi có giới hạn, đầy thì ném PasswordHashingRejectedException ngay
+ *   (controller trả về 503 + Retry-After) thay vì để request xếp hàng
+ *
+ * Thread gọi (thread Tomcat) vẫn bị chặn trong future.get() cho tới khi hash xong:
+ * encoder không giải phóng thread Tomcat, chỉ giới hạn số request đang hash / chờ hash.
+ * - Metrics: password.hashing.queue.size, password.hashing.active,
+ *   password.hashing.duration{operation}, password.hashing.rejected
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchesTimer;
+
+    private final Counter rejectedCounter;
+
+    /**
+     * @param delegate Encoder thật (BCrypt)
+     * @param poolSize Số thread hash (<= 0: dùng số CPU)
+     * @param queueCapacity Số tác vụ tối đa được xếp hàng
+     * @param retryAfterSeconds Giá trị header Retry-After khi bị từ chối
+     * @param meterRegistry Micrometer registry
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate,
+                                  int poolSize,
+                                  int queueCapacity,
+                                  long retryAfterSeconds,
+                                  MeterRegistry meterRegistry) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .description("Số tác vụ hash password đang chờ")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Số thread đang hash password")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Số lần hàng đợi hash password đầy")
+                .register(meterRegistry);
+
+        logger.info("Password hashing pool: threads={}, queueCapacity={}", threads, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hash nhiều password song song trên pool (import hàng loạt)
+     *
+     * Mỗi lúc chỉ có tối đa (số thread) tác vụ của lần gọi này trong pool: dùng hết CPU
+     * nhưng không lấp đầy hàng đợi, login đến sau chỉ phải chờ khoảng 1 lần hash.
+     *
+     * @param rawPasswords Danh sách password
+     * @return Hash theo đúng thứ tự đầu vào
+     * @throws PasswordHashingRejectedException nếu hàng đợi đầy (login đang dồn dập)
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int window = executor.getMaximumPoolSize();
+        String[] hashes = new String[rawPasswords.size()];
+        Deque<Future<String>> inFlight = new ArrayDeque<>(window);
+        int done = 0;
+
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                if (inFlight.size() == window) {
+                    hashes[done++] = await(inFlight.removeFirst());
+                }
+                inFlight.addLast(enqueue(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword))));
+            }
+            while (!inFlight.isEmpty()) {
+                hashes[done++] = await(inFlight.removeFirst());
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        return Arrays.asList(hashes);
+    }
+
+    /**
+     * Đưa tác vụ vào pool và chờ kết quả
+     */
+    private <T> T submit(Callable<T> task) {
+        return await(enqueue(task));
+    }
+
+    /**
+     * Đưa tác vụ vào pool
+     *
+     * @throws PasswordHashingRejectedException nếu hàng đợi đầy
+     */
+    private <T> Future<T> enqueue(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            logger.warn("Hàng đợi hash password đã đầy ({} tác vụ), từ chối request", executor.getQueue().size());
+            throw new PasswordHashingRejectedException(
+                    "Hệ thống đang quá tải, vui lòng thử lại sau", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Chờ kết quả của tác vụ đã đưa vào pool
+     */
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị gián đoạn khi chờ hash password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Lỗi khi hash password: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Tắt pool khi context đóng
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thread factory: daemon threads tên "password-hash-N"
+     */
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.DACN.quanlikhoa.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * BCrypt encoder có work factor (strength) được đo lúc khởi động
+ *
+ * File: CalibratedPasswordEncoder.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/CalibratedPasswordEncoder.java
+ *
+ * Lúc khởi động đo thời gian 1 lần hash với từng strength (từ minStrength tăng dần)
+ * và chọn strength cao nhất mà vẫn nằm trong ngân sách thời gian (targetMillis).
+ * Không bao giờ chọn thấp hơn minStrength.
+ *
+ * matches() vẫn verify được hash cũ với mọi strength. upgradeEncoding() trả về true
+ * cho hash có strength thấp hơn strength hiện tại, DaoAuthenticationProvider sẽ
+ * hash lại password khi login thành công (qua UserDetailsPasswordService).
+ */
+public class CalibratedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalibratedPasswordEncoder.class);
+
+    private static final String SAMPLE_PASSWORD = "Calibration-Password-123";
+
+    private static final int SAMPLES = 3;
+
+    private final BCryptPasswordEncoder delegate;
+
+    private final int strength;
+
+    public CalibratedPasswordEncoder(int strength) {
+        this.strength = strength;
+        this.delegate = new BCryptPasswordEncoder(strength);
+    }
+
+    /**
+     * Đo chi phí hash và tạo encoder với strength phù hợp
+     *
+     * @param targetMillis Ngân sách thời gian cho 1 lần hash (ms)
+     * @param minStrength Strength tối thiểu (bảo mật)
+     * @param maxStrength Strength tối đa
+     * @return Encoder đã chọn strength
+     */
+    public static CalibratedPasswordEncoder calibrate(long targetMillis, int minStrength, int maxStrength) {
+        // Warmup JIT trước khi đo
+        new BCryptPasswordEncoder(minStrength).encode(SAMPLE_PASSWORD);
+
+        int chosen = minStrength;
+        for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+            long costMillis = measureMillis(candidate);
+            logger.info("BCrypt strength {}: {} ms/hash", candidate, costMillis);
+
+            if (costMillis > targetMillis) {
+                break;
+            }
+            chosen = candidate;
+
+            // Mỗi strength tăng 1 thì chi phí gấp đôi, dừng sớm nếu chắc chắn vượt ngân sách
+            if (costMillis * 2 > targetMillis) {
+                break;
+            }
+        }
+
+        logger.info("Chọn BCrypt strength = {} (ngân sách {} ms)", chosen, targetMillis);
+        return new CalibratedPasswordEncoder(chosen);
+    }
+
+    /**
+     * Thời gian hash trung vị (ms) với strength cho trước
+     */
+    private static long measureMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    /**
+     * Hash có strength thấp hơn strength hiện tại thì cần hash lại
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        try {
+            return delegate.upgradeEncoding(encodedPassword);
+        } catch (IllegalArgumentException e) {
+            // Không phải BCrypt hash - để nguyên
+            return false;
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+}
@@ -1,11 +1,16 @@
 package com.DACN.quanlikhoa.security;
 
+import com.DACN.quanlikhoa.entity.Role;
 import com.DACN.quanlikhoa.entity.User;
 import com.DACN.quanlikhoa.repository.UserRepository;
+import com.DACN.quanlikhoa.service.RoleRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -26,13 +31,24 @@ import java.util.List;
  * Spring Security sẽ dùng UserDetails để:
  * - Authenticate user (check username/password)
  * - Authorize user (check authorities/roles)
+ * 
+ * Implement thêm UserDetailsPasswordService: khi login thành công với hash cũ
+ * (strength thấp hơn hiện tại), DaoAuthenticationProvider gọi updatePassword để lưu hash mới.
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
     
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserPrincipalCache principalCache;
+    
+    @Autowired
+    private RoleRegistry roleRegistry;
+    
     /**
      * Load user by username
      * 
@@ -81,6 +97,42 @@ public class CustomUserDetailsService implements UserDetailsService {
         return buildUserDetails(user);
     }
     
+    /**
+     * Lưu password hash mới (hash lại trong lúc login)
+     * 
+     * Được DaoAuthenticationProvider gọi khi passwordEncoder.upgradeEncoding() = true
+     * 
+     * @param user UserDetails vừa xác thực thành công
+     * @param newPassword Password hash mới
+     * @return UserDetails với password hash mới
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordHash(user.getUsername(), newPassword);
+        principalCache.evict(user.getUsername());
+        
+        logger.info("Đã hash lại password cho user: {}", user.getUsername());
+        
+        if (user instanceof UserPrincipal principal) {
+            return new UserPrincipal(
+                    principal.getUserId(),
+                    principal.getUsername(),
+                    newPassword,
+                    principal.getEmail(),
+                    principal.getFullName(),
+                    principal.getRoleId(),
+                    principal.getRoleName(),
+                    principal.getRoleDescription(),
+                    principal.isEnabled(),
+                    principal.getAuthorities()
+            );
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+    
     /**
      * Build UserDetails object từ User entity
      * 
@@ -91,28 +143,35 @@ public class CustomUserDetailsService implements UserDetailsService {
      * - accountNonExpired, accountNonLocked, credentialsNonExpired, enabled
      * 
      * @param user User entity từ database
-     * @return UserDetails object
+     * @return UserPrincipal object
      */
     private UserDetails buildUserDetails(User user) {
+        // User.role là LAZY: lấy role từ RoleRegistry theo role_id, không query bảng roles
+        Role role = roleRegistry.get(user.getRole().getRoleId());
+        
         // Tạo authorities từ role
         // Format: ROLE_<roleName>
         // Ví dụ: ROLE_ADMIN, ROLE_SINH_VIEN
         List<GrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + user.getRole().getRoleName()));
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.getRoleName()));
         
-        // Trả về UserDetails với:
+        // Trả về UserPrincipal (UserDetails) với:
         // - username
         // - password (đã hash)
         // - authorities (roles)
-        // - các flag (enabled, accountNonExpired, ...)
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPasswordHash())
-                .authorities(authorities)
-                .accountExpired(false)
-                .accountLocked(!user.getIsActive())  // Locked nếu isActive = false
-                .credentialsExpired(false)
-                .disabled(!user.getIsActive())       // Disabled nếu isActive = false
-                .build();
+        // - các flag: Locked/Disabled nếu isActive = false
+        // - thông tin cơ bản của user (dùng lại khi login, không cần query lại)
+        return new UserPrincipal(
+                user.getUserId(),
+                user.getUsername(),
+                user.getPasswordHash(),
+                user.getEmail(),
+                user.getFullName(),
+                role.getRoleId(),
+                role.getRoleName(),
+                role.getRoleDescription(),
+                user.isAccountActive(),
+                authorities
+        );
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.DACN.quanlikhoa.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -26,8 +28,9 @@ import java.io.IOException;
  * 
  * Filter này chạy trước mỗi request để:
  * 1. Lấy JWT token từ header "Authorization"
- * 2. Validate token
- * 3. Load user từ database
+ * 2. Validate token (1 lần parse + verify, lấy luôn claims), bỏ qua token đã bị thu hồi
+ * 3. Dựng user từ claims (token có claim role), hoặc load user
+ *    (UserPrincipalCache, miss thì query database) với token cũ
  * 4. Set authentication vào SecurityContext
  * 
  * Luồng hoạt động:
@@ -48,6 +51,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private UserPrincipalCache principalCache;
+    
+    @Autowired
+    private TokenRevocationStore revocationStore;
+    
+    /**
+     * Request attribute chứa claims của token hiện tại (AuthController.logout dùng để thu hồi token)
+     */
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".claims";
+    
+    /**
+     * Authorize từ claims của token (không query database mỗi request)
+     * Inject từ application.properties: jwt.claims-authorization.enabled
+     */
+    @Value("${jwt.claims-authorization.enabled:true}")
+    private boolean claimsAuthorizationEnabled;
+    
     /**
      * Filter method - được gọi cho mỗi request
      * 
@@ -63,13 +84,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 1. Lấy JWT token từ request header
             String jwt = getJwtFromRequest(request);
             
-            // 2. Validate token và lấy username
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            // 2. Validate token và lấy claims (username)
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.validateAndGetClaims(jwt) : null;
+            if (claims != null && revocationStore.isRevoked(claims)) {
+                logger.debug("Token của user {} đã bị thu hồi", claims.getSubject());
+            } else if (claims != null) {
                 // Lấy username từ token
-                String username = tokenProvider.getUsernameFromToken(jwt);
+                String username = claims.getSubject();
                 
-                // 3. Load user details từ database
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // 3. Dựng user từ claims, token cũ thì load user details (cache trước, miss thì query database)
+                UserDetails userDetails = (claimsAuthorizationEnabled && tokenProvider.hasRoleClaim(claims))
+                        ? tokenProvider.getPrincipalFromClaims(claims)
+                        : principalCache.get(username, userDetailsService::loadUserByUsername);
                 
                 // 4. Tạo authentication object
                 UsernamePasswordAuthenticationToken authentication = 
@@ -84,6 +110,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 // 5. Set authentication vào SecurityContext
                 // Từ đây, Spring Security biết user đã authenticated
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                request.setAttribute(CLAIMS_ATTRIBUTE, claims);
                 
                 logger.debug("Set authentication cho user: {}", username);
             }
@@ -1,16 +1,28 @@
 package com.DACN.quanlikhoa.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provider để tạo và validate JWT Token
@@ -22,12 +34,38 @@ import java.util.Date;
  * 1. Tạo JWT token từ username
  * 2. Validate token
  * 3. Lấy username từ token
+ * 
+ * Mỗi token có "jti" riêng để TokenRevocationService thu hồi được từng token,
+ * và claim "iat_ms" (thời điểm cấp theo ms) để thu hồi theo user.
+ * Access token có thêm claims "uid" (userId) và "role" (roleName), nên
+ * JwtAuthenticationFilter có thể dựng principal từ token mà không cần query database.
+ * 
+ * Signing key và JwtParser được tạo 1 lần lúc khởi động.
+ * Token đã verify được cache (key = SHA-256 của token) tới khi token hết hạn,
+ * nên các request song song dùng cùng token chỉ verify HMAC 1 lần.
  */
 @Component
 public class JwtTokenProvider {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
     
+    /**
+     * Claim chứa userId
+     */
+    public static final String CLAIM_USER_ID = "uid";
+    
+    /**
+     * Claim chứa roleName
+     */
+    public static final String CLAIM_ROLE = "role";
+    
+    /**
+     * Claim chứa thời điểm cấp token (epoch ms)
+     * "iat" chỉ có độ chính xác giây, TokenRevocationStore cần phân biệt token cấp
+     * trước / sau thời điểm thu hồi trong cùng 1 giây
+     */
+    public static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+    
     /**
      * Secret key để sign JWT token
      * Inject từ application.properties: jwt.secret
@@ -36,13 +74,56 @@ public class JwtTokenProvider {
     private String jwtSecret;
     
     /**
-     * Thời gian hết hạn của token (milliseconds)
+     * Thời gian hết hạn của access token (milliseconds)
      * Inject từ application.properties: jwt.expiration
-     * Default: 86400000 ms = 24 hours
+     * Access token ngắn hạn (vài phút), client dùng refresh token để lấy token mới
      */
     @Value("${jwt.expiration}")
     private long jwtExpirationMs;
     
+    /**
+     * Số token đã verify tối đa giữ trong cache
+     * Inject từ application.properties: jwt.verified-token-cache.max-size
+     */
+    @Value("${jwt.verified-token-cache.max-size:10000}")
+    private long verifiedTokenCacheSize = 10000;
+    
+    private Key signingKey;
+    
+    private JwtParser jwtParser;
+    
+    private Cache<String, Claims> verifiedTokens;
+    
+    /**
+     * Tạo signing key, parser và cache 1 lần lúc khởi động
+     */
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return remainingNanos(claims);
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+    
     /**
      * Tạo JWT token từ Authentication object
      * 
@@ -55,72 +136,97 @@ public class JwtTokenProvider {
      * @return JWT token string
      */
     public String generateToken(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return generateToken(principal);
+        }
+        
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
         
         return Jwts.builder()
                 .setSubject(userDetails.getUsername())  // Username trong payload
+                .setId(UUID.randomUUID().toString())    // jti - dùng để thu hồi token
+                .claim(CLAIM_ISSUED_AT_MS, now.getTime())  // iat theo ms
                 .setIssuedAt(now)                       // Thời gian tạo token
                 .setExpiration(expiryDate)              // Thời gian hết hạn
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)  // Sign với secret key
+                .signWith(signingKey, SignatureAlgorithm.HS256)  // Sign với secret key
                 .compact();
     }
     
     /**
-     * Tạo JWT token từ username (overload method)
+     * Tạo access token kèm claims userId và role
      * 
-     * @param username Username
+     * Payload: {"sub": "admin", "jti": "...", "iat_ms": ..., "uid": 1, "role": "ADMIN", "iat": ..., "exp": ...}
+     * 
+     * @param principal UserPrincipal đã xác thực
      * @return JWT token string
      */
-    public String generateTokenFromUsername(String username) {
+    public String generateToken(UserPrincipal principal) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
         
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(principal.getUsername())
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_ISSUED_AT_MS, now.getTime())
+                .claim(CLAIM_USER_ID, principal.getUserId())
+                .claim(CLAIM_ROLE, principal.getRoleName())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
     /**
-     * Lấy username từ JWT token
-     * 
-     * Parse token và extract "sub" claim (subject)
+     * Tạo JWT token từ username (overload method)
      * 
-     * @param token JWT token string
-     * @return Username
+     * @param username Username
+     * @return JWT token string
      */
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String generateTokenFromUsername(String username) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
         
-        return claims.getSubject();
+        return Jwts.builder()
+                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_ISSUED_AT_MS, now.getTime())
+                .setIssuedAt(now)
+                .setExpiration(expiryDate)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
     }
     
     /**
-     * Validate JWT token
+     * Validate token và lấy claims chỉ với 1 lần parse + verify chữ ký
      * 
      * Kiểm tra:
      * 1. Token có đúng format không
      * 2. Signature có hợp lệ không
      * 3. Token có hết hạn chưa
      * 
-     * @param authToken JWT token string
-     * @return true nếu token hợp lệ, false nếu không
+     * Token đã verify được lấy lại từ cache cho tới khi hết hạn.
+     * 
+     * @param token JWT token string
+     * @return Claims nếu token hợp lệ, null nếu không
      */
-    public boolean validateToken(String authToken) {
+    public Claims validateAndGetClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            logger.error("JWT claims string trống");
+            return null;
+        }
+        
+        String digest = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            verifiedTokens.put(digest, claims);
+            return claims;
         } catch (MalformedJwtException ex) {
             logger.error("Token JWT không hợp lệ: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
@@ -132,18 +238,97 @@ public class JwtTokenProvider {
         } catch (Exception ex) {
             logger.error("Lỗi validate JWT: {}", ex.getMessage());
         }
-        return false;
+        return null;
+    }
+    
+    /**
+     * Lấy username từ JWT token
+     * 
+     * Parse token và extract "sub" claim (subject)
+     * 
+     * @param token JWT token string
+     * @return Username
+     * @throws JwtException nếu token không hợp lệ
+     */
+    public String getUsernameFromToken(String token) {
+        Claims claims = validateAndGetClaims(token);
+        if (claims == null) {
+            throw new JwtException("Token JWT không hợp lệ");
+        }
+        return claims.getSubject();
+    }
+    
+    /**
+     * Validate JWT token
+     * 
+     * @param authToken JWT token string
+     * @return true nếu token hợp lệ, false nếu không
+     */
+    public boolean validateToken(String authToken) {
+        return validateAndGetClaims(authToken) != null;
+    }
+    
+    /**
+     * Token có chứa claim role không (token cấp trước khi có claim này thì không)
+     */
+    public boolean hasRoleClaim(Claims claims) {
+        return claims.get(CLAIM_ROLE) != null;
     }
     
     /**
-     * Tạo signing key từ secret
+     * Dựng UserPrincipal từ claims của access token (không query database)
      * 
-     * Convert secret string thành Key object để sign token
+     * Principal này không có password, email, fullName.
      * 
-     * @return Key object
+     * @param claims Claims đã verify
+     * @return UserPrincipal
+     */
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        String roleName = claims.get(CLAIM_ROLE, String.class);
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        
+        return new UserPrincipal(
+                userId != null ? userId.intValue() : null,
+                claims.getSubject(),
+                "",
+                null,
+                null,
+                null,
+                roleName,
+                null,
+                true,
+                List.of(new SimpleGrantedAuthority("ROLE_" + roleName))
+        );
+    }
+    
+    /**
+     * Thời hạn access token (giây)
+     */
+    public long getExpirationSeconds() {
+        return jwtExpirationMs / 1000;
+    }
+    
+    /**
+     * SHA-256 của token, dùng làm key cho cache token đã verify
+     */
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 không được hỗ trợ", ex);
+        }
+    }
+    
+    /**
+     * Thời gian còn lại (nanoseconds) tới khi token hết hạn
      */
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    private long remainingNanos(Claims claims) {
+        Date expiration = claims.getExpiration();
+        long remainingMs = (expiration != null)
+                ? expiration.getTime() - System.currentTimeMillis()
+                : jwtExpirationMs;
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
     }
 }
\ No newline at end of file
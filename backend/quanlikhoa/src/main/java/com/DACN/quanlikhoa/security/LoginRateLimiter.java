@@ -0,0 +1,246 @@
+package com.DACN.quanlikhoa.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn số lần login theo IP và theo username (token bucket)
+ *
+ * File: LoginRateLimiter.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/LoginRateLimiter.java
+ *
+ * Mỗi lần login tốn 1 lần verify BCrypt, nên 1 script gửi login liên tục có thể
+ * chiếm hết CPU. Limiter này chạy trước AuthService.login:
+ * - Mỗi key (IP, username) có 1 bucket: tối đa "burst" lần liên tiếp,
+ *   sau đó hồi "refill-per-minute" lần mỗi phút
+ * - Bucket không khóa: trạng thái là 1 AtomicLong (thời điểm bucket đầy trở lại,
+ *   thuật toán GCRA - tương đương token bucket), cập nhật bằng CAS
+ * - Bucket đã đầy lại (không còn khác bucket mới) được dọn định kỳ,
+ *   số bucket tối đa có giới hạn (security.login-rate-limit.max-buckets).
+ *   Khi đầy, key mới vẫn bị giới hạn: bỏ bớt các bucket ít bị giới hạn nhất (TAT nhỏ nhất)
+ *   để lấy chỗ, bucket của tài khoản đang bị dò mật khẩu (TAT xa nhất) được giữ lại
+ * - Vượt giới hạn: AuthController trả về 429 + Retry-After
+ * - Metrics: login.rate_limit.rejected{key}, login.rate_limit.buckets{key}
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final boolean enabled;
+
+    private final KeyedBuckets ipBuckets;
+
+    private final KeyedBuckets usernameBuckets;
+
+    private final boolean trustForwardedFor;
+
+    public LoginRateLimiter(
+            @Value("${security.login-rate-limit.enabled:true}") boolean enabled,
+            @Value("${security.login-rate-limit.trust-forwarded-for:false}") boolean trustForwardedFor,
+            @Value("${security.login-rate-limit.ip.burst:300}") int ipBurst,
+            @Value("${security.login-rate-limit.ip.refill-per-minute:300}") int ipRefillPerMinute,
+            @Value("${security.login-rate-limit.username.burst:5}") int usernameBurst,
+            @Value("${security.login-rate-limit.username.refill-per-minute:5}") int usernameRefillPerMinute,
+            @Value("${security.login-rate-limit.max-buckets:100000}") int maxBuckets,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.trustForwardedFor = trustForwardedFor;
+        this.ipBuckets = new KeyedBuckets("ip", ipBurst, ipRefillPerMinute, maxBuckets, meterRegistry);
+        this.usernameBuckets = new KeyedBuckets("username", usernameBurst, usernameRefillPerMinute, maxBuckets, meterRegistry);
+
+        logger.info("Login rate limit: enabled={}, ip(burst={}, refill={}/phút), username(burst={}, refill={}/phút)",
+                enabled, ipBurst, ipRefillPerMinute, usernameBurst, usernameRefillPerMinute);
+    }
+
+    /**
+     * Lấy 1 lượt login cho request
+     *
+     * @param request HTTP request (lấy IP client)
+     * @param username Username đăng nhập
+     * @throws RateLimitExceededException nếu IP hoặc username đã hết lượt
+     */
+    public void checkLogin(HttpServletRequest request, String username) {
+        checkLogin(resolveClientIp(request), username);
+    }
+
+    /**
+     * Lấy 1 lượt login cho IP và username
+     *
+     * @param clientIp IP của client
+     * @param username Username đăng nhập
+     * @throws RateLimitExceededException nếu IP hoặc username đã hết lượt
+     */
+    public void checkLogin(String clientIp, String username) {
+        long retryAfterSeconds = tryAcquire(clientIp, username);
+        if (retryAfterSeconds > 0) {
+            throw new RateLimitExceededException(
+                    "Quá nhiều lần đăng nhập, vui lòng thử lại sau " + retryAfterSeconds + " giây",
+                    retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Lấy 1 lượt login cho IP và username
+     *
+     * @return 0 nếu được phép, ngược lại số giây phải chờ (Retry-After)
+     */
+    public long tryAcquire(String clientIp, String username) {
+        return tryAcquire(clientIp, username, System.nanoTime());
+    }
+
+    /**
+     * Lấy 1 lượt login tại thời điểm now (System.nanoTime())
+     */
+    long tryAcquire(String clientIp, String username, long now) {
+        if (!enabled) {
+            return 0;
+        }
+
+        long waitNanos = ipBuckets.tryAcquire(clientIp, now);
+        if (waitNanos == 0 && username != null) {
+            waitNanos = usernameBuckets.tryAcquire(username.trim().toLowerCase(Locale.ROOT), now);
+        }
+        return waitNanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    /**
+     * IP của client. Chỉ đọc X-Forwarded-For khi chạy sau reverse proxy tin cậy
+     * (security.login-rate-limit.trust-forwarded-for), vì client tự đặt được header này.
+     */
+    private String resolveClientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Dọn bucket đã đầy lại (idle)
+     */
+    @Scheduled(fixedDelayString = "${security.login-rate-limit.cleanup-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int evicted = ipBuckets.evictIdle(now) + usernameBuckets.evictIdle(now);
+        if (evicted > 0) {
+            logger.debug("Đã dọn {} login rate-limit buckets", evicted);
+        }
+    }
+
+    /**
+     * Tập bucket theo key (1 loại key: ip hoặc username)
+     *
+     * GCRA: mỗi bucket lưu TAT (theoretical arrival time) - thời điểm bucket đầy trở lại.
+     * Lượt mới được phép nếu TAT - now <= (burst - 1) * interval, khi đó TAT += interval.
+     */
+    static final class KeyedBuckets {
+
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private final long intervalNanos;
+
+        private final long toleranceNanos;
+
+        private final int maxBuckets;
+
+        private final Counter rejectedCounter;
+
+        KeyedBuckets(String name, int burst, int refillPerMinute, int maxBuckets, MeterRegistry meterRegistry) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(refillPerMinute, 1);
+            this.toleranceNanos = intervalNanos * (Math.max(burst, 1) - 1);
+            this.maxBuckets = maxBuckets;
+
+            this.rejectedCounter = Counter.builder("login.rate_limit.rejected")
+                    .tag("key", name)
+                    .description("Số lần login bị từ chối do vượt giới hạn")
+                    .register(meterRegistry);
+            Gauge.builder("login.rate_limit.buckets", buckets, Map::size)
+                    .tag("key", name)
+                    .description("Số bucket đang theo dõi")
+                    .register(meterRegistry);
+        }
+
+        /**
+         * @return 0 nếu được phép, ngược lại số nano giây phải chờ
+         */
+        long tryAcquire(String key, long now) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxBuckets) {
+                    // Hết chỗ: dọn bớt để key mới vẫn bị giới hạn (không bỏ qua key mới)
+                    makeRoom(now);
+                }
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+
+            while (true) {
+                long tat = bucket.get();
+                long start = tat - now > 0 ? tat : now;
+                long waitNanos = start - now - toleranceNanos;
+                if (waitNanos > 0) {
+                    rejectedCounter.increment();
+                    return waitNanos;
+                }
+                if (bucket.compareAndSet(tat, start + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Xóa bucket đã đầy lại (TAT <= now)
+         *
+         * Thread đang giữ bucket vừa bị xóa có thể cập nhật vào bucket cũ,
+         * tối đa mất 1 lượt - chấp nhận được, đổi lại không cần khóa.
+         */
+        int evictIdle(long now) {
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+            return before - buckets.size();
+        }
+
+        /**
+         * Dọn khi số bucket đạt maxBuckets: xóa bucket idle, nếu vẫn đầy thì xóa
+         * 10% bucket có TAT nhỏ nhất (ít lượt bị giới hạn nhất, thường là dùng lâu nhất).
+         *
+         * Kẻ tấn công rải nhiều username ngẫu nhiên chỉ đẩy ra các bucket 1 - 2 lượt của chính nó,
+         * bucket của tài khoản đang bị thử mật khẩu liên tục có TAT xa nhất nên bị xóa sau cùng.
+         */
+        synchronized void makeRoom(long now) {
+            if (buckets.size() < maxBuckets) {
+                return; // Thread khác vừa dọn xong
+            }
+            evictIdle(now);
+            if (buckets.size() < maxBuckets) {
+                return;
+            }
+
+            long[] tats = buckets.values().stream().mapToLong(AtomicLong::get).map(tat -> tat - now).sorted().toArray();
+            long threshold = tats[Math.min(tats.length - 1, Math.max(1, maxBuckets / 10) - 1)];
+            buckets.values().removeIf(bucket -> bucket.get() - now <= threshold);
+            logger.warn("Login rate-limit buckets đầy ({}), đã bỏ các bucket ít bị giới hạn nhất, còn {}",
+                    maxBuckets, buckets.size());
+        }
+
+        int size() {
+            return buckets.size();
+        }
+    }
+}
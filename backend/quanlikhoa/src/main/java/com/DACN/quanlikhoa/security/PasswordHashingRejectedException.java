@@ -0,0 +1,23 @@
+package com.DACN.quanlikhoa.security;
+
+/**
+ * Exception khi hàng đợi hash password đã đầy
+ *
+ * File: PasswordHashingRejectedException.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/PasswordHashingRejectedException.java
+ *
+ * Controller bắt exception này và trả về 503 + header Retry-After.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
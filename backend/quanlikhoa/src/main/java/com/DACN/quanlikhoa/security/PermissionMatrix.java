@@ -0,0 +1,176 @@
+package com.DACN.quanlikhoa.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ma trận Role → Permission trong bộ nhớ (bảng permissions + role_permissions)
+ *
+ * File: PermissionMatrix.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/PermissionMatrix.java
+ *
+ * - Mỗi permission_code được gán 1 số thứ tự (ordinal)
+ * - Mỗi role có 1 BitSet: bit thứ i bật nếu role có permission thứ i
+ * - Snapshot bất biến, đổi bằng AtomicReference (đọc không khóa, không query database)
+ * - Định kỳ so fingerprint của 2 bảng, khác thì load lại
+ *   (security.permissions.reload-interval-ms), hoặc gọi reload() thủ công
+ *
+ * Dùng trong @PreAuthorize (bean name "permissions"):
+ *   @PreAuthorize("@permissions.has('VIEW_USERS')")
+ */
+@Component("permissions")
+public class PermissionMatrix {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionMatrix.class);
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private static final String FINGERPRINT_SQL =
+            "SELECT (SELECT COUNT(*) FROM permissions) || ':' "
+            + "|| (SELECT COALESCE(SUM(hashtext(permission_id || ':' || permission_code)::BIGINT), 0) FROM permissions) || ':' "
+            + "|| (SELECT COUNT(*) FROM role_permissions) || ':' "
+            + "|| (SELECT COALESCE(SUM(hashtext(role_id || ':' || permission_id)::BIGINT), 0) FROM role_permissions)";
+
+    private static final String PERMISSIONS_SQL =
+            "SELECT permission_code FROM permissions ORDER BY permission_id";
+
+    private static final String ROLE_PERMISSIONS_SQL =
+            "SELECT r.role_name, p.permission_code "
+            + "FROM role_permissions rp "
+            + "JOIN roles r ON r.role_id = rp.role_id "
+            + "JOIN permissions p ON p.permission_id = rp.permission_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * User hiện tại (SecurityContext) có permission không
+     *
+     * @param permissionCode Mã permission (VD: VIEW_USERS)
+     */
+    public boolean has(String permissionCode) {
+        return has(SecurityContextHolder.getContext().getAuthentication(), permissionCode);
+    }
+
+    /**
+     * User đã xác thực có permission không
+     *
+     * @param authentication Authentication hiện tại
+     * @param permissionCode Mã permission
+     */
+    public boolean has(Authentication authentication, String permissionCode) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof UserPrincipal userPrincipal) {
+            return roleHas(userPrincipal.getRoleName(), permissionCode);
+        }
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name.startsWith(ROLE_PREFIX) && roleHas(name.substring(ROLE_PREFIX.length()), permissionCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Role có permission không
+     *
+     * @param roleName Tên role (VD: ADMIN)
+     * @param permissionCode Mã permission
+     */
+    public boolean roleHas(String roleName, String permissionCode) {
+        Snapshot current = snapshot.get();
+        Integer ordinal = current.ordinals.get(permissionCode);
+        if (ordinal == null) {
+            logger.warn("Permission không tồn tại: {}", permissionCode);
+            return false;
+        }
+        BitSet bits = current.rolePermissions.get(roleName);
+        return bits != null && bits.get(ordinal);
+    }
+
+    /**
+     * Danh sách mã permission đã load
+     */
+    public Set<String> getPermissionCodes() {
+        return snapshot.get().ordinals.keySet();
+    }
+
+    /**
+     * Load lại nếu dữ liệu 2 bảng đã thay đổi (so fingerprint)
+     */
+    @Scheduled(initialDelayString = "${security.permissions.reload-interval-ms:60000}",
+               fixedDelayString = "${security.permissions.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        try {
+            String fingerprint = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+            if (!fingerprint.equals(snapshot.get().fingerprint)) {
+                reload();
+            }
+        } catch (Exception e) {
+            logger.error("Không thể kiểm tra thay đổi permissions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Load toàn bộ ma trận từ database và đổi snapshot
+     */
+    public synchronized void reload() {
+        String fingerprint = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (String code : jdbcTemplate.queryForList(PERMISSIONS_SQL, String.class)) {
+            ordinals.putIfAbsent(code, ordinals.size());
+        }
+
+        Map<String, BitSet> rolePermissions = new HashMap<>();
+        jdbcTemplate.query(ROLE_PERMISSIONS_SQL, rs -> {
+            rolePermissions.computeIfAbsent(rs.getString("role_name"), k -> new BitSet(ordinals.size()))
+                    .set(ordinals.get(rs.getString("permission_code")));
+        });
+
+        snapshot.set(new Snapshot(fingerprint,
+                Collections.unmodifiableMap(ordinals),
+                Collections.unmodifiableMap(rolePermissions)));
+
+        logger.info("Đã load permission matrix: {} permissions, {} roles có permission",
+                ordinals.size(), rolePermissions.size());
+    }
+
+    /**
+     * Snapshot bất biến của ma trận (BitSet không bị sửa sau khi tạo)
+     */
+    private record Snapshot(String fingerprint,
+                            Map<String, Integer> ordinals,
+                            Map<String, BitSet> rolePermissions) {
+
+        static final Snapshot EMPTY = new Snapshot("", Map.of(), Map.of());
+    }
+}
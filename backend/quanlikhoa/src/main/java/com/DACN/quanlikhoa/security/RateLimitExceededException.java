@@ -0,0 +1,23 @@
+package com.DACN.quanlikhoa.security;
+
+/**
+ * Exception khi vượt quá giới hạn số lần login
+ *
+ * File: RateLimitExceededException.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/RateLimitExceededException.java
+ *
+ * Controller bắt exception này và trả về 429 + header Retry-After.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,253 @@
+package com.DACN.quanlikhoa.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Danh sách access token bị thu hồi (logout, khóa / xóa tài khoản)
+ *
+ * File: TokenRevocationStore.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/TokenRevocationStore.java
+ *
+ * JwtAuthenticationFilter gọi isRevoked() cho mọi request, nên:
+ * - Không query database, mọi thứ nằm trong bộ nhớ
+ * - Thu hồi 1 token (logout): lưu jti → exp vào map, đồng thời thêm jti vào Bloom filter.
+ *   Request bình thường chỉ tốn vài phép hash + đọc bit, Bloom filter trả về
+ *   "chắc chắn không có" thì không cần tra map
+ * - Thu hồi toàn bộ token của 1 user (khóa / xóa): lưu username → thời điểm thu hồi (ms),
+ *   mọi token của user cấp trước hoặc đúng thời điểm đó đều bị từ chối. Thời điểm cấp lấy từ
+ *   claim "iat_ms"; "iat" chỉ tính theo giây nên token cấp ngay sau khi thu hồi
+ *   (đổi mật khẩu rồi đăng nhập lại) sẽ bị từ chối oan nếu chỉ so sánh "iat"
+ * - Định kỳ dọn entry đã hết hạn và dựng lại Bloom filter
+ *   (security.token-revocation.prune-interval-ms)
+ *
+ * Lưu ý: danh sách nằm trong bộ nhớ của từng instance, mất khi restart.
+ * Access token ngắn hạn (jwt.expiration) nên thiệt hại giới hạn trong thời hạn token,
+ * refresh token đã được thu hồi trong database.
+ */
+@Component
+public class TokenRevocationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationStore.class);
+
+    private final int expectedEntries;
+
+    private final double falsePositiveRate;
+
+    private final long accessTokenLifetimeMs;
+
+    /**
+     * jti → thời điểm hết hạn của token (epoch ms)
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * username → thời điểm thu hồi (epoch ms, cùng độ chính xác với claim iat_ms)
+     */
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    private final Counter rejectedCounter;
+
+    public TokenRevocationStore(
+            @Value("${security.token-revocation.expected-entries:10000}") int expectedEntries,
+            @Value("${security.token-revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.expiration}") long accessTokenLifetimeMs,
+            MeterRegistry meterRegistry) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.accessTokenLifetimeMs = accessTokenLifetimeMs;
+        this.bloomFilter = new BloomFilter(expectedEntries, falsePositiveRate);
+
+        Gauge.builder("token.revocation.tokens", revokedTokens, Map::size)
+                .description("Số access token đang bị thu hồi")
+                .register(meterRegistry);
+        Gauge.builder("token.revocation.users", revokedUsers, Map::size)
+                .description("Số user đang bị thu hồi toàn bộ token")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("token.revocation.rejected")
+                .description("Số request bị từ chối vì token đã bị thu hồi")
+                .register(meterRegistry);
+
+        logger.info("Token revocation store: expectedEntries={}, fpp={}", expectedEntries, falsePositiveRate);
+    }
+
+    /**
+     * Token đã bị thu hồi chưa (gọi cho mọi request, không khóa, không query database)
+     *
+     * @param claims Claims đã verify
+     * @return true nếu token bị thu hồi
+     */
+    public boolean isRevoked(Claims claims) {
+        if (!revokedUsers.isEmpty()) {
+            Long revokedAt = revokedUsers.get(claims.getSubject());
+            if (revokedAt != null && issuedAtOrBefore(claims, revokedAt)) {
+                rejectedCounter.increment();
+                return true;
+            }
+        }
+
+        String jti = claims.getId();
+        if (jti != null && bloomFilter.mightContain(jti) && revokedTokens.containsKey(jti)) {
+            rejectedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Token được cấp trước hoặc đúng thời điểm revokedAtMs
+     *
+     * Token không có claim iat_ms (cấp trước khi có claim này) so sánh theo giây của "iat":
+     * cùng giây với thời điểm thu hồi thì coi như bị thu hồi.
+     */
+    private static boolean issuedAtOrBefore(Claims claims, long revokedAtMs) {
+        Number issuedAtMs = claims.get(JwtTokenProvider.CLAIM_ISSUED_AT_MS, Number.class);
+        if (issuedAtMs != null) {
+            return issuedAtMs.longValue() <= revokedAtMs;
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null || issuedAt.getTime() / 1000 <= revokedAtMs / 1000;
+    }
+
+    /**
+     * Thu hồi 1 access token (logout)
+     *
+     * @param claims Claims của token
+     */
+    public synchronized void revoke(Claims claims) {
+        String jti = claims.getId();
+        if (jti == null || claims.getExpiration() == null) {
+            return;
+        }
+        revokedTokens.put(jti, claims.getExpiration().getTime());
+        bloomFilter.put(jti);
+        logger.debug("Thu hồi access token jti={} của user {}", jti, claims.getSubject());
+    }
+
+    /**
+     * Thu hồi mọi access token đã cấp cho user tới thời điểm hiện tại (khóa / xóa tài khoản)
+     *
+     * @param username Username
+     */
+    public void revokeAllForUser(String username) {
+        revokedUsers.put(username, System.currentTimeMillis());
+        logger.info("Thu hồi toàn bộ access tokens của user {}", username);
+    }
+
+    /**
+     * Thu hồi mọi access token của nhiều users (thao tác hàng loạt)
+     *
+     * @param usernames Danh sách username
+     */
+    public void revokeAllForUsers(Collection<String> usernames) {
+        long now = System.currentTimeMillis();
+        for (String username : usernames) {
+            revokedUsers.put(username, now);
+        }
+        logger.info("Thu hồi toàn bộ access tokens của {} users", usernames.size());
+    }
+
+    /**
+     * Dọn entry hết hạn và dựng lại Bloom filter (bit của jti đã xóa không gỡ được khỏi filter cũ)
+     */
+    @Scheduled(fixedDelayString = "${security.token-revocation.prune-interval-ms:60000}")
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+
+        // Token cấp trước thời điểm (now - thời hạn token) đều đã hết hạn
+        long staleBefore = now - accessTokenLifetimeMs;
+        revokedUsers.values().removeIf(revokedAt -> revokedAt < staleBefore);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revokedTokens.size() * 2), falsePositiveRate);
+        revokedTokens.keySet().forEach(rebuilt::put);
+        this.bloomFilter = rebuilt;
+    }
+
+    /**
+     * Bloom filter trên AtomicLongArray (đọc không khóa)
+     *
+     * Số bit m = -n·ln(p) / (ln 2)², số hàm hash k = (m/n)·ln 2.
+     * k vị trí được suy ra từ 1 hash 64-bit (double hashing: h1 + i·h2).
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            int n = Math.max(expectedEntries, 1);
+            long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.max(1, (bits + 63) / 64);
+
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = wordCount * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        }
+
+        void put(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                words.getAndUpdate(word, current -> current | mask);
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(int combinedHash) {
+            return (combinedHash & Integer.MAX_VALUE) % bitCount;
+        }
+
+        /**
+         * FNV-1a 64-bit + bước trộn cuối của MurmurHash3
+         */
+        private static long hash64(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93fe53ad4d5L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.DACN.quanlikhoa.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * UserDetails kèm thông tin cơ bản của user
+ *
+ * File: UserPrincipal.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/UserPrincipal.java
+ *
+ * CustomUserDetailsService trả về object này, nên sau khi
+ * AuthenticationManager xác thực xong, AuthService dùng lại luôn
+ * thông tin user (userId, fullName, role, ...) mà không cần query lại database.
+ */
+public class UserPrincipal extends User {
+
+    private final Integer userId;
+    private final String email;
+    private final String fullName;
+    private final Integer roleId;
+    private final String roleName;
+    private final String roleDescription;
+
+    public UserPrincipal(Integer userId,
+                         String username,
+                         String password,
+                         String email,
+                         String fullName,
+                         Integer roleId,
+                         String roleName,
+                         String roleDescription,
+                         boolean active,
+                         Collection<? extends GrantedAuthority> authorities) {
+        // enabled = active, accountNonExpired = true, credentialsNonExpired = true, accountNonLocked = active
+        super(username, password, active, true, true, active, authorities);
+        this.userId = userId;
+        this.email = email;
+        this.fullName = fullName;
+        this.roleId = roleId;
+        this.roleName = roleName;
+        this.roleDescription = roleDescription;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public Integer getRoleId() {
+        return roleId;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public String getRoleDescription() {
+        return roleDescription;
+    }
+}
@@ -0,0 +1,104 @@
+package com.DACN.quanlikhoa.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Cache UserDetails theo username cho JwtAuthenticationFilter
+ *
+ * File: UserPrincipalCache.java
+ * Location: src/main/java/com/DACN/quanlikhoa/security/UserPrincipalCache.java
+ *
+ * Mỗi request có JWT đều cần UserDetails. Không có cache thì mỗi request
+ * tốn 1 query findByUsername (JOIN roles) trước khi vào controller.
+ *
+ * - Giới hạn số entry (security.principal-cache.max-size)
+ * - Hết hạn sau TTL (security.principal-cache.ttl-seconds)
+ * - AdminService evict khi user bị sửa/khóa/khôi phục
+ * - Metrics: cache.gets{cache=principalCache, result=hit|miss}
+ */
+@Component
+public class UserPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    public static final String CACHE_NAME = "principalCache";
+
+    private final boolean enabled;
+
+    private final Cache<String, UserDetails> cache;
+
+    public UserPrincipalCache(
+            @Value("${security.principal-cache.enabled:true}") boolean enabled,
+            @Value("${security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        logger.info("Principal cache: enabled={}, maxSize={}, ttl={}s", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * Lấy UserDetails từ cache, nếu chưa có thì gọi loader (query database)
+     *
+     * Exception từ loader (UsernameNotFoundException, ...) được ném ra nguyên vẹn
+     * và không được cache.
+     *
+     * @param username Username
+     * @param loader Hàm load UserDetails khi cache miss
+     * @return UserDetails
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        if (!enabled) {
+            return loader.apply(username);
+        }
+        return cache.get(username, loader);
+    }
+
+    /**
+     * Xóa 1 user khỏi cache (gọi khi user bị cập nhật / khóa / khôi phục)
+     */
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+            logger.debug("Evict principal cache: {}", username);
+        }
+    }
+
+    /**
+     * Xóa nhiều users khỏi cache
+     */
+    public void evictAll(Collection<String> usernames) {
+        cache.invalidateAll(usernames);
+        logger.debug("Evict principal cache: {} users", usernames.size());
+    }
+
+    /**
+     * Xóa toàn bộ cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
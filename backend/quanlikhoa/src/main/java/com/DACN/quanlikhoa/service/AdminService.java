@@ -1,26 +1,60 @@
 package com.DACN.quanlikhoa.service;
 
 import com.DACN.quanlikhoa.dto.PageResponse;
+import com.DACN.quanlikhoa.dto.UserBulkActionRequest;
+import com.DACN.quanlikhoa.dto.UserBulkActionResult;
 import com.DACN.quanlikhoa.dto.UserCreateRequest;
+import com.DACN.quanlikhoa.dto.UserCursor;
 import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.dto.UserImportResult;
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import com.DACN.quanlikhoa.dto.UserSuggestion;
 import com.DACN.quanlikhoa.dto.UserUpdateRequest;
+import com.DACN.quanlikhoa.dto.UserVersion;
 import com.DACN.quanlikhoa.entity.Role;
 import com.DACN.quanlikhoa.entity.User;
 import com.DACN.quanlikhoa.repository.RoleRepository;
 import com.DACN.quanlikhoa.repository.UserRepository;
+import com.DACN.quanlikhoa.repository.UserSpecifications;
+import com.DACN.quanlikhoa.security.BoundedPasswordEncoder;
+import com.DACN.quanlikhoa.security.TokenRevocationStore;
+import com.DACN.quanlikhoa.security.UserPrincipalCache;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service xử lý các chức năng CRUD User cho Admin
@@ -35,6 +69,36 @@ public class AdminService {
     
     private static final Logger logger = LoggerFactory.getLogger(AdminService.class);
     
+    /**
+     * sortBy đặc biệt: sắp xếp theo độ giống với từ khóa tìm kiếm (chỉ chế độ offset)
+     */
+    private static final String RELEVANCE_SORT = "relevance";
+    
+    /**
+     * INSERT 1 lô users (import): mỗi cột là 1 array cùng độ dài
+     */
+    private static final String IMPORT_INSERT_SQL =
+            "INSERT INTO users (username, password_hash, email, phone, full_name, role_id, avatar_url, "
+            + "is_active, created_at, updated_at) "
+            + "SELECT t.username, t.password_hash, t.email, t.phone, t.full_name, t.role_id, t.avatar_url, TRUE, ?, ? "
+            + "FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::integer[], ?::varchar[]) "
+            + "AS t(username, password_hash, email, phone, full_name, role_id, avatar_url) "
+            + "ON CONFLICT DO NOTHING "
+            + "RETURNING user_id, username";
+    
+    /**
+     * UPDATE hàng loạt (bulk): khóa các dòng cần sửa theo thứ tự user_id (tránh deadlock),
+     * trả về giá trị mới và cũ để cập nhật cache / thống kê.
+     * %1$s: điều kiện "cần sửa", %2$s: SET
+     */
+    private static final String BULK_UPDATE_SQL =
+            "WITH locked AS ("
+            + "SELECT user_id, role_id, COALESCE(is_active, FALSE) AS is_active FROM users "
+            + "WHERE user_id = ANY(?) AND %1$s ORDER BY user_id FOR UPDATE) "
+            + "UPDATE users u SET %2$s, updated_at = ? FROM locked WHERE u.user_id = locked.user_id "
+            + "RETURNING u.user_id, u.username, u.email, u.full_name, u.avatar_url, u.role_id, "
+            + "COALESCE(u.is_active, FALSE) AS is_active, locked.role_id AS old_role_id, locked.is_active AS old_is_active";
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -47,66 +111,294 @@ public class AdminService {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private UserPrincipalCache principalCache;
+    
+    @Autowired
+    private UserProfileCache profileCache;
+    
+    @Autowired
+    private TokenRevocationStore revocationStore;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private UserSuggestIndex suggestIndex;
+    
+    @Autowired
+    private UserCountCache countCache;
+    
+    @Autowired
+    private RoleRegistry roleRegistry;
+    
+    @Autowired
+    private UserStatisticsCounters statisticsCounters;
+    
+    @Autowired
+    private UserExportWriter exportWriter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private Validator validator;
+    
+    /**
+     * Số dòng tối đa của 1 lần import
+     */
+    @Value("${users.import.max-rows:5000}")
+    private int importMaxRows;
+    
+    /**
+     * Số dòng mỗi câu INSERT khi import
+     */
+    @Value("${users.import.batch-size:1000}")
+    private int importBatchSize;
+    
+    /**
+     * Số users tối đa của 1 thao tác hàng loạt
+     */
+    @Value("${users.bulk.max-users:10000}")
+    private int bulkMaxUsers;
+    
+    /**
+     * Số dòng PostgreSQL trả về mỗi lần fetch khi export (bộ nhớ dùng không phụ thuộc tổng số dòng)
+     */
+    @Value("${users.export.fetch-size:1000}")
+    private int exportFetchSize;
+    
     /**
      * Lấy danh sách users có phân trang, tìm kiếm, lọc, sắp xếp
      * 
+     * Mọi tổ hợp filter dùng chung 1 query (UserSpecifications), SELECT thẳng ra UserDTO
+     * (UserProjectionRepository: JOIN roles, không load entity / password hash).
+     * Lấy size + 1 bản ghi để biết hasNext, không COUNT mỗi request:
+     * - countTotal = false (chế độ slice): không có totalElements / totalPages
+     * - countTotal = true: trang cuối tự suy ra tổng, các trang khác lấy từ UserCountCache
+     *   (COUNT được cache theo filter, hoặc ước lượng khi không filter)
+     * 
      * @param page Số trang (bắt đầu từ 0)
      * @param size Số items mỗi trang
-     * @param search Từ khóa tìm kiếm (username, email, fullName)
-     * @param roleId Filter theo role
-     * @param isActive Filter theo trạng thái active
-     * @param sortBy Sắp xếp theo field (createdAt, username, fullName, email)
+     * @param criteria Điều kiện lọc (search, roleId, isActive, khoảng lastLogin / createdAt)
+     * @param sortBy Sắp xếp theo field (createdAt, username, fullName, email),
+     *               hoặc "relevance" (độ giống với từ khóa search, cần có search)
      * @param sortDirection Hướng sắp xếp (asc, desc)
+     * @param countTotal Có trả về tổng số records không
      * @return PageResponse chứa danh sách UserDTO
      */
     @Transactional(readOnly = true)
     public PageResponse<UserDTO> getUsers(
             Integer page,
             Integer size,
-            String search,
-            Integer roleId,
-            Boolean isActive,
+            UserSearchCriteria criteria,
             String sortBy,
-            String sortDirection
+            String sortDirection,
+            boolean countTotal
     ) {
-        logger.info("AdminService.getUsers - page={}, size={}, search={}, roleId={}, isActive={}", 
-                page, size, search, roleId, isActive);
+        logger.info("AdminService.getUsers - page={}, size={}, criteria={}, countTotal={}", page, size, criteria, countTotal);
         
         // Validate và tạo Sort
         Sort.Direction direction = "asc".equalsIgnoreCase(sortDirection) 
                 ? Sort.Direction.ASC 
                 : Sort.Direction.DESC;
         
-        // Validate sortBy field
-        String validSortBy = validateSortField(sortBy);
-        Sort sort = Sort.by(direction, validSortBy);
+        Specification<User> spec = UserSpecifications.matching(criteria);
+        Pageable pageable;
         
-        // Tạo Pageable
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        // Query users dựa trên filters
-        Page<User> userPage = getUserPage(search, roleId, isActive, pageable);
+        if (RELEVANCE_SORT.equals(sortBy) && hasSearch(criteria)) {
+            // Sắp xếp theo độ giống với từ khóa (ORDER BY nằm trong Specification)
+            spec = spec.and(UserSpecifications.orderByRelevance(criteria.getSearch()));
+            pageable = PageRequest.of(page, size);
+        } else {
+            // Validate sortBy field
+            String validSortBy = validateSortField(sortBy);
+            Sort sort = sortWithTieBreaker(validSortBy, direction);
+            
+            // Tạo Pageable
+            pageable = PageRequest.of(page, size, sort);
+        }
         
-        // Convert sang UserDTO
-        List<UserDTO> userDTOs = userPage.getContent().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        // Query users dựa trên filters (size + 1 bản ghi, không COUNT), SELECT thẳng ra UserDTO
+        Slice<UserDTO> userSlice = userRepository.findDtoSlice(spec, pageable);
+        List<UserDTO> userDTOs = userSlice.getContent();
         
         // Build PageResponse
-        PageResponse<UserDTO> response = PageResponse.<UserDTO>builder()
+        PageResponse.PageResponseBuilder<UserDTO> response = PageResponse.<UserDTO>builder()
                 .content(userDTOs)
-                .currentPage(userPage.getNumber())
-                .totalPages(userPage.getTotalPages())
-                .totalElements(userPage.getTotalElements())
-                .pageSize(userPage.getSize())
-                .hasNext(userPage.hasNext())
-                .hasPrevious(userPage.hasPrevious())
+                .currentPage(page)
+                .pageSize(size)
+                .hasNext(userSlice.hasNext())
+                .hasPrevious(userSlice.hasPrevious());
+        
+        if (countTotal) {
+            long seen = (long) page * size + userSlice.getNumberOfElements();
+            long totalElements;
+            boolean approximate = false;
+            
+            if (!userSlice.hasNext() && (userSlice.hasContent() || page == 0)) {
+                // Trang cuối: tổng = số bản ghi đã đi qua
+                totalElements = seen;
+            } else {
+                UserCountCache.Count count = countCache.count(criteria,
+                        () -> userRepository.count(UserSpecifications.matching(criteria)));
+                // Số đã cache / ước lượng có thể cũ: không nhỏ hơn số bản ghi chắc chắn tồn tại
+                totalElements = Math.max(count.total(), userSlice.hasNext() ? seen + 1 : seen);
+                approximate = count.approximate();
+            }
+            
+            response.totalElements(totalElements)
+                    .totalPages((int) ((totalElements + size - 1) / size))
+                    .totalApproximate(approximate);
+        }
+        
+        logger.info("Trả về {} users, hasNext={}", userDTOs.size(), userSlice.hasNext());
+        return response.build();
+    }
+    
+    /**
+     * Lấy danh sách users theo cursor (keyset pagination)
+     * 
+     * Seek theo (sortField, user_id) thay vì OFFSET, nên trang sâu vẫn nhanh như trang đầu
+     * và không chạy count query. Lấy size + 1 bản ghi để biết còn trang tiếp hay không.
+     * 
+     * - cursor null: trang đầu, sắp xếp theo sortBy / sortDirection
+     * - cursor có giá trị: sortBy / sortDirection lấy từ cursor (giữ thứ tự ổn định giữa các trang)
+     * - previousCursor: query theo thứ tự ngược từ bản ghi đầu trang, rồi đảo lại kết quả
+     * 
+     * @param size Số items mỗi trang
+     * @param criteria Điều kiện lọc
+     * @param sortBy Sắp xếp theo field (dùng khi không có cursor)
+     * @param sortDirection Hướng sắp xếp (dùng khi không có cursor)
+     * @param cursor Cursor từ nextCursor / previousCursor của response trước (có thể null)
+     * @return PageResponse với nextCursor / previousCursor, không có tổng số records
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<UserDTO> getUsersByCursor(
+            Integer size,
+            UserSearchCriteria criteria,
+            String sortBy,
+            String sortDirection,
+            String cursor
+    ) {
+        logger.info("AdminService.getUsersByCursor - size={}, criteria={}, cursor={}", size, criteria, cursor);
+        
+        UserCursor position = cursor != null && !cursor.isBlank() ? UserCursor.decode(cursor) : null;
+        
+        String validSortBy = validateSortField(position != null ? position.getSortBy() : sortBy);
+        if (position != null && !validSortBy.equals(position.getSortBy())) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        Sort.Direction direction = "asc".equalsIgnoreCase(position != null ? position.getDirection() : sortDirection)
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+        boolean backward = position != null && position.isBackward();
+        
+        // Trang trước: đi ngược từ bản ghi đầu trang hiện tại
+        Sort.Direction queryDirection = backward
+                ? (direction == Sort.Direction.ASC ? Sort.Direction.DESC : Sort.Direction.ASC)
+                : direction;
+        Sort sort = sortWithTieBreaker(validSortBy, queryDirection);
+        
+        Specification<User> spec = UserSpecifications.matching(criteria);
+        if (position != null) {
+            spec = spec.and(UserSpecifications.after(
+                    validSortBy, queryDirection == Sort.Direction.ASC,
+                    position.typedValue(), position.getUserId()));
+        }
+        
+        List<UserDTO> rows = new ArrayList<>(userRepository.findDtos(spec, sort, size + 1));
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+        
+        boolean hasNext = backward || hasMore;
+        boolean hasPrevious = backward ? hasMore : position != null;
+        String directionName = direction.name();
+        
+        PageResponse<UserDTO> response = PageResponse.<UserDTO>builder()
+                .content(rows)
+                .pageSize(size)
+                .hasNext(hasNext && !rows.isEmpty())
+                .hasPrevious(hasPrevious && !rows.isEmpty())
+                .nextCursor(hasNext && !rows.isEmpty()
+                        ? UserCursor.of(rows.get(rows.size() - 1), validSortBy, directionName, false).encode()
+                        : null)
+                .previousCursor(hasPrevious && !rows.isEmpty()
+                        ? UserCursor.of(rows.get(0), validSortBy, directionName, true).encode()
+                        : null)
                 .build();
         
-        logger.info("Trả về {} users, tổng {} records", userDTOs.size(), userPage.getTotalElements());
+        logger.info("Trả về {} users (cursor mode)", rows.size());
         return response;
     }
     
+    /**
+     * Export users thỏa mãn criteria ra out (CSV / NDJSON)
+     * 
+     * Cùng filter và thứ tự với getUsers, nhưng không phân trang: đọc bằng cursor forward-only
+     * (exportFetchSize dòng / lần fetch) và ghi từng dòng ngay, không gom danh sách trong bộ nhớ.
+     * Transaction giữ suốt quá trình ghi (PostgreSQL chỉ dùng cursor khi autocommit tắt).
+     * 
+     * @param criteria Điều kiện lọc
+     * @param sortBy Sắp xếp theo field, hoặc "relevance" (cần có search)
+     * @param sortDirection Hướng sắp xếp (asc, desc)
+     * @param format Định dạng
+     * @param out Nơi ghi (không bị đóng)
+     * @return Số users đã ghi
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(
+            UserSearchCriteria criteria,
+            String sortBy,
+            String sortDirection,
+            UserExportWriter.Format format,
+            OutputStream out
+    ) throws IOException {
+        logger.info("AdminService.exportUsers - criteria={}, format={}", criteria, format);
+        long start = System.currentTimeMillis();
+        
+        Specification<User> spec = UserSpecifications.matching(criteria);
+        Sort sort;
+        if (RELEVANCE_SORT.equals(sortBy) && hasSearch(criteria)) {
+            spec = spec.and(UserSpecifications.orderByRelevance(criteria.getSearch()));
+            sort = Sort.unsorted();
+        } else {
+            Sort.Direction direction = "asc".equalsIgnoreCase(sortDirection)
+                    ? Sort.Direction.ASC
+                    : Sort.Direction.DESC;
+            sort = sortWithTieBreaker(validateSortField(sortBy), direction);
+        }
+        
+        long count;
+        try (Stream<UserDTO> rows = userRepository.streamDtos(spec, sort, exportFetchSize)) {
+            count = exportWriter.write(rows, format, out);
+        }
+        
+        logger.info("Export {} users ({}) trong {} ms", count, format, System.currentTimeMillis() - start);
+        return count;
+    }
+    
+    /**
+     * Gợi ý users cho ô chọn user (typeahead), không query database
+     * 
+     * @param query Từ khóa (không phân biệt hoa thường, dấu)
+     * @param limit Số kết quả tối đa
+     * @param includeInactive Có trả về user đã khóa / xóa mềm không
+     * @return Danh sách UserSuggestion, khớp nhất trước
+     */
+    public List<UserSuggestion> suggestUsers(String query, int limit, boolean includeInactive) {
+        return suggestIndex.suggest(query, limit, includeInactive);
+    }
+    
     /**
      * Lấy thông tin chi tiết 1 user theo ID
      * 
@@ -117,10 +409,20 @@ public class AdminService {
     public UserDTO getUserById(Integer userId) {
         logger.info("AdminService.getUserById - userId={}", userId);
         
-        User user = userRepository.findById(userId)
+        return userRepository.findDtoById(userId)
                 .orElseThrow(() -> new RuntimeException("User không tồn tại với ID: " + userId));
-        
-        return convertToDTO(user);
+    }
+    
+    /**
+     * ETag của user theo ID (chỉ query cột phiên bản, không dựng UserDTO)
+     * 
+     * @return null nếu user không tồn tại
+     */
+    @Transactional(readOnly = true)
+    public String getUserEtag(Integer userId) {
+        return userRepository.findVersionById(userId)
+                .map(UserVersion::etag)
+                .orElse(null);
     }
     
     /**
@@ -143,9 +445,9 @@ public class AdminService {
             throw new RuntimeException("Email đã tồn tại: " + request.getEmail());
         }
         
-        // Validate role exists
-        Role role = roleRepository.findById(request.getRoleId())
-                .orElseThrow(() -> new RuntimeException("Role không tồn tại với ID: " + request.getRoleId()));
+        // Validate role exists (RoleRegistry, không query database)
+        roleRegistry.get(request.getRoleId());
+        Role role = roleRepository.getReferenceById(request.getRoleId());
         
         // Create User entity
         User user = new User();
@@ -160,6 +462,9 @@ public class AdminService {
         
         // Save to database
         User savedUser = userRepository.save(user);
+        evictUserCachesAfterCommit(savedUser);
+        refreshUserListingsAfterCommit(savedUser);
+        updateStatisticsAfterCommit(null, savedUser);
         
         logger.info("Tạo user thành công - userId={}, username={}", 
                 savedUser.getUserId(), savedUser.getUsername());
@@ -167,6 +472,159 @@ public class AdminService {
         return convertToDTO(savedUser);
     }
     
+    /**
+     * Tạo nhiều users từ file import (CSV / JSON)
+     * 
+     * Thay cho N lần POST /api/admin/users (mỗi lần 2 query kiểm tra trùng + 1 hash + 1 INSERT):
+     * 1. Validate từng dòng (giống UserCreateRequest), role qua RoleRegistry, trùng trong file
+     * 2. Kiểm tra trùng username / email với database bằng 1 query (= ANY(array))
+     * 3. Hash password song song trên pool hash (BoundedPasswordEncoder.encodeAll)
+     * 4. INSERT ... SELECT FROM unnest(arrays) theo lô importBatchSize dòng, trong 1 transaction
+     *    (User.userId là IDENTITY nên Hibernate không batch được INSERT).
+     *    ON CONFLICT DO NOTHING: dòng bị request khác tạo trùng trong lúc import → báo lỗi dòng đó
+     * 
+     * Bước 1-3 chạy ngoài transaction (không giữ connection trong lúc hash).
+     * Dòng lỗi không chặn các dòng khác.
+     * 
+     * @param rows Các dòng đã đọc (UserImportParser)
+     * @return Users đã tạo và lỗi từng dòng
+     * @throws IllegalArgumentException nếu số dòng vượt quá importMaxRows
+     */
+    public UserImportResult importUsers(List<UserImportParser.Row> rows) {
+        logger.info("AdminService.importUsers - {} dòng", rows.size());
+        if (rows.size() > importMaxRows) {
+            throw new IllegalArgumentException("Import tối đa " + importMaxRows + " dòng mỗi lần, file có " + rows.size());
+        }
+        long start = System.currentTimeMillis();
+        
+        List<UserImportResult.RowError> errors = new ArrayList<>();
+        List<UserImportParser.Row> candidates = new ArrayList<>();
+        Map<String, Integer> usernameRows = new HashMap<>();
+        Map<String, Integer> emailRows = new HashMap<>();
+        
+        // 1. Validate từng dòng + trùng trong file (dòng đầu tiên được giữ)
+        for (UserImportParser.Row row : rows) {
+            UserCreateRequest request = row.request();
+            String error = row.error();
+            if (error == null) {
+                Set<ConstraintViolation<UserCreateRequest>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    error = violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .sorted()
+                            .collect(Collectors.joining("; "));
+                } else if (roleRegistry.find(request.getRoleId()) == null) {
+                    error = "Role không tồn tại với ID: " + request.getRoleId();
+                } else if (usernameRows.containsKey(request.getUsername())) {
+                    error = "Username trùng với dòng " + usernameRows.get(request.getUsername());
+                } else if (emailRows.containsKey(request.getEmail())) {
+                    error = "Email trùng với dòng " + emailRows.get(request.getEmail());
+                }
+            }
+            
+            if (error != null) {
+                errors.add(new UserImportResult.RowError(row.rowNumber(), request.getUsername(), error));
+            } else {
+                usernameRows.put(request.getUsername(), row.rowNumber());
+                emailRows.put(request.getEmail(), row.rowNumber());
+                candidates.add(row);
+            }
+        }
+        
+        // 2. Trùng với database: 1 query cho cả file
+        if (!candidates.isEmpty()) {
+            Set<String> existingUsernames = new HashSet<>();
+            Set<String> existingEmails = new HashSet<>();
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT username, email FROM users WHERE username = ANY(?) OR email = ANY(?)");
+                ps.setArray(1, con.createArrayOf("varchar", usernameRows.keySet().toArray()));
+                ps.setArray(2, con.createArrayOf("varchar", emailRows.keySet().toArray()));
+                return ps;
+            }, rs -> {
+                existingUsernames.add(rs.getString("username"));
+                existingEmails.add(rs.getString("email"));
+            });
+            
+            List<UserImportParser.Row> unique = new ArrayList<>(candidates.size());
+            for (UserImportParser.Row row : candidates) {
+                UserCreateRequest request = row.request();
+                if (existingUsernames.contains(request.getUsername())) {
+                    errors.add(new UserImportResult.RowError(row.rowNumber(), request.getUsername(),
+                            "Username đã tồn tại: " + request.getUsername()));
+                } else if (existingEmails.contains(request.getEmail())) {
+                    errors.add(new UserImportResult.RowError(row.rowNumber(), request.getUsername(),
+                            "Email đã tồn tại: " + request.getEmail()));
+                } else {
+                    unique.add(row);
+                }
+            }
+            candidates = unique;
+        }
+        long validated = System.currentTimeMillis();
+        
+        // 3. Hash password song song
+        List<String> passwords = candidates.stream().map(row -> row.request().getPassword()).toList();
+        List<String> hashes = passwordEncoder instanceof BoundedPasswordEncoder bounded
+                ? bounded.encodeAll(passwords)
+                : passwords.stream().map(passwordEncoder::encode).toList();
+        long hashed = System.currentTimeMillis();
+        
+        // 4. INSERT theo lô trong 1 transaction
+        List<UserImportParser.Row> toInsert = candidates;
+        List<UserImportResult.CreatedUser> created = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<UserSuggestion> suggestions = new ArrayList<>();
+            Map<Integer, Long> createdPerRole = new HashMap<>();
+            
+            for (int from = 0; from < toInsert.size(); from += importBatchSize) {
+                List<UserImportParser.Row> batch = toInsert.subList(from, Math.min(from + importBatchSize, toInsert.size()));
+                Map<String, Integer> userIds = insertUsers(batch, hashes.subList(from, from + batch.size()), now);
+                
+                for (UserImportParser.Row row : batch) {
+                    UserCreateRequest request = row.request();
+                    Integer userId = userIds.get(request.getUsername());
+                    if (userId == null) {
+                        errors.add(new UserImportResult.RowError(row.rowNumber(), request.getUsername(),
+                                "Username hoặc email đã tồn tại"));
+                        continue;
+                    }
+                    created.add(new UserImportResult.CreatedUser(row.rowNumber(), userId, request.getUsername()));
+                    suggestions.add(new UserSuggestion(userId, request.getUsername(), request.getEmail(),
+                            request.getFullName(), request.getAvatarUrl(),
+                            roleRegistry.get(request.getRoleId()).getRoleName(), true));
+                    createdPerRole.merge(request.getRoleId(), 1L, Long::sum);
+                }
+            }
+            
+            // Cập nhật index / cache / thống kê 1 lần cho cả file
+            afterCommit(() -> {
+                // User mới: chỉ cần xóa theo username
+                profileCache.evictAll(List.of(),
+                        suggestions.stream().map(UserSuggestion::getUsername).toList());
+                suggestIndex.upsertAll(suggestions);
+                countCache.invalidateAll();
+                createdPerRole.forEach((roleId, count) ->
+                        statisticsCounters.add(new UserStatisticsCounters.Cell(roleId, true), count));
+            });
+        });
+        
+        errors.sort(Comparator.comparing(UserImportResult.RowError::getRow));
+        
+        logger.info("Import users: {} dòng, tạo {}, lỗi {} (validate {} ms, hash {} ms, insert {} ms)",
+                rows.size(), created.size(), errors.size(),
+                validated - start, hashed - validated, System.currentTimeMillis() - hashed);
+        
+        return UserImportResult.builder()
+                .totalRows(rows.size())
+                .createdCount(created.size())
+                .failedCount(errors.size())
+                .created(created)
+                .errors(errors)
+                .build();
+    }
+    
     /**
      * Cập nhật thông tin user
      * 
@@ -181,6 +639,7 @@ public class AdminService {
         // Load user từ database
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User không tồn tại với ID: " + userId));
+        UserStatisticsCounters.Cell statisticsBefore = UserStatisticsCounters.Cell.of(user);
         
         // Update email (nếu có thay đổi)
         if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
@@ -201,11 +660,14 @@ public class AdminService {
             user.setFullName(request.getFullName());
         }
         
+        // Token cũ mang role / trạng thái cũ → thu hồi khi đổi role, khóa hoặc đổi password
+        boolean revokeTokens = false;
+        
         // Update role
         if (request.getRoleId() != null) {
-            Role role = roleRepository.findById(request.getRoleId())
-                    .orElseThrow(() -> new RuntimeException("Role không tồn tại với ID: " + request.getRoleId()));
-            user.setRole(role);
+            revokeTokens = !request.getRoleId().equals(user.getRole().getRoleId());
+            roleRegistry.get(request.getRoleId());
+            user.setRole(roleRepository.getReferenceById(request.getRoleId()));
         }
         
         // Update avatar
@@ -223,16 +685,24 @@ public class AdminService {
         
         // Update isActive
         if (request.getIsActive() != null) {
+            revokeTokens |= !request.getIsActive();
             user.setIsActive(request.getIsActive());
         }
         
         // Update password (nếu có)
         if (request.getNewPassword() != null && !request.getNewPassword().isEmpty()) {
+            revokeTokens = true;
             user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
         }
         
         // Save changes
         User updatedUser = userRepository.save(user);
+        evictUserCachesAfterCommit(updatedUser);
+        refreshUserListingsAfterCommit(updatedUser);
+        updateStatisticsAfterCommit(statisticsBefore, updatedUser);
+        if (revokeTokens) {
+            revokeUserTokens(updatedUser);
+        }
         
         logger.info("Cập nhật user thành công - userId={}", userId);
         return convertToDTO(updatedUser);
@@ -250,9 +720,15 @@ public class AdminService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User không tồn tại với ID: " + userId));
         
+        UserStatisticsCounters.Cell statisticsBefore = UserStatisticsCounters.Cell.of(user);
+        
         // Soft delete - set isActive = false
         user.setIsActive(false);
         userRepository.save(user);
+        evictUserCachesAfterCommit(user);
+        refreshUserListingsAfterCommit(user);
+        updateStatisticsAfterCommit(statisticsBefore, user);
+        revokeUserTokens(user);
         
         logger.info("Xóa user thành công (soft delete) - userId={}, username={}", 
                 userId, user.getUsername());
@@ -271,8 +747,13 @@ public class AdminService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User không tồn tại với ID: " + userId));
         
+        UserStatisticsCounters.Cell statisticsBefore = UserStatisticsCounters.Cell.of(user);
+        
         user.setIsActive(true);
         User restoredUser = userRepository.save(user);
+        evictUserCachesAfterCommit(restoredUser);
+        refreshUserListingsAfterCommit(restoredUser);
+        updateStatisticsAfterCommit(statisticsBefore, restoredUser);
         
         logger.info("Khôi phục user thành công - userId={}, username={}", 
                 userId, user.getUsername());
@@ -293,9 +774,17 @@ public class AdminService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User không tồn tại với ID: " + userId));
         
+        UserStatisticsCounters.Cell statisticsBefore = UserStatisticsCounters.Cell.of(user);
+        
         // Toggle status
         user.setIsActive(!user.getIsActive());
         User updatedUser = userRepository.save(user);
+        evictUserCachesAfterCommit(updatedUser);
+        refreshUserListingsAfterCommit(updatedUser);
+        updateStatisticsAfterCommit(statisticsBefore, updatedUser);
+        if (!updatedUser.getIsActive()) {
+            revokeUserTokens(updatedUser);
+        }
         
         logger.info("Toggle status thành công - userId={}, newStatus={}", 
                 userId, updatedUser.getIsActive());
@@ -303,72 +792,362 @@ public class AdminService {
         return convertToDTO(updatedUser);
     }
     
+    /**
+     * Kích hoạt / khóa / đổi role hàng loạt
+     * 
+     * Chọn users theo danh sách ID hoặc filter (cùng điều kiện với getUsers), sửa bằng 1 câu
+     * UPDATE ... WHERE user_id = ANY(?) RETURNING (chỉ những dòng thực sự thay đổi).
+     * Khóa tài khoản / đổi role: thu hồi refresh tokens bằng 1 câu UPDATE trong cùng transaction.
+     * Sau commit, principal cache, access tokens, suggest index, count cache và thống kê
+     * được cập nhật 1 lần cho cả lô.
+     * 
+     * @param request UserBulkActionRequest
+     * @return Số users đã sửa / không cần sửa
+     * @throws IllegalArgumentException nếu request không hợp lệ hoặc vượt quá users.bulk.max-users
+     */
+    @Transactional
+    public UserBulkActionResult bulkUpdateUsers(UserBulkActionRequest request) {
+        UserBulkActionRequest.Action action = request.getAction();
+        logger.info("AdminService.bulkUpdateUsers - action={}, userIds={}, filter={}",
+                action, request.getUserIds() != null ? request.getUserIds().size() : null, request.getFilter());
+        
+        if (action == null) {
+            throw new IllegalArgumentException("Action không được để trống");
+        }
+        if ((request.getUserIds() == null) == (request.getFilter() == null)) {
+            throw new IllegalArgumentException("Phải chọn users bằng userIds hoặc filter (không dùng cả 2)");
+        }
+        
+        // Tham số của điều kiện rồi tới SET, theo thứ tự trong BULK_UPDATE_SQL
+        String condition;
+        String assignment;
+        List<Object> parameters = new ArrayList<>();
+        switch (action) {
+            case ACTIVATE -> {
+                condition = "is_active IS NOT TRUE";
+                assignment = "is_active = TRUE";
+            }
+            case DEACTIVATE -> {
+                condition = "is_active IS NOT FALSE";
+                assignment = "is_active = FALSE";
+            }
+            case CHANGE_ROLE -> {
+                if (request.getRoleId() == null) {
+                    throw new IllegalArgumentException("roleId không được để trống khi đổi role");
+                }
+                if (roleRegistry.find(request.getRoleId()) == null) {
+                    throw new IllegalArgumentException("Role không tồn tại với ID: " + request.getRoleId());
+                }
+                condition = "role_id IS DISTINCT FROM ?";
+                assignment = "role_id = ?";
+                parameters.add(request.getRoleId());
+                parameters.add(request.getRoleId());
+            }
+            default -> throw new IllegalArgumentException("Action không hỗ trợ: " + action);
+        }
+        
+        List<Integer> userIds = resolveBulkUserIds(request);
+        if (userIds.isEmpty()) {
+            return UserBulkActionResult.builder()
+                    .action(action)
+                    .matchedCount(0)
+                    .updatedCount(0)
+                    .unchangedCount(0)
+                    .updatedUserIds(List.of())
+                    .build();
+        }
+        
+        List<Integer> updatedIds = new ArrayList<>();
+        List<String> updatedUsernames = new ArrayList<>();
+        List<UserSuggestion> suggestions = new ArrayList<>();
+        Map<UserStatisticsCounters.Cell, Long> statisticsDelta = new HashMap<>();
+        
+        String sql = String.format(BULK_UPDATE_SQL, condition, assignment);
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("integer", userIds.toArray()));
+            int index = 2;
+            for (Object parameter : parameters) {
+                ps.setObject(index++, parameter);
+            }
+            ps.setObject(index, now);
+            return ps;
+        }, rs -> {
+            Integer userId = rs.getInt("user_id");
+            String username = rs.getString("username");
+            Integer roleId = rs.getObject("role_id", Integer.class);
+            boolean active = rs.getBoolean("is_active");
+            Role role = roleRegistry.find(roleId);
+            
+            updatedIds.add(userId);
+            updatedUsernames.add(username);
+            suggestions.add(new UserSuggestion(userId, username, rs.getString("email"),
+                    rs.getString("full_name"), rs.getString("avatar_url"),
+                    role != null ? role.getRoleName() : null, active));
+            statisticsDelta.merge(new UserStatisticsCounters.Cell(
+                    rs.getObject("old_role_id", Integer.class), rs.getBoolean("old_is_active")), -1L, Long::sum);
+            statisticsDelta.merge(new UserStatisticsCounters.Cell(roleId, active), 1L, Long::sum);
+        });
+        Collections.sort(updatedIds);
+        
+        boolean revokeTokens = action != UserBulkActionRequest.Action.ACTIVATE;
+        if (revokeTokens) {
+            // Khóa tài khoản / quyền thay đổi: token cũ không còn dùng được
+            refreshTokenService.revokeAllForUsers(updatedIds);
+        }
+        
+        if (!updatedIds.isEmpty()) {
+            afterCommit(() -> {
+                principalCache.evictAll(updatedUsernames);
+                profileCache.evictAll(updatedIds, updatedUsernames);
+                if (revokeTokens) {
+                    revocationStore.revokeAllForUsers(updatedUsernames);
+                }
+                suggestIndex.upsertAll(suggestions);
+                countCache.invalidateAll();
+                statisticsDelta.forEach(statisticsCounters::add);
+            });
+        }
+        
+        logger.info("Bulk {}: chọn {} users, sửa {}", action, userIds.size(), updatedIds.size());
+        
+        return UserBulkActionResult.builder()
+                .action(action)
+                .matchedCount(userIds.size())
+                .updatedCount(updatedIds.size())
+                .unchangedCount(userIds.size() - updatedIds.size())
+                .updatedUserIds(updatedIds)
+                .build();
+    }
+    
     /**
      * Lấy danh sách tất cả roles
      * 
+     * Đọc từ RoleRegistry (bộ nhớ), không query database
+     * 
      * @return List<Role> sắp xếp theo priorityLevel
      */
-    @Transactional(readOnly = true)
     public List<Role> getAllRoles() {
         logger.info("AdminService.getAllRoles");
-        return roleRepository.findAll(Sort.by(Sort.Direction.ASC, "priorityLevel"));
+        return roleRegistry.getAll();
+    }
+    
+    /**
+     * ETag của danh sách roles (GET /api/admin/roles)
+     */
+    public String getRolesEtag() {
+        return roleRegistry.getEtag();
     }
     
     /**
      * Lấy thống kê users
      * 
-     * @return Map chứa thống kê
+     * Đọc từ UserStatisticsCounters (bộ nhớ), không query database.
+     * byRole theo thứ tự priorityLevel, gồm cả role chưa có user.
+     * 
+     * @return Tổng số, theo trạng thái và theo role
      */
-    @Transactional(readOnly = true)
     public UserStatistics getUserStatistics() {
         logger.info("AdminService.getUserStatistics");
         
-        Long totalUsers = userRepository.count();
-        Long activeUsers = userRepository.countActiveUsers();
-        Long inactiveUsers = userRepository.countInactiveUsers();
+        Map<UserStatisticsCounters.Cell, Long> counts = statisticsCounters.snapshot();
+        
+        Map<Integer, RoleStatistics> byRole = new LinkedHashMap<>();
+        for (Role role : roleRegistry.getAll()) {
+            byRole.put(role.getRoleId(), new RoleStatistics(role.getRoleId(), role.getRoleName(), 0L, 0L, 0L));
+        }
+        
+        long activeUsers = 0;
+        long inactiveUsers = 0;
+        for (Map.Entry<UserStatisticsCounters.Cell, Long> entry : counts.entrySet()) {
+            UserStatisticsCounters.Cell cell = entry.getKey();
+            long count = entry.getValue();
+            
+            // role_id không có trong registry (role vừa thêm / dữ liệu lỗi): vẫn hiển thị theo ID
+            RoleStatistics roleStatistics = byRole.computeIfAbsent(cell.roleId(),
+                    roleId -> new RoleStatistics(roleId, null, 0L, 0L, 0L));
+            roleStatistics.setTotalUsers(roleStatistics.getTotalUsers() + count);
+            if (cell.active()) {
+                activeUsers += count;
+                roleStatistics.setActiveUsers(roleStatistics.getActiveUsers() + count);
+            } else {
+                inactiveUsers += count;
+                roleStatistics.setInactiveUsers(roleStatistics.getInactiveUsers() + count);
+            }
+        }
+        
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        byStatus.put("active", activeUsers);
+        byStatus.put("inactive", inactiveUsers);
         
         return UserStatistics.builder()
-                .totalUsers(totalUsers)
+                .totalUsers(activeUsers + inactiveUsers)
                 .activeUsers(activeUsers)
                 .inactiveUsers(inactiveUsers)
+                .byStatus(byStatus)
+                .byRole(new ArrayList<>(byRole.values()))
+                .reconciledAt(statisticsCounters.getReconciledAt())
                 .build();
     }
     
     // ===== PRIVATE HELPER METHODS =====
     
     /**
-     * Lấy Page<User> dựa trên filters
+     * Danh sách user ID của thao tác hàng loạt (không trùng, tối đa bulkMaxUsers)
+     * 
+     * @throws IllegalArgumentException nếu filter rỗng hoặc chọn quá nhiều users
      */
-    private Page<User> getUserPage(String search, Integer roleId, Boolean isActive, Pageable pageable) {
-        // Chuẩn hóa search keyword
-        String searchKeyword = (search != null && !search.trim().isEmpty()) 
-                ? search.trim() 
-                : null;
-        
-        // Query dựa trên combination của filters
-        if (searchKeyword != null) {
-            // Có search keyword
-            if (roleId != null && isActive != null) {
-                return userRepository.findBySearchAndRoleAndStatus(searchKeyword, roleId, isActive, pageable);
-            } else if (roleId != null) {
-                return userRepository.findBySearchAndRole(searchKeyword, roleId, pageable);
-            } else if (isActive != null) {
-                return userRepository.findBySearchAndStatus(searchKeyword, isActive, pageable);
-            } else {
-                return userRepository.findBySearch(searchKeyword, pageable);
-            }
+    private List<Integer> resolveBulkUserIds(UserBulkActionRequest request) {
+        List<Integer> userIds;
+        if (request.getUserIds() != null) {
+            userIds = request.getUserIds().stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .collect(Collectors.toList());
         } else {
-            // Không có search keyword
-            if (roleId != null && isActive != null) {
-                return userRepository.findByRoleIdAndIsActive(roleId, isActive, pageable);
-            } else if (roleId != null) {
-                return userRepository.findByRoleId(roleId, pageable);
-            } else if (isActive != null) {
-                return userRepository.findByIsActive(isActive, pageable);
-            } else {
-                return userRepository.findAll(pageable);
+            UserSearchCriteria filter = request.getFilter();
+            boolean hasCondition = hasSearch(filter) || filter.getRoleId() != null || filter.getIsActive() != null
+                    || filter.getLastLoginFrom() != null || filter.getLastLoginTo() != null
+                    || filter.getCreatedFrom() != null || filter.getCreatedTo() != null;
+            if (!hasCondition) {
+                // Tránh vô tình sửa toàn bộ users
+                throw new IllegalArgumentException("Filter phải có ít nhất 1 điều kiện");
             }
+            userIds = userRepository.findIds(UserSpecifications.matching(filter), bulkMaxUsers + 1);
         }
+        
+        if (userIds.size() > bulkMaxUsers) {
+            throw new IllegalArgumentException("Chỉ được thao tác tối đa " + bulkMaxUsers + " users mỗi lần");
+        }
+        return userIds;
+    }
+    
+    /**
+     * INSERT 1 lô users bằng 1 câu lệnh (mỗi cột là 1 array, unnest thành các dòng)
+     * 
+     * @return username → userId của các dòng đã được tạo (dòng trùng bị ON CONFLICT bỏ qua)
+     */
+    private Map<String, Integer> insertUsers(List<UserImportParser.Row> batch, List<String> hashes, LocalDateTime now) {
+        int size = batch.size();
+        String[] usernames = new String[size];
+        String[] emails = new String[size];
+        String[] phones = new String[size];
+        String[] fullNames = new String[size];
+        Integer[] roleIds = new Integer[size];
+        String[] avatarUrls = new String[size];
+        for (int i = 0; i < size; i++) {
+            UserCreateRequest request = batch.get(i).request();
+            usernames[i] = request.getUsername();
+            emails[i] = request.getEmail();
+            phones[i] = request.getPhone();
+            fullNames[i] = request.getFullName();
+            roleIds[i] = request.getRoleId();
+            avatarUrls[i] = request.getAvatarUrl();
+        }
+        
+        Map<String, Integer> userIds = new HashMap<>(size * 2);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(IMPORT_INSERT_SQL);
+            ps.setObject(1, now);
+            ps.setObject(2, now);
+            ps.setArray(3, con.createArrayOf("varchar", usernames));
+            ps.setArray(4, con.createArrayOf("varchar", hashes.toArray()));
+            ps.setArray(5, con.createArrayOf("varchar", emails));
+            ps.setArray(6, con.createArrayOf("varchar", phones));
+            ps.setArray(7, con.createArrayOf("varchar", fullNames));
+            ps.setArray(8, con.createArrayOf("integer", roleIds));
+            ps.setArray(9, con.createArrayOf("varchar", avatarUrls));
+            return ps;
+        }, rs -> {
+            userIds.put(rs.getString("username"), rs.getInt("user_id"));
+        });
+        return userIds;
+    }
+    
+    /**
+     * Evict principal cache và profile cache sau khi transaction commit
+     * 
+     * Evict sau commit để request song song không load lại dữ liệu cũ
+     * vào cache trước khi thay đổi được ghi xuống database.
+     */
+    private void evictUserCachesAfterCommit(User user) {
+        Integer userId = user.getUserId();
+        String username = user.getUsername();
+        afterCommit(() -> {
+            principalCache.evict(username);
+            profileCache.evict(userId, username);
+        });
+    }
+    
+    /**
+     * Cập nhật user trong UserSuggestIndex và xóa UserCountCache sau khi transaction commit
+     * 
+     * Snapshot được lấy ngay (trong transaction), index chỉ thấy dữ liệu đã commit.
+     */
+    private void refreshUserListingsAfterCommit(User user) {
+        UserSuggestion suggestion = UserSuggestion.from(user,
+                user.getRole() != null ? roleRegistry.find(user.getRole().getRoleId()) : null);
+        afterCommit(() -> {
+            suggestIndex.upsert(suggestion);
+            // Số lượng theo filter (role, trạng thái, từ khóa) có thể đã đổi
+            countCache.invalidateAll();
+        });
+    }
+    
+    /**
+     * Chuyển user sang ô (role, trạng thái) mới trong UserStatisticsCounters sau khi transaction commit
+     * 
+     * @param before Ô của user trước khi sửa (null = user mới tạo)
+     * @param user User sau khi lưu
+     */
+    private void updateStatisticsAfterCommit(UserStatisticsCounters.Cell before, User user) {
+        UserStatisticsCounters.Cell after = UserStatisticsCounters.Cell.of(user);
+        if (!after.equals(before)) {
+            afterCommit(() -> statisticsCounters.move(before, after));
+        }
+    }
+    
+    /**
+     * Thu hồi mọi token đang lưu hành của user
+     * 
+     * Refresh tokens bị thu hồi trong cùng transaction, access tokens bị thu hồi
+     * trong TokenRevocationStore sau khi commit.
+     */
+    private void revokeUserTokens(User user) {
+        refreshTokenService.revokeAllForUser(user.getUserId());
+        String username = user.getUsername();
+        afterCommit(() -> revocationStore.revokeAllForUser(username));
+    }
+    
+    /**
+     * Chạy action sau khi transaction hiện tại commit
+     * (chạy ngay nếu không có transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private boolean hasSearch(UserSearchCriteria criteria) {
+        return criteria.getSearch() != null && !criteria.getSearch().trim().isEmpty();
+    }
+    
+    /**
+     * Sort theo field, thêm user_id làm tie-breaker để thứ tự luôn xác định
+     * (nhiều user trùng createdAt / lastLogin sẽ không bị lặp hoặc mất giữa các trang)
+     */
+    private Sort sortWithTieBreaker(String sortBy, Sort.Direction direction) {
+        Sort sort = Sort.by(direction, sortBy);
+        return "userId".equals(sortBy) ? sort : sort.and(Sort.by(direction, "userId"));
     }
     
     /**
@@ -404,9 +1183,11 @@ public class AdminService {
         dto.setPhone(user.getPhone());
         dto.setFullName(user.getFullName());
         dto.setAvatarUrl(user.getAvatarUrl());
-        dto.setRoleId(user.getRole().getRoleId());
-        dto.setRoleName(user.getRole().getRoleName());
-        dto.setRoleDescription(user.getRole().getRoleDescription());
+        // User.role là LAZY: getRoleId() của proxy không chạm database
+        Role role = roleRegistry.get(user.getRole().getRoleId());
+        dto.setRoleId(role.getRoleId());
+        dto.setRoleName(role.getRoleName());
+        dto.setRoleDescription(role.getRoleDescription());
         dto.setIsActive(user.getIsActive());
         dto.setLastLogin(user.getLastLogin());
         dto.setCreatedAt(user.getCreatedAt());
@@ -426,5 +1207,22 @@ public class AdminService {
         private Long totalUsers;
         private Long activeUsers;
         private Long inactiveUsers;
+        private Map<String, Long> byStatus;
+        private List<RoleStatistics> byRole;
+        private LocalDateTime reconciledAt;
+    }
+    
+    /**
+     * Inner class cho thống kê users của 1 role
+     */
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class RoleStatistics {
+        private Integer roleId;
+        private String roleName;
+        private Long totalUsers;
+        private Long activeUsers;
+        private Long inactiveUsers;
     }
 }
\ No newline at end of file
@@ -4,7 +4,12 @@ import com.DACN.quanlikhoa.dto.LoginRequest;
 import com.DACN.quanlikhoa.dto.LoginResponse;
 import com.DACN.quanlikhoa.entity.User;
 import com.DACN.quanlikhoa.repository.UserRepository;
+import com.DACN.quanlikhoa.security.CustomUserDetailsService;
 import com.DACN.quanlikhoa.security.JwtTokenProvider;
+import com.DACN.quanlikhoa.security.PasswordHashingRejectedException;
+import com.DACN.quanlikhoa.security.TokenRevocationStore;
+import com.DACN.quanlikhoa.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +18,8 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Authentication Service
@@ -33,7 +38,27 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
     
-    @Transactional
+    @Autowired
+    private LastLoginService lastLoginService;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    
+    @Autowired
+    private TokenRevocationStore revocationStore;
+    
+    /**
+     * Login
+     * 
+     * Dùng lại UserPrincipal mà AuthenticationManager đã load (không query lại user),
+     * last_login được ghi write-behind qua LastLoginService.
+     * 
+     * Nếu password hash cũ có strength thấp hơn hiện tại, authenticate() sẽ tự hash lại
+     * và lưu qua CustomUserDetailsService.updatePassword.
+     */
     public LoginResponse login(LoginRequest loginRequest) {
         try {
             logger.info("Đang xử lý login cho user: {}", loginRequest.getUsername());
@@ -49,22 +74,13 @@ public class AuthService {
             
             String jwt = tokenProvider.generateToken(authentication);
             
-            User user = userRepository.findByUsername(loginRequest.getUsername())
-                    .orElseThrow(() -> new BadCredentialsException("User không tồn tại"));
+            UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
             
-            user.updateLastLogin();
-            userRepository.save(user);
+            lastLoginService.recordLogin(user.getUserId());
             
-            LoginResponse response = LoginResponse.builder()
-                    .accessToken(jwt)
-                    .tokenType("Bearer")
-                    .userId(user.getUserId())
-                    .username(user.getUsername())
-                    .fullName(user.getFullName())
-                    .email(user.getEmail())
-                    .roleName(user.getRole().getRoleName())
-                    .roleDescription(user.getRole().getRoleDescription())
-                    .build();
+            String refreshToken = refreshTokenService.issue(user.getUserId());
+            
+            LoginResponse response = buildLoginResponse(jwt, refreshToken, user);
             
             logger.info("Login thành công cho user: {}", loginRequest.getUsername());
             return response;
@@ -72,17 +88,74 @@ public class AuthService {
         } catch (BadCredentialsException e) {
             logger.error("Login thất bại: Username hoặc password không đúng");
             throw new BadCredentialsException("Username hoặc password không đúng");
+        } catch (PasswordHashingRejectedException e) {
+            // Hàng đợi hash password đầy - để controller trả về 503
+            throw e;
         } catch (Exception e) {
             logger.error("Lỗi khi xử lý login: {}", e.getMessage());
             throw new RuntimeException("Có lỗi xảy ra khi đăng nhập: " + e.getMessage());
         }
     }
     
-    public void logout() {
+    /**
+     * Đổi refresh token lấy access token mới (refresh token cũ hết hiệu lực)
+     * 
+     * User được load lại từ database ở bước này, nên tài khoản bị khóa
+     * sẽ không lấy được access token mới.
+     * 
+     * @param refreshToken Refresh token client gửi lên
+     * @return LoginResponse với access token và refresh token mới
+     * @throws BadCredentialsException nếu refresh token không hợp lệ hoặc tài khoản bị khóa
+     */
+    public LoginResponse refresh(String refreshToken) {
+        RefreshTokenService.RotationResult rotation = refreshTokenService.rotate(refreshToken);
+        
+        UserPrincipal user;
+        try {
+            user = (UserPrincipal) userDetailsService.loadUserById(rotation.getUserId());
+        } catch (UsernameNotFoundException e) {
+            refreshTokenService.revokeAllForUser(rotation.getUserId());
+            throw new BadCredentialsException("Tài khoản không tồn tại hoặc đã bị khóa");
+        }
+        
+        String jwt = tokenProvider.generateToken(user);
+        
+        logger.info("Refresh token thành công cho user: {}", user.getUsername());
+        return buildLoginResponse(jwt, rotation.getRefreshToken(), user);
+    }
+    
+    /**
+     * Logout: thu hồi access token hiện tại và family của refresh token (nếu client gửi lên)
+     * 
+     * @param claims Claims của access token hiện tại (null nếu không có)
+     * @param refreshToken Refresh token (có thể null)
+     */
+    public void logout(Claims claims, String refreshToken) {
+        if (claims != null) {
+            revocationStore.revoke(claims);
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
         SecurityContextHolder.clearContext();
         logger.info("User đã logout");
     }
     
+    private LoginResponse buildLoginResponse(String accessToken, String refreshToken, UserPrincipal user) {
+        return LoginResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresIn(tokenProvider.getExpirationSeconds())
+                .userId(user.getUserId())
+                .username(user.getUsername())
+                .fullName(user.getFullName())
+                .email(user.getEmail())
+                .roleName(user.getRoleName())
+                .roleDescription(user.getRoleDescription())
+                .build();
+    }
+    
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
@@ -0,0 +1,138 @@
+package com.DACN.quanlikhoa.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ghi last_login theo kiểu write-behind
+ *
+ * File: LastLoginService.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/LastLoginService.java
+ *
+ * Login không UPDATE bảng users ngay. Thời điểm login được gom trong bộ nhớ
+ * (mỗi user chỉ giữ lần login mới nhất) và flush định kỳ bằng 1 câu
+ * UPDATE ... FROM (VALUES ...) cho cả batch. Khi tắt ứng dụng sẽ flush lần cuối.
+ *
+ * Cấu hình:
+ * - auth.last-login.flush-interval-ms: chu kỳ flush (default 5000)
+ * - auth.last-login.batch-size: số rows tối đa mỗi câu UPDATE (default 1000)
+ */
+@Service
+public class LastLoginService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserProfileCache profileCache;
+
+    @Value("${auth.last-login.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * userId → thời điểm login mới nhất chưa ghi xuống database
+     */
+    private final ConcurrentHashMap<Integer, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Ghi nhận 1 lần login (chỉ lưu trong bộ nhớ)
+     *
+     * @param userId User ID
+     */
+    public void recordLogin(Integer userId) {
+        recordLogin(userId, LocalDateTime.now());
+    }
+
+    private void recordLogin(Integer userId, LocalDateTime loginAt) {
+        pending.merge(userId, loginAt, (oldValue, newValue) -> newValue.isAfter(oldValue) ? newValue : oldValue);
+    }
+
+    /**
+     * Flush các lần login đang chờ xuống database
+     */
+    @Scheduled(fixedDelayString = "${auth.last-login.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Lấy ra từng entry (remove atomically), login mới đến sau sẽ nằm lại cho lần flush sau
+        List<Map.Entry<Integer, LocalDateTime>> batch = new ArrayList<>(pending.size());
+        for (Integer userId : pending.keySet()) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt != null) {
+                batch.add(Map.entry(userId, loginAt));
+            }
+        }
+
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<Map.Entry<Integer, LocalDateTime>> chunk =
+                    batch.subList(from, Math.min(from + batchSize, batch.size()));
+            try {
+                int updated = updateChunk(chunk);
+                // last_login nằm trong UserDTO của /api/auth/me
+                profileCache.evictByIds(chunk.stream().map(Map.Entry::getKey).toList());
+                logger.debug("Flush last_login: {} users, {} rows updated", chunk.size(), updated);
+            } catch (Exception e) {
+                // Đưa lại vào hàng chờ để lần flush sau thử lại
+                logger.error("Không thể flush last_login ({} users): {}", chunk.size(), e.getMessage());
+                chunk.forEach(entry -> recordLogin(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Flush lần cuối khi tắt ứng dụng
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flush last_login trước khi tắt ứng dụng: {} users", pending.size());
+        flush();
+    }
+
+    /**
+     * UPDATE users SET last_login = v.last_login
+     * FROM (VALUES (?, ?), (?, ?), ...) AS v(user_id, last_login)
+     * WHERE users.user_id = v.user_id
+     */
+    private int updateChunk(List<Map.Entry<Integer, LocalDateTime>> chunk) {
+        StringBuilder sql = new StringBuilder(
+                "UPDATE users AS u SET last_login = v.last_login FROM (VALUES ");
+        Object[] params = new Object[chunk.size() * 2];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS INTEGER), CAST(? AS TIMESTAMP))");
+            params[i * 2] = chunk.get(i).getKey();
+            params[i * 2 + 1] = Timestamp.valueOf(chunk.get(i).getValue());
+        }
+        sql.append(") AS v(user_id, last_login) ")
+                .append("WHERE u.user_id = v.user_id ")
+                .append("AND (u.last_login IS NULL OR u.last_login < v.last_login)");
+
+        return jdbcTemplate.update(sql.toString(), params);
+    }
+
+    /**
+     * Số lần login đang chờ flush
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
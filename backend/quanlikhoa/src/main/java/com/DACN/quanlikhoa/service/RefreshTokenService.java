@@ -0,0 +1,186 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.entity.RefreshToken;
+import com.DACN.quanlikhoa.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Service quản lý refresh token (rotate 1 lần dùng + phát hiện reuse)
+ *
+ * File: RefreshTokenService.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/RefreshTokenService.java
+ *
+ * - Token gốc: 32 bytes ngẫu nhiên (Base64 URL), chỉ trả cho client
+ * - Database chỉ lưu SHA-256 của token
+ * - Mỗi token chỉ dùng được 1 lần: refresh → token cũ bị đánh dấu used, cấp token mới cùng family
+ * - Token đã dùng / đã thu hồi bị gửi lại → coi như bị đánh cắp, thu hồi cả family
+ *
+ * Thời hạn: jwt.refresh-expiration (ms)
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpirationMs;
+
+    /**
+     * Cấp refresh token mới (family mới) khi login
+     *
+     * @param userId User ID
+     * @return Refresh token gốc (trả cho client)
+     */
+    @Transactional
+    public String issue(Integer userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rotate refresh token: đánh dấu token cũ đã dùng, cấp token mới cùng family
+     *
+     * @param rawToken Refresh token client gửi lên
+     * @return userId + refresh token mới
+     * @throws BadCredentialsException nếu token không hợp lệ, hết hạn, hoặc bị dùng lại
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public RotationResult rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Refresh token không hợp lệ"));
+
+        if (token.isUsedOrRevoked()) {
+            // Reuse: token đã dùng bị gửi lại → thu hồi toàn bộ family
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now());
+            logger.warn("Phát hiện refresh token bị dùng lại - userId={}, family={}, thu hồi {} tokens",
+                    token.getUserId(), token.getFamilyId(), revoked);
+            throw new BadCredentialsException("Refresh token đã được sử dụng");
+        }
+
+        if (token.isExpired()) {
+            throw new BadCredentialsException("Refresh token đã hết hạn");
+        }
+
+        token.setUsedAt(LocalDateTime.now());
+        refreshTokenRepository.save(token);
+
+        String newToken = issue(token.getUserId(), token.getFamilyId());
+        return new RotationResult(token.getUserId(), newToken);
+    }
+
+    /**
+     * Thu hồi family chứa token (logout)
+     *
+     * @param rawToken Refresh token gốc
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    /**
+     * Thu hồi toàn bộ refresh tokens của 1 user (khóa / xóa tài khoản)
+     *
+     * @param userId User ID
+     */
+    @Transactional
+    public void revokeAllForUser(Integer userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+        logger.info("Thu hồi {} refresh tokens của userId={}", revoked, userId);
+    }
+
+    /**
+     * Thu hồi toàn bộ refresh tokens của nhiều users bằng 1 câu UPDATE
+     *
+     * @param userIds Danh sách user ID
+     */
+    @Transactional
+    public void revokeAllForUsers(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        int revoked = refreshTokenRepository.revokeAllByUserIds(userIds, LocalDateTime.now());
+        logger.info("Thu hồi {} refresh tokens của {} users", revoked, userIds.size());
+    }
+
+    /**
+     * Dọn refresh tokens đã hết hạn (mỗi giờ)
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpiredTokens() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Đã xóa {} refresh tokens hết hạn", deleted);
+        }
+    }
+
+    /**
+     * Thời hạn refresh token (giây)
+     */
+    public long getRefreshExpirationSeconds() {
+        return refreshExpirationMs / 1000;
+    }
+
+    private String issue(Integer userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setUserId(userId);
+        token.setTokenHash(hash(rawToken));
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMs)));
+        refreshTokenRepository.save(token);
+
+        return rawToken;
+    }
+
+    /**
+     * SHA-256 (hex) của token
+     */
+    private String hash(String rawToken) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không được hỗ trợ", e);
+        }
+    }
+
+    /**
+     * Kết quả rotate: userId + refresh token mới
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class RotationResult {
+        private Integer userId;
+        private String refreshToken;
+    }
+}
@@ -0,0 +1,198 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.entity.Role;
+import com.DACN.quanlikhoa.repository.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Danh sách roles trong bộ nhớ (bảng roles - vài dòng, gần như không đổi)
+ *
+ * File: RoleRegistry.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/RoleRegistry.java
+ *
+ * - Tra role theo role_id / role_name không query database
+ *   (User.role là LAZY, chỉ đọc role_id của proxy rồi tra ở đây)
+ * - Snapshot bất biến, đổi bằng AtomicReference (đọc không khóa)
+ * - ETag (weak) tính từ nội dung roles, dùng cho GET /api/admin/roles
+ * - Định kỳ so fingerprint của bảng roles, khác thì load lại
+ *   (roles.reload-interval-ms), hoặc gọi reload() thủ công; roles đổi thì xóa UserProfileCache
+ *
+ * Role trả về là bản sao tách khỏi persistence context, dùng chung giữa các thread: không được sửa.
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private static final String FINGERPRINT_SQL =
+            "SELECT COUNT(*) || ':' "
+            + "|| COALESCE(SUM(hashtext(role_id || ':' || role_name || ':' || COALESCE(role_description, '') "
+            + "|| ':' || priority_level || ':' || COALESCE(updated_at::TEXT, ''))::BIGINT), 0) "
+            + "FROM roles";
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserProfileCache profileCache;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Role theo ID
+     *
+     * @param roleId ID role
+     * @throws RuntimeException nếu role không tồn tại
+     */
+    public Role get(Integer roleId) {
+        Role role = roleId != null ? snapshot.get().byId.get(roleId) : null;
+        if (role == null) {
+            throw new RuntimeException("Role không tồn tại với ID: " + roleId);
+        }
+        return role;
+    }
+
+    /**
+     * Role theo ID, null nếu không có
+     */
+    public Role find(Integer roleId) {
+        return roleId != null ? snapshot.get().byId.get(roleId) : null;
+    }
+
+    /**
+     * Role theo tên (VD: ADMIN), null nếu không có
+     */
+    public Role findByName(String roleName) {
+        return roleName != null ? snapshot.get().byName.get(roleName) : null;
+    }
+
+    /**
+     * Tất cả roles, sắp xếp theo priorityLevel tăng dần
+     */
+    public List<Role> getAll() {
+        return snapshot.get().roles;
+    }
+
+    /**
+     * ETag (weak, W/"...") của danh sách roles hiện tại
+     * (cùng nội dung, khác định dạng JSON / CBOR / Smile vẫn cùng ETag)
+     */
+    public String getEtag() {
+        return snapshot.get().etag;
+    }
+
+    /**
+     * Load lại nếu bảng roles đã thay đổi (so fingerprint)
+     */
+    @Scheduled(initialDelayString = "${roles.reload-interval-ms:60000}",
+               fixedDelayString = "${roles.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        try {
+            String fingerprint = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+            if (!fingerprint.equals(snapshot.get().fingerprint)) {
+                reload();
+            }
+        } catch (Exception e) {
+            logger.error("Không thể kiểm tra thay đổi roles: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Load toàn bộ bảng roles từ database và đổi snapshot
+     */
+    public synchronized void reload() {
+        String fingerprint = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+        String previousEtag = snapshot.get().etag;
+        load(roleRepository.findAll(Sort.by(Sort.Direction.ASC, "priorityLevel", "roleId")), fingerprint);
+        if (!previousEtag.equals(snapshot.get().etag)) {
+            // UserDTO trong profile cache chứa roleName / roleDescription
+            profileCache.clear();
+        }
+        logger.info("Đã load role registry: {} roles, ETag {}", snapshot.get().roles.size(), snapshot.get().etag);
+    }
+
+    /**
+     * Thay snapshot bằng danh sách roles cho trước (đã sắp xếp)
+     *
+     * @param roles Danh sách roles (được sao chép)
+     * @param fingerprint Fingerprint của bảng roles tương ứng
+     */
+    public void load(Collection<Role> roles, String fingerprint) {
+        List<Role> copies = new ArrayList<>(roles.size());
+        Map<Integer, Role> byId = new HashMap<>();
+        Map<String, Role> byName = new HashMap<>();
+        for (Role role : roles) {
+            Role copy = new Role(role.getRoleId(), role.getRoleName(), role.getRoleDescription(),
+                    role.getPriorityLevel(), role.getCreatedAt(), role.getUpdatedAt());
+            copies.add(copy);
+            byId.put(copy.getRoleId(), copy);
+            byName.put(copy.getRoleName(), copy);
+        }
+
+        snapshot.set(new Snapshot(fingerprint,
+                Collections.unmodifiableList(copies),
+                Collections.unmodifiableMap(byId),
+                Collections.unmodifiableMap(byName),
+                etag(copies)));
+    }
+
+    /**
+     * SHA-256 của các field được trả về qua API, lấy 128 bit đầu
+     */
+    private static String etag(List<Role> roles) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Role role : roles) {
+                String line = role.getRoleId() + "\u0000" + role.getRoleName()
+                        + "\u0000" + Objects.toString(role.getRoleDescription(), "")
+                        + "\u0000" + role.getPriorityLevel()
+                        + "\u0000" + role.getCreatedAt()
+                        + "\u0000" + role.getUpdatedAt() + "\n";
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Snapshot bất biến của bảng roles
+     */
+    private record Snapshot(String fingerprint,
+                            List<Role> roles,
+                            Map<Integer, Role> byId,
+                            Map<String, Role> byName,
+                            String etag) {
+
+        static final Snapshot EMPTY = new Snapshot("", List.of(), Map.of(), Map.of(), "\"\"");
+    }
+}
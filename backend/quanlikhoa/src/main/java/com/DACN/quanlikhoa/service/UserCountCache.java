@@ -0,0 +1,126 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Tổng số users cho PageResponse (totalElements / totalPages) mà không COUNT mỗi request
+ *
+ * File: UserCountCache.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserCountCache.java
+ *
+ * - Có filter: kết quả COUNT được cache theo tổ hợp filter, TTL ngắn
+ *   (users.count-cache.ttl-seconds), AdminService xóa cache sau khi thêm / sửa / xóa user
+ * - Không filter: dùng ước lượng pg_class.reltuples (cập nhật bởi ANALYZE / autovacuum)
+ *   khi bảng đủ lớn (users.count-cache.estimate-threshold), bảng nhỏ thì COUNT chính xác
+ * - Metrics: cache.gets{cache=userCountCache, result=hit|miss}
+ */
+@Component
+public class UserCountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCountCache.class);
+
+    public static final String CACHE_NAME = "userCountCache";
+
+    private static final String ESTIMATE_SQL =
+            "SELECT reltuples::BIGINT FROM pg_class WHERE oid = 'users'::regclass";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final long estimateThreshold;
+
+    private final Cache<UserSearchCriteria, Count> cache;
+
+    public UserCountCache(
+            @Value("${users.count-cache.max-size:1000}") long maxSize,
+            @Value("${users.count-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${users.count-cache.estimate-threshold:100000}") long estimateThreshold,
+            MeterRegistry meterRegistry) {
+        this.estimateThreshold = estimateThreshold;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        logger.info("User count cache: maxSize={}, ttl={}s, estimateThreshold={}",
+                maxSize, ttlSeconds, estimateThreshold);
+    }
+
+    /**
+     * Tổng số users thỏa mãn criteria
+     *
+     * @param criteria Điều kiện lọc
+     * @param exactCount COUNT chính xác (chỉ gọi khi cache miss và không dùng được ước lượng)
+     * @return Tổng số users, approximate = true nếu là ước lượng
+     */
+    public Count count(UserSearchCriteria criteria, LongSupplier exactCount) {
+        UserSearchCriteria key = normalize(criteria);
+        return cache.get(key, k -> load(k, exactCount));
+    }
+
+    /**
+     * Xóa toàn bộ cache (gọi sau khi users thay đổi)
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Count load(UserSearchCriteria criteria, LongSupplier exactCount) {
+        if (isUnfiltered(criteria)) {
+            Long estimate = jdbcTemplate.queryForObject(ESTIMATE_SQL, Long.class);
+            // reltuples = -1 (PostgreSQL 14+) hoặc 0 nếu bảng chưa từng được ANALYZE
+            if (estimate != null && estimate >= estimateThreshold) {
+                return new Count(estimate, true);
+            }
+        }
+        return new Count(exactCount.getAsLong(), false);
+    }
+
+    /**
+     * Key của cache: bỏ khoảng trắng thừa của từ khóa, từ khóa rỗng = không lọc
+     */
+    private UserSearchCriteria normalize(UserSearchCriteria criteria) {
+        String search = criteria.getSearch() != null ? criteria.getSearch().trim() : null;
+        return UserSearchCriteria.builder()
+                .search(search == null || search.isEmpty() ? null : search)
+                .roleId(criteria.getRoleId())
+                .isActive(criteria.getIsActive())
+                .lastLoginFrom(criteria.getLastLoginFrom())
+                .lastLoginTo(criteria.getLastLoginTo())
+                .createdFrom(criteria.getCreatedFrom())
+                .createdTo(criteria.getCreatedTo())
+                .build();
+    }
+
+    private boolean isUnfiltered(UserSearchCriteria criteria) {
+        return criteria.getSearch() == null
+                && criteria.getRoleId() == null
+                && criteria.getIsActive() == null
+                && criteria.getLastLoginFrom() == null
+                && criteria.getLastLoginTo() == null
+                && criteria.getCreatedFrom() == null
+                && criteria.getCreatedTo() == null;
+    }
+
+    /**
+     * Tổng số users và có phải ước lượng không
+     */
+    public record Count(long total, boolean approximate) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.DACN.quanlikhoa.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Giới hạn số export users chạy đồng thời (GET /api/admin/users/export)
+ *
+ * File: UserExportLimiter.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserExportLimiter.java
+ *
+ * Export ghi dần trên async executor sau khi request dispatch đầu đã kết thúc, nên
+ * BulkheadFilter trả permit trước khi dòng đầu tiên được ghi, trong khi export giữ
+ * 1 connection Hikari (transaction read-only) suốt quá trình ghi
+ * (tới spring.mvc.async.request-timeout). Limiter này giữ permit tới khi ghi xong:
+ * - AdminController lấy permit trước khi trả về StreamingResponseBody,
+ *   hết permit thì trả về 503 + Retry-After
+ * - Permit được trả khi stream ghi xong (kể cả lỗi), hoặc khi async request kết thúc
+ *   (timeout / lỗi) mà stream chưa bắt đầu; khi đó stream không chạy nữa
+ * - Metrics: users.export.active, users.export.rejected
+ */
+@Component
+public class UserExportLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportLimiter.class);
+
+    private final int maxConcurrent;
+
+    private final long retryAfterSeconds;
+
+    private final Semaphore semaphore;
+
+    private final Counter rejectedCounter;
+
+    public UserExportLimiter(
+            @Value("${users.export.max-concurrent:2}") int maxConcurrent,
+            @Value("${users.export.retry-after-seconds:10}") long retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.semaphore = new Semaphore(maxConcurrent);
+
+        Gauge.builder("users.export.active", semaphore, s -> maxConcurrent - s.availablePermits())
+                .description("Số export users đang chạy")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("users.export.rejected")
+                .description("Số export users bị từ chối do đủ số export đồng thời")
+                .register(meterRegistry);
+
+        logger.info("Export users: tối đa {} export đồng thời", maxConcurrent);
+    }
+
+    /**
+     * Lấy 1 permit, không chờ
+     *
+     * @return Permit, hoặc null nếu đã đủ số export đồng thời
+     */
+    public Permit tryAcquire() {
+        if (!semaphore.tryAcquire()) {
+            rejectedCounter.increment();
+            return null;
+        }
+        return new Permit(semaphore);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getAvailablePermits() {
+        return semaphore.availablePermits();
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Permit của 1 export: ACQUIRED → STARTED (stream bắt đầu ghi) → RELEASED, trả đúng 1 lần
+     */
+    public static final class Permit {
+
+        private static final int ACQUIRED = 0;
+
+        private static final int STARTED = 1;
+
+        private static final int RELEASED = 2;
+
+        private final Semaphore semaphore;
+
+        private final AtomicInteger state = new AtomicInteger(ACQUIRED);
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        /**
+         * Đánh dấu stream bắt đầu ghi
+         *
+         * @return false nếu permit đã được trả (request đã timeout / lỗi), không được ghi nữa
+         */
+        public boolean start() {
+            return state.compareAndSet(ACQUIRED, STARTED);
+        }
+
+        /**
+         * Trả permit (gọi khi stream ghi xong), gọi nhiều lần chỉ trả 1 lần
+         */
+        public void release() {
+            if (state.getAndSet(RELEASED) != RELEASED) {
+                semaphore.release();
+            }
+        }
+
+        /**
+         * Trả permit nếu stream chưa bắt đầu (async request kết thúc trước khi stream chạy)
+         */
+        public void releaseIfNotStarted() {
+            if (state.compareAndSet(ACQUIRED, RELEASED)) {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Ghi danh sách users ra OutputStream (GET /api/admin/users/export)
+ *
+ * File: UserExportWriter.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserExportWriter.java
+ *
+ * Ghi từng dòng ngay khi đọc được từ Stream, không gom danh sách trong bộ nhớ.
+ * - CSV: UTF-8 có BOM (Excel đọc đúng tiếng Việt), RFC 4180, ô bắt đầu bằng = + - @ tab CR
+ *   được thêm dấu ' phía trước (chống CSV injection khi mở bằng Excel)
+ * - NDJSON: mỗi dòng 1 object JSON (cùng field với UserDTO trong API)
+ */
+@Component
+public class UserExportWriter {
+
+    /**
+     * Số dòng giữa 2 lần flush (đẩy dữ liệu tới client thay vì chờ đầy buffer)
+     */
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final String[] CSV_HEADER = {
+            "userId", "username", "email", "phone", "fullName", "avatarUrl",
+            "roleId", "roleName", "isActive", "lastLogin", "createdAt", "updatedAt"};
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Định dạng export
+     */
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException nếu định dạng không hỗ trợ
+         */
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Định dạng export không hỗ trợ: " + value + " (csv, ndjson)");
+        }
+    }
+
+    /**
+     * Ghi toàn bộ rows theo format (không đóng out)
+     *
+     * @return Số dòng đã ghi
+     */
+    public long write(Stream<UserDTO> rows, Format format, OutputStream out) throws IOException {
+        return format == Format.CSV ? writeCsv(rows.iterator(), out) : writeNdjson(rows.iterator(), out);
+    }
+
+    private long writeCsv(Iterator<UserDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        writeCsvLine(writer, (Object[]) CSV_HEADER);
+
+        long count = 0;
+        while (rows.hasNext()) {
+            UserDTO user = rows.next();
+            writeCsvLine(writer,
+                    user.getUserId(), user.getUsername(), user.getEmail(), user.getPhone(),
+                    user.getFullName(), user.getAvatarUrl(), user.getRoleId(), user.getRoleName(),
+                    user.getIsActive(), user.getLastLogin(), user.getCreatedAt(), user.getUpdatedAt());
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] instanceof LocalDateTime dateTime) {
+                // Cùng định dạng với JSON (luôn có giây)
+                writer.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime));
+            } else if (values[i] != null) {
+                writeCsvCell(writer, values[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvCell(Writer writer, String value) throws IOException {
+        boolean formula = !value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private long writeNdjson(Iterator<UserDTO> rows, OutputStream out) throws IOException {
+        // Mặc định ObjectMapper flush sau mỗi object và chèn ' ' giữa các object gốc:
+        // tắt cả 2, tự xuống dòng và flush theo FLUSH_EVERY
+        ObjectWriter rowWriter = objectMapper.writerFor(UserDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = rowWriter.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        long count = 0;
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+        return count;
+    }
+}
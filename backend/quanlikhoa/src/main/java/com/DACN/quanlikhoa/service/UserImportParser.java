@@ -0,0 +1,302 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserCreateRequest;
+import com.DACN.quanlikhoa.entity.Role;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đọc file import users (CSV / JSON) thành danh sách UserCreateRequest
+ *
+ * File: UserImportParser.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserImportParser.java
+ *
+ * CSV:
+ * - UTF-8 (có hoặc không có BOM), RFC 4180 (ô trong dấu ngoặc kép, "" là 1 dấu ")
+ * - Dấu phân cách ',' hoặc ';' (Excel bản tiếng Việt), nhận theo dòng header
+ * - Header (không phân biệt hoa thường): username, password, email, phone, fullName,
+ *   roleId hoặc roleName, avatarUrl; cột khác bị bỏ qua
+ * - roleName được đổi sang roleId qua RoleRegistry
+ * JSON: mảng các object cùng field với POST /api/admin/users
+ *
+ * Lỗi của 1 dòng (roleId sai, role không tồn tại) được ghi vào Row.error, không dừng cả file.
+ */
+@Component
+public class UserImportParser {
+
+    private static final Map<String, String> COLUMN_ALIASES = Map.ofEntries(
+            Map.entry("username", "username"),
+            Map.entry("password", "password"),
+            Map.entry("email", "email"),
+            Map.entry("phone", "phone"),
+            Map.entry("fullname", "fullName"),
+            Map.entry("full_name", "fullName"),
+            Map.entry("roleid", "roleId"),
+            Map.entry("role_id", "roleId"),
+            Map.entry("rolename", "roleName"),
+            Map.entry("role_name", "roleName"),
+            Map.entry("role", "roleName"),
+            Map.entry("avatarurl", "avatarUrl"),
+            Map.entry("avatar_url", "avatarUrl"));
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    /**
+     * 1 dòng dữ liệu: request đã đọc được, hoặc lỗi nếu không đọc được
+     *
+     * @param rowNumber Số dòng (CSV: tính cả header, JSON: thứ tự phần tử từ 1)
+     */
+    public record Row(int rowNumber, UserCreateRequest request, String error) {
+    }
+
+    /**
+     * Đọc mảng JSON
+     *
+     * @throws IllegalArgumentException nếu không phải mảng JSON hợp lệ
+     */
+    public List<Row> parseJson(InputStream in) throws IOException {
+        List<UserCreateRequest> requests;
+        try {
+            requests = objectMapper.readValue(in, new TypeReference<List<UserCreateRequest>>() {
+            });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("File JSON không hợp lệ: " + e.getMessage());
+        }
+        return fromRequests(requests);
+    }
+
+    /**
+     * Danh sách request (body JSON đã được Spring đọc), đánh số từ 1
+     */
+    public List<Row> fromRequests(List<UserCreateRequest> requests) {
+        List<Row> rows = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            UserCreateRequest request = requests.get(i);
+            rows.add(request != null
+                    ? new Row(i + 1, request, null)
+                    : new Row(i + 1, new UserCreateRequest(), "Dòng rỗng"));
+        }
+        return rows;
+    }
+
+    /**
+     * Đọc file CSV có dòng header
+     *
+     * @throws IllegalArgumentException nếu file rỗng hoặc thiếu cột bắt buộc
+     */
+    public List<Row> parseCsv(InputStream in) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        CsvReader csv = new CsvReader(reader);
+
+        List<String> header = csv.readHeader();
+        if (header == null) {
+            throw new IllegalArgumentException("File CSV rỗng");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String field = COLUMN_ALIASES.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (field != null) {
+                columns.putIfAbsent(field, i);
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (String required : List.of("username", "password", "email", "fullName")) {
+            if (!columns.containsKey(required)) {
+                missing.add(required);
+            }
+        }
+        if (!columns.containsKey("roleId") && !columns.containsKey("roleName")) {
+            missing.add("roleId / roleName");
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("File CSV thiếu cột: " + String.join(", ", missing));
+        }
+
+        List<Row> rows = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue; // Dòng trống
+            }
+            rows.add(toRow(csv.getRecordLine(), record, columns));
+        }
+        return rows;
+    }
+
+    private Row toRow(int rowNumber, List<String> record, Map<String, Integer> columns) {
+        UserCreateRequest request = UserCreateRequest.builder()
+                .username(cell(record, columns, "username"))
+                .password(cell(record, columns, "password"))
+                .email(cell(record, columns, "email"))
+                .phone(cell(record, columns, "phone"))
+                .fullName(cell(record, columns, "fullName"))
+                .avatarUrl(cell(record, columns, "avatarUrl"))
+                .build();
+
+        String roleId = cell(record, columns, "roleId");
+        String roleName = cell(record, columns, "roleName");
+        if (roleId != null) {
+            try {
+                request.setRoleId(Integer.valueOf(roleId));
+            } catch (NumberFormatException e) {
+                return new Row(rowNumber, request, "roleId không hợp lệ: " + roleId);
+            }
+        } else if (roleName != null) {
+            Role role = roleRegistry.findByName(roleName);
+            if (role == null) {
+                role = roleRegistry.findByName(roleName.toUpperCase(Locale.ROOT));
+            }
+            if (role == null) {
+                return new Row(rowNumber, request, "Role không tồn tại: " + roleName);
+            }
+            request.setRoleId(role.getRoleId());
+        }
+        return new Row(rowNumber, request, null);
+    }
+
+    /**
+     * Giá trị ô (đã trim), null nếu không có cột / ô trống
+     */
+    private String cell(List<String> record, Map<String, Integer> columns, String field) {
+        Integer index = columns.get(field);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Đọc CSV theo RFC 4180 (ô trong ngoặc kép có thể chứa dấu phân cách và xuống dòng)
+     */
+    private static class CsvReader {
+
+        private final Reader reader;
+
+        private char delimiter = ',';
+
+        private int line = 1;
+
+        private int recordLine;
+
+        private int pushback = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Đọc header, bỏ BOM, nhận dấu phân cách (';' nếu header không có ',')
+         */
+        List<String> readHeader() throws IOException {
+            int first = read();
+            if (first != '\uFEFF') {
+                unread(first);
+            }
+
+            StringBuilder raw = new StringBuilder();
+            int c;
+            while ((c = read()) != -1 && c != '\n') {
+                raw.append((char) c);
+            }
+            if (raw.isEmpty() && c == -1) {
+                return null;
+            }
+            if (raw.indexOf(",") < 0 && raw.indexOf(";") >= 0) {
+                delimiter = ';';
+            }
+
+            CsvReader headerReader = new CsvReader(new StringReader(raw.toString()));
+            headerReader.delimiter = delimiter;
+            return headerReader.readRecord();
+        }
+
+        /**
+         * Số dòng bắt đầu của record vừa đọc
+         */
+        int getRecordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Đọc 1 record, null nếu hết file
+         */
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            unread(c);
+            recordLine = line;
+
+            List<String> record = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+
+            while ((c = read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            cell.append('"');
+                        } else {
+                            quoted = false;
+                            unread(next);
+                        }
+                    } else {
+                        cell.append((char) c);
+                    }
+                } else if (c == '"' && cell.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    record.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                }
+            }
+            record.add(cell.toString());
+            return record;
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (pushback != -2) {
+                c = pushback;
+                pushback = -2;
+                return c;
+            }
+            c = reader.read();
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private void unread(int c) {
+            pushback = c;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cache thông tin user (UserDTO + ETag) theo username cho GET /api/auth/me
+ *
+ * File: UserProfileCache.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserProfileCache.java
+ *
+ * Frontend gọi /api/auth/me mỗi lần chuyển trang. Không có cache thì mỗi lần
+ * tốn 1 query version (ETag) và 1 query UserDTO.
+ *
+ * - Giới hạn số entry (users.profile-cache.max-size)
+ * - Hết hạn sau TTL (users.profile-cache.ttl-seconds), giới hạn thời gian dữ liệu cũ
+ *   khi users bị sửa trực tiếp trong database
+ * - Xóa theo username / user ID: AdminService (sau commit), LastLoginService (sau flush last_login),
+ *   RoleRegistry (roles thay đổi → xóa toàn bộ)
+ * - Metrics: cache.gets{cache=userProfileCache, result=hit|miss}
+ *
+ * UserDTO trong cache dùng chung giữa các request: không được sửa.
+ */
+@Component
+public class UserProfileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileCache.class);
+
+    public static final String CACHE_NAME = "userProfileCache";
+
+    private final boolean enabled;
+
+    private final Cache<String, Profile> cache;
+
+    public UserProfileCache(
+            @Value("${users.profile-cache.enabled:true}") boolean enabled,
+            @Value("${users.profile-cache.max-size:10000}") long maxSize,
+            @Value("${users.profile-cache.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        logger.info("User profile cache: enabled={}, maxSize={}, ttl={}s", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * UserDTO và ETag tương ứng (đọc cùng 1 snapshot database)
+     */
+    public record Profile(UserDTO user, String etag) {
+    }
+
+    /**
+     * Lấy profile từ cache, nếu chưa có thì gọi loader (query database)
+     *
+     * Loader trả về null (user không tồn tại) thì không cache.
+     *
+     * @param username Username
+     * @param loader Hàm load profile khi cache miss
+     * @return Profile, null nếu user không tồn tại
+     */
+    public Profile get(String username, Function<String, Profile> loader) {
+        if (!enabled) {
+            return loader.apply(username);
+        }
+        return cache.get(username, loader);
+    }
+
+    /**
+     * Xóa 1 user khỏi cache theo user ID và username
+     */
+    public void evict(Integer userId, String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+        if (userId != null) {
+            evictByIds(Set.of(userId));
+        }
+    }
+
+    /**
+     * Xóa nhiều users khỏi cache theo user ID và username
+     */
+    public void evictAll(Collection<Integer> userIds, Collection<String> usernames) {
+        cache.invalidateAll(usernames);
+        evictByIds(userIds);
+    }
+
+    /**
+     * Xóa các users có user ID trong danh sách (duyệt cache, dùng khi không biết username)
+     */
+    public void evictByIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty() || cache.estimatedSize() == 0) {
+            return;
+        }
+        Set<Integer> ids = userIds instanceof Set<Integer> set ? set : new HashSet<>(userIds);
+        cache.asMap().values().removeIf(profile -> ids.contains(profile.user().getUserId()));
+        logger.debug("Evict user profile cache: {} users", ids.size());
+    }
+
+    /**
+     * Xóa toàn bộ cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
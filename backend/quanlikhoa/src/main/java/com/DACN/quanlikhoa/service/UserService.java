@@ -1,11 +1,16 @@
 package com.DACN.quanlikhoa.service;
 
 import com.DACN.quanlikhoa.dto.UserDTO;
-import com.DACN.quanlikhoa.entity.User;
+import com.DACN.quanlikhoa.dto.UserVersion;
 import com.DACN.quanlikhoa.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
 
 /**
  * User Service
@@ -16,27 +21,59 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
-    @Transactional(readOnly = true)
+    @Autowired
+    private UserProfileCache profileCache;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    /**
+     * Transaction đọc profile: UserDTO và version trong cùng 1 snapshot (REPEATABLE READ)
+     */
+    private TransactionTemplate profileTransaction;
+    
+    @PostConstruct
+    public void init() {
+        profileTransaction = new TransactionTemplate(transactionManager);
+        profileTransaction.setReadOnly(true);
+        profileTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+    
+    /**
+     * Thông tin user đang đăng nhập, từ UserProfileCache
+     * (cache miss: SELECT thẳng ra UserDTO, không load entity / password hash)
+     */
     public UserDTO getUserInfo(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User không tồn tại: " + username));
-        
-        return convertToDTO(user);
+        UserProfileCache.Profile profile = profileCache.get(username, this::loadProfile);
+        if (profile == null) {
+            throw new RuntimeException("User không tồn tại: " + username);
+        }
+        return profile.user();
+    }
+    
+    /**
+     * ETag của thông tin user đang đăng nhập, từ UserProfileCache (không dựng UserDTO khi cache hit)
+     * 
+     * @return null nếu user không tồn tại
+     */
+    public String getUserInfoEtag(String username) {
+        UserProfileCache.Profile profile = profileCache.get(username, this::loadProfile);
+        return profile != null ? profile.etag() : null;
     }
     
-    private UserDTO convertToDTO(User user) {
-        return UserDTO.builder()
-                .userId(user.getUserId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .phone(user.getPhone())
-                .fullName(user.getFullName())
-                .avatarUrl(user.getAvatarUrl())
-                .roleName(user.getRole().getRoleName())
-                .roleDescription(user.getRole().getRoleDescription())
-                .isActive(user.getIsActive())
-                .lastLogin(user.getLastLogin())
-                .createdAt(user.getCreatedAt())
-                .build();
+    /**
+     * Đọc UserDTO và ETag từ database
+     * 
+     * @return null nếu user không tồn tại
+     */
+    private UserProfileCache.Profile loadProfile(String username) {
+        return profileTransaction.execute(status -> {
+            Optional<UserVersion> version = userRepository.findVersionByUsername(username);
+            Optional<UserDTO> user = userRepository.findDtoByUsername(username);
+            if (version.isEmpty() || user.isEmpty()) {
+                return null;
+            }
+            return new UserProfileCache.Profile(user.get(), version.get().etag());
+        });
     }
-}
\ No newline at end of file
+}
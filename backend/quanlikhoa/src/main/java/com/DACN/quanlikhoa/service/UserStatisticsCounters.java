@@ -0,0 +1,191 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ đếm users theo (role, trạng thái) trong bộ nhớ - GET /api/admin/users/statistics
+ *
+ * File: UserStatisticsCounters.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserStatisticsCounters.java
+ *
+ * - Khởi tạo bằng 1 query GROUP BY role_id, is_active khi khởi động
+ * - AdminService cộng / trừ sau khi transaction commit (rollback thì không đổi)
+ * - Định kỳ đếm lại từ database để sửa sai lệch (users.statistics.reconcile-interval-ms),
+ *   ví dụ khi users bị sửa trực tiếp trong database
+ *
+ * is_active NULL được tính là inactive (giống User.isAccountActive()).
+ *
+ * Đếm lại không ghi đè nếu có thay đổi được áp dụng trong lúc query chạy
+ * (không biết thay đổi đó đã nằm trong kết quả query hay chưa), lần sau sẽ thử lại.
+ */
+@Component
+public class UserStatisticsCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatisticsCounters.class);
+
+    private static final String GROUPED_COUNT_SQL =
+            "SELECT role_id, COALESCE(is_active, FALSE) AS is_active, COUNT(*) AS total "
+            + "FROM users GROUP BY role_id, COALESCE(is_active, FALSE)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<Cell, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime reconciledAt;
+
+    /**
+     * Số thay đổi đã áp dụng, dùng để biết có thay đổi nào chen vào lúc đếm lại không
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Read lock: áp dụng thay đổi (nhiều thread cùng lúc), write lock: thay toàn bộ bộ đếm
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void init() {
+        if (!reconcile()) {
+            throw new IllegalStateException("Không thể khởi tạo thống kê users");
+        }
+    }
+
+    /**
+     * Đếm lại từ database định kỳ
+     */
+    @Scheduled(initialDelayString = "${users.statistics.reconcile-interval-ms:300000}",
+               fixedDelayString = "${users.statistics.reconcile-interval-ms:300000}")
+    public void reconcileScheduled() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Không thể đếm lại thống kê users: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Đếm lại bằng 1 query GROUP BY và thay bộ đếm hiện tại
+     *
+     * @return false nếu bỏ qua vì có thay đổi được áp dụng trong lúc query
+     */
+    public boolean reconcile() {
+        long startVersion = version.get();
+
+        Map<Cell, LongAdder> fresh = new ConcurrentHashMap<>();
+        jdbcTemplate.query(GROUPED_COUNT_SQL, rs -> {
+            Integer roleId = rs.getObject("role_id", Integer.class);
+            LongAdder adder = new LongAdder();
+            adder.add(rs.getLong("total"));
+            fresh.put(new Cell(roleId, rs.getBoolean("is_active")), adder);
+        });
+
+        lock.writeLock().lock();
+        try {
+            if (version.get() != startVersion) {
+                logger.debug("Bỏ qua đếm lại thống kê users: có thay đổi trong lúc query");
+                return false;
+            }
+            Map<Cell, Long> before = snapshot();
+            counters = fresh;
+            reconciledAt = LocalDateTime.now();
+            Map<Cell, Long> after = snapshot();
+            if (!before.isEmpty() && !before.equals(after)) {
+                logger.warn("Thống kê users bị lệch, đã sửa: {} → {}", before, after);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Chuyển 1 user từ ô before sang ô after (gọi sau khi commit)
+     *
+     * @param before Ô cũ (null = user mới tạo)
+     * @param after Ô mới (null = user bị xóa khỏi bảng)
+     */
+    public void move(Cell before, Cell after) {
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (before != null) {
+                counters.computeIfAbsent(before, k -> new LongAdder()).decrement();
+            }
+            if (after != null) {
+                counters.computeIfAbsent(after, k -> new LongAdder()).increment();
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cộng thêm delta users vào 1 ô (thêm / sửa hàng loạt)
+     */
+    public void add(Cell cell, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            counters.computeIfAbsent(cell, k -> new LongAdder()).add(delta);
+            version.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số users hiện tại theo từng ô (bỏ các ô bằng 0)
+     */
+    public Map<Cell, Long> snapshot() {
+        Map<Cell, Long> result = new HashMap<>();
+        counters.forEach((cell, adder) -> {
+            long value = adder.sum();
+            if (value != 0) {
+                result.put(cell, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Lần đếm lại từ database gần nhất
+     */
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    /**
+     * Ô đếm: role_id + trạng thái active
+     */
+    public record Cell(Integer roleId, boolean active) {
+
+        /**
+         * Ô hiện tại của user (User.role LAZY: chỉ đọc role_id của proxy)
+         */
+        public static Cell of(User user) {
+            return new Cell(user.getRole() != null ? user.getRole().getRoleId() : null, user.isAccountActive());
+        }
+    }
+}
@@ -0,0 +1,672 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserSuggestion;
+import com.DACN.quanlikhoa.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index n-gram trong bộ nhớ cho ô gợi ý user (GET /api/admin/users/suggest)
+ *
+ * File: UserSuggestIndex.java
+ * Location: src/main/java/com/DACN/quanlikhoa/service/UserSuggestIndex.java
+ *
+ * Ô chọn user gọi API mỗi lần gõ phím, nên không query database:
+ * - Text của user (username, full name, email) được chuẩn hóa: chữ thường,
+ *   bỏ dấu tiếng Việt ("Nguyễn Đức" → "nguyen duc"), tách thành token theo ký tự không phải chữ/số
+ * - Mỗi token sinh các gram: tiền tố 1-2 ký tự ("^n", "^ng"), mọi trigram ("ngu", "guy", ...)
+ *   và token ngắn (1-2 ký tự) nguyên vẹn ("=an")
+ * - Inverted index: gram → posting list là mảng int (số slot của user) tăng dần
+ * - Tìm kiếm: token ngắn (1-2 ký tự) tra gram tiền tố, token dài giao các trigram,
+ *   rồi kiểm tra lại ứng viên (loại false positive) và chấm điểm:
+ *   token trùng hoàn toàn > là tiền tố > là chuỗi con.
+ *   Khi đã đủ top-k, ứng viên không thể vượt qua (tính theo điểm tối đa) bị bỏ qua ngay
+ *
+ * Cập nhật:
+ * - Dựng toàn bộ lúc khởi động từ UserRepository và định kỳ (users.suggest.rebuild-interval-ms)
+ * - AdminService gọi upsert() sau khi transaction commit (tạo, sửa, xóa mềm, khôi phục, khóa)
+ * - Sửa user = đánh dấu slot cũ đã xóa + thêm slot mới; slot đã xóa vượt 25% thì nén lại
+ */
+@Component
+public class UserSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSuggestIndex.class);
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int GRAM = 3;
+
+    private static final char PREFIX_MARK = '^';
+
+    private static final char EXACT_MARK = '=';
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Index hiện tại (đọc dưới read lock, sửa dưới write lock)
+     */
+    private Index index = new Index(0);
+
+    /**
+     * Thay đổi nhận được trong lúc đang dựng lại index, áp dụng lại sau khi đổi index
+     * (null nếu không dựng lại)
+     */
+    private List<UserSuggestion> pendingDuringRebuild;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại định kỳ, sửa sai lệch do thay đổi ngoài AdminService (VD: sửa trực tiếp database)
+     */
+    @Scheduled(initialDelayString = "${users.suggest.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${users.suggest.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Không thể dựng lại user suggest index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ database
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<UserSuggestion> users;
+        try {
+            users = userRepository.findAllSuggestions();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        load(users);
+        logger.info("Đã dựng user suggest index: {} users, {} grams ({} ms)",
+                users.size(), gramCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Thay index bằng index mới dựng từ danh sách users
+     *
+     * Index mới được dựng ngoài lock (không chặn tìm kiếm), chỉ khóa lúc đổi.
+     */
+    public void load(Collection<UserSuggestion> users) {
+        Index built = new Index(users.size());
+        for (UserSuggestion user : users) {
+            built.upsert(user);
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<UserSuggestion> pending = pendingDuringRebuild;
+            pendingDuringRebuild = null;
+            index = built;
+            if (pending != null) {
+                pending.forEach(index::upsert);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Thêm mới hoặc cập nhật 1 user (gọi sau khi transaction commit)
+     */
+    public void upsert(UserSuggestion user) {
+        upsertAll(List.of(user));
+    }
+
+    /**
+     * Thêm mới hoặc cập nhật nhiều users trong 1 lần khóa
+     */
+    public void upsertAll(Collection<UserSuggestion> users) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.addAll(users);
+            }
+            for (UserSuggestion user : users) {
+                index.upsert(user);
+            }
+            if (index.needsCompaction()) {
+                index.compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gợi ý users khớp với từ khóa
+     *
+     * Mọi token của từ khóa phải khớp (tiền tố với token 1-2 ký tự, chuỗi con với token dài hơn)
+     * 1 token của user. Không phân biệt hoa thường và dấu.
+     *
+     * @param query Từ khóa (VD: "nguyen van", "ng", "sv2021")
+     * @param limit Số kết quả tối đa
+     * @param includeInactive Có trả về user đã khóa / xóa mềm không
+     * @return Danh sách user, điểm cao nhất trước
+     */
+    public List<UserSuggestion> suggest(String query, int limit, boolean includeInactive) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return index.search(queryTokens, limit, includeInactive);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số users đang có trong index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int gramCount() {
+        lock.readLock().lock();
+        try {
+            return index.postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Chữ thường, bỏ dấu ("Nguyễn Đức" → "nguyen duc")
+     */
+    static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(fold(text)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Index: users theo slot + inverted index gram → posting list
+     *
+     * - Slot mới luôn lớn hơn slot cũ nên posting list luôn tăng dần (giao bằng merge)
+     * - Text đã chuẩn hóa của mọi user nằm liền nhau trong 1 mảng byte (UTF-8, token cách nhau 1 dấu cách),
+     *   dữ liệu xếp hạng nằm trong mảng int: chấm điểm hàng chục nghìn ứng viên
+     *   không phải đi qua từng object String (ít cache miss)
+     */
+    private static final class Index {
+
+        private static final byte SPACE = ' ';
+
+        private UserSuggestion[] docs;
+
+        private int[] userIds;
+
+        private int[] nameLengths;
+
+        private int[] textStart;
+
+        private int[] textEnd;
+
+        private byte[] text;
+
+        private int textSize;
+
+        private int size;
+
+        private int live;
+
+        private BitSet deleted = new BitSet();
+
+        private BitSet inactive = new BitSet();
+
+        private final Map<Integer, Integer> slotByUserId;
+
+        private final Map<String, PostingList> postings;
+
+        Index(int expectedUsers) {
+            int capacity = Math.max(expectedUsers, 16);
+            this.docs = new UserSuggestion[capacity];
+            this.userIds = new int[capacity];
+            this.nameLengths = new int[capacity];
+            this.textStart = new int[capacity];
+            this.textEnd = new int[capacity];
+            this.text = new byte[capacity * 32];
+            this.slotByUserId = new HashMap<>(capacity * 4 / 3 + 1);
+            this.postings = new HashMap<>();
+        }
+
+        void upsert(UserSuggestion user) {
+            Integer oldSlot = slotByUserId.get(user.getUserId());
+            if (oldSlot != null) {
+                deleted.set(oldSlot);
+                docs[oldSlot] = null;
+                live--;
+            }
+            add(user);
+        }
+
+        private void add(UserSuggestion user) {
+            if (size == docs.length) {
+                int capacity = size * 2;
+                docs = Arrays.copyOf(docs, capacity);
+                userIds = Arrays.copyOf(userIds, capacity);
+                nameLengths = Arrays.copyOf(nameLengths, capacity);
+                textStart = Arrays.copyOf(textStart, capacity);
+                textEnd = Arrays.copyOf(textEnd, capacity);
+            }
+
+            String[] tokens = tokenize(String.join(" ",
+                    nullToEmpty(user.getUsername()), nullToEmpty(user.getFullName()), nullToEmpty(user.getEmail())));
+            byte[] bytes = String.join(" ", tokens).getBytes(StandardCharsets.UTF_8);
+            if (textSize + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textSize + bytes.length));
+            }
+            System.arraycopy(bytes, 0, text, textSize, bytes.length);
+
+            int slot = size++;
+            docs[slot] = user;
+            userIds[slot] = user.getUserId();
+            nameLengths[slot] = Math.min(nullToEmpty(user.getFullName()).length(), 0xFFFF);
+            textStart[slot] = textSize;
+            textEnd[slot] = textSize + bytes.length;
+            textSize += bytes.length;
+            inactive.set(slot, !Boolean.TRUE.equals(user.getIsActive()));
+            slotByUserId.put(user.getUserId(), slot);
+            live++;
+
+            for (String token : tokens) {
+                posting(String.valueOf(PREFIX_MARK) + token.charAt(0)).add(slot);
+                if (token.length() >= 2) {
+                    posting(PREFIX_MARK + token.substring(0, 2)).add(slot);
+                }
+                if (token.length() < GRAM) {
+                    // Token ngắn: biết trước từ khóa 1-2 ký tự có thể trùng hoàn toàn hay không
+                    posting(EXACT_MARK + token).add(slot);
+                }
+                for (int i = 0; i + GRAM <= token.length(); i++) {
+                    posting(token.substring(i, i + GRAM)).add(slot);
+                }
+            }
+        }
+
+        private PostingList posting(String gram) {
+            return postings.computeIfAbsent(gram, k -> new PostingList());
+        }
+
+        boolean needsCompaction() {
+            int removed = size - live;
+            return removed > 1024 && removed > size / 4;
+        }
+
+        /**
+         * Bỏ các slot đã xóa: đánh số lại slot (giữ thứ tự) và sửa posting list tại chỗ,
+         * không cần tách token / sinh gram lại
+         */
+        void compact() {
+            int[] remap = new int[size];
+            UserSuggestion[] newDocs = new UserSuggestion[Math.max(live, 16)];
+            int[] newUserIds = new int[newDocs.length];
+            int[] newNameLengths = new int[newDocs.length];
+            int[] newTextStart = new int[newDocs.length];
+            int[] newTextEnd = new int[newDocs.length];
+            byte[] newText = new byte[Math.max(textSize, 16)];
+            BitSet newInactive = new BitSet(live);
+            int newSize = 0;
+            int newTextSize = 0;
+
+            for (int slot = 0; slot < size; slot++) {
+                if (deleted.get(slot)) {
+                    remap[slot] = -1;
+                    continue;
+                }
+                int length = textEnd[slot] - textStart[slot];
+                System.arraycopy(text, textStart[slot], newText, newTextSize, length);
+                newDocs[newSize] = docs[slot];
+                newUserIds[newSize] = userIds[slot];
+                newNameLengths[newSize] = nameLengths[slot];
+                newTextStart[newSize] = newTextSize;
+                newTextEnd[newSize] = newTextSize + length;
+                newInactive.set(newSize, inactive.get(slot));
+                newTextSize += length;
+                remap[slot] = newSize++;
+            }
+
+            postings.values().removeIf(list -> list.remap(remap) == 0);
+            slotByUserId.clear();
+            for (int slot = 0; slot < newSize; slot++) {
+                slotByUserId.put(newUserIds[slot], slot);
+            }
+
+            docs = newDocs;
+            userIds = newUserIds;
+            nameLengths = newNameLengths;
+            textStart = newTextStart;
+            textEnd = newTextEnd;
+            text = newText;
+            textSize = newTextSize;
+            inactive = newInactive;
+            deleted = new BitSet();
+            size = newSize;
+        }
+
+        List<UserSuggestion> search(String[] queryTokens, int limit, boolean includeInactive) {
+            // Ứng viên: giao posting list của mọi gram cần có, bắt đầu từ list ngắn nhất
+            List<PostingList> required = new ArrayList<>();
+            for (String token : queryTokens) {
+                if (token.length() < GRAM) {
+                    PostingList list = postings.get(PREFIX_MARK + token);
+                    if (list == null) {
+                        return List.of();
+                    }
+                    required.add(list);
+                } else {
+                    for (int i = 0; i + GRAM <= token.length(); i++) {
+                        PostingList list = postings.get(token.substring(i, i + GRAM));
+                        if (list == null) {
+                            return List.of();
+                        }
+                        required.add(list);
+                    }
+                }
+            }
+            required.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            int[] candidates = Arrays.copyOf(required.get(0).ids, required.get(0).size);
+            int count = candidates.length;
+            for (int i = 1; i < required.size() && count > 0; i++) {
+                count = required.get(i).retainAll(candidates, count);
+            }
+
+            // Điểm tối đa có thể đạt: 3 mỗi token, trừ token ngắn không trùng hoàn toàn với token nào (2)
+            byte[][] queryBytes = new byte[queryTokens.length][];
+            int maxScore = 0;
+            for (int i = 0; i < queryTokens.length; i++) {
+                queryBytes[i] = queryTokens[i].getBytes(StandardCharsets.UTF_8);
+                boolean exactPossible = queryTokens[i].length() >= GRAM
+                        || postings.containsKey(EXACT_MARK + queryTokens[i]);
+                maxScore += exactPossible ? 3 : 2;
+            }
+
+            // Top-k theo khóa xếp hạng (min-heap: phần tử yếu nhất ở đầu)
+            TopK top = new TopK(limit);
+            for (int i = 0; i < count; i++) {
+                int slot = candidates[i];
+                // Heap đã đầy và ứng viên dù đạt điểm tối đa cũng không vào được: bỏ qua, không đọc text
+                if (top.isFull() && rankKey(slot, maxScore) <= top.min()) {
+                    continue;
+                }
+                if (deleted.get(slot) || (!includeInactive && inactive.get(slot))) {
+                    continue;
+                }
+                int score = score(slot, queryBytes);
+                if (score > 0) {
+                    top.offer(rankKey(slot, score));
+                }
+            }
+
+            long[] keys = top.sortedDescending();
+            List<UserSuggestion> result = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                int userId = Integer.MAX_VALUE - (int) (key & Integer.MAX_VALUE);
+                result.add(docs[slotByUserId.get(userId)]);
+            }
+            return result;
+        }
+
+        /**
+         * Khóa xếp hạng (lớn hơn = tốt hơn): điểm, rồi full name ngắn hơn, rồi userId nhỏ hơn
+         * [điểm: 16 bit][65535 - độ dài full name: 16 bit][MAX - userId: 31 bit]
+         */
+        private long rankKey(int slot, int score) {
+            return ((long) score << 47)
+                    | ((long) (0xFFFF - nameLengths[slot]) << 31)
+                    | (Integer.MAX_VALUE - userIds[slot]);
+        }
+
+        /**
+         * Tổng điểm các token của từ khóa (0 nếu có token không khớp):
+         * trùng token = 3, tiền tố = 2, chuỗi con (từ khóa >= 3 ký tự) = 1
+         */
+        private int score(int slot, byte[][] queryTokens) {
+            int start = textStart[slot];
+            int end = textEnd[slot];
+            int total = 0;
+            for (byte[] query : queryTokens) {
+                int best = 0;
+                int tokenStart = start;
+                while (tokenStart < end && best < 3) {
+                    int tokenEnd = tokenStart;
+                    while (tokenEnd < end && text[tokenEnd] != SPACE) {
+                        tokenEnd++;
+                    }
+                    int tokenLength = tokenEnd - tokenStart;
+                    if (tokenLength >= query.length) {
+                        if (regionMatches(tokenStart, query)) {
+                            best = tokenLength == query.length ? 3 : Math.max(best, 2);
+                        } else if (best == 0 && query.length >= GRAM) {
+                            for (int from = tokenStart + 1; from + query.length <= tokenEnd; from++) {
+                                if (regionMatches(from, query)) {
+                                    best = 1;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                    tokenStart = tokenEnd + 1;
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                total += best;
+            }
+            return total;
+        }
+
+        private boolean regionMatches(int offset, byte[] query) {
+            for (int i = 0; i < query.length; i++) {
+                if (text[offset + i] != query[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * Top-k khóa long lớn nhất (min-heap trên mảng, không cấp phát cho mỗi ứng viên)
+     */
+    private static final class TopK {
+
+        private final long[] heap;
+
+        private int size;
+
+        TopK(int limit) {
+            this.heap = new long[limit];
+        }
+
+        boolean isFull() {
+            return size == heap.length;
+        }
+
+        long min() {
+            return heap[0];
+        }
+
+        void offer(long key) {
+            if (size < heap.length) {
+                heap[size] = key;
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= heap[i]) {
+                        break;
+                    }
+                    swap(i, parent);
+                    i = parent;
+                }
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                int i = 0;
+                while (true) {
+                    int smallest = i;
+                    int left = 2 * i + 1;
+                    int right = left + 1;
+                    if (left < size && heap[left] < heap[smallest]) {
+                        smallest = left;
+                    }
+                    if (right < size && heap[right] < heap[smallest]) {
+                        smallest = right;
+                    }
+                    if (smallest == i) {
+                        break;
+                    }
+                    swap(i, smallest);
+                    i = smallest;
+                }
+            }
+        }
+
+        long[] sortedDescending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+                long tmp = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = tmp;
+            }
+            return sorted;
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Posting list: mảng int tăng dần, không trùng
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[4];
+
+        private int size;
+
+        void add(int slot) {
+            if (size > 0 && ids[size - 1] == slot) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = slot;
+        }
+
+        /**
+         * Giữ lại các phần tử của candidates[0..count) có trong list
+         *
+         * Nhảy theo cấp số nhân (galloping) trong list, nên chi phí theo số ứng viên
+         * chứ không theo độ dài list khi list dài hơn nhiều.
+         *
+         * @return Số phần tử còn lại (ghi đè lên đầu candidates)
+         */
+        int retainAll(int[] candidates, int count) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < size; i++) {
+                int slot = candidates[i];
+                if (ids[j] < slot) {
+                    int step = 1;
+                    int low = j;
+                    while (j + step < size && ids[j + step] < slot) {
+                        low = j + step;
+                        step <<= 1;
+                    }
+                    int index = Arrays.binarySearch(ids, low + 1, Math.min(j + step, size - 1) + 1, slot);
+                    j = index >= 0 ? index : -index - 1;
+                }
+                if (j < size && ids[j] == slot) {
+                    candidates[kept++] = slot;
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Đổi slot theo bảng remap (-1 = bỏ), thứ tự tăng dần được giữ nguyên
+         *
+         * @return Số phần tử còn lại
+         */
+        int remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = remap[ids[i]];
+                if (slot >= 0) {
+                    ids[kept++] = slot;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+-- ===================================================================
+-- SCHEMA BỔ SUNG CHO BACKEND
+-- ===================================================================
+-- File: schema.sql
+-- Location: src/main/resources/schema.sql
+--
+-- Chạy mỗi lần khởi động (spring.sql.init.mode=always), trước khi
+-- Hibernate validate schema. Mọi câu lệnh phải idempotent (IF NOT EXISTS).
+-- Schema gốc: khoa_cntt_db.sql
+-- ===================================================================
+
+-- Refresh tokens (lưu SHA-256 của token, không lưu token gốc)
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    token_id BIGSERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    family_id VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    used_at TIMESTAMP,
+    revoked_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+-- Lọc / sắp xếp danh sách users (UserSpecifications)
+-- Schema gốc đã có idx_users_username, idx_users_email, idx_users_role_id
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at);
+CREATE INDEX IF NOT EXISTS idx_users_last_login ON users (last_login);
+CREATE INDEX IF NOT EXISTS idx_users_role_id_created_at ON users (role_id, created_at);
+
+-- Tìm kiếm users không phân biệt dấu (UserSpecifications.matching, search)
+-- pg_trgm, unaccent là trusted extensions (PostgreSQL 13+): owner của database tạo được
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() chỉ STABLE nên không dùng được trong index, bọc lại với từ điển cố định
+CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+    AS $func$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $func$;
+
+-- Chuỗi tìm kiếm của 1 user: "username email full_name", chữ thường, bỏ dấu
+-- Query và index phải gọi đúng hàm này để planner dùng được idx_users_search_trgm
+CREATE OR REPLACE FUNCTION f_user_search_text(text, text, text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $func$ SELECT public.f_unaccent(lower(coalesce($1, '') || ' ' || coalesce($2, '') || ' ' || coalesce($3, ''))) $func$;
+
+CREATE INDEX IF NOT EXISTS idx_users_search_trgm
+    ON users USING gin (f_user_search_text(username, email, full_name) gin_trgm_ops);
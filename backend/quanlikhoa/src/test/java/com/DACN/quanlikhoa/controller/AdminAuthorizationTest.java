@@ -0,0 +1,121 @@
+package com.DACN.quanlikhoa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test phân quyền /api/admin/**: SecurityConfig chỉ yêu cầu đăng nhập,
+ * quyền do @PreAuthorize + PermissionMatrix (role_permissions) quyết định
+ *
+ * File: AdminAuthorizationTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/controller/AdminAuthorizationTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties: chỉ ADMIN có
+ * VIEW_USERS / EDIT_USER trong role_permissions, TRUONG_KHOA được cho qua bằng hasRole.
+ * Mỗi test rollback.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class AdminAuthorizationTest {
+
+    private static final String BULK_BODY = "{\"action\": \"ACTIVATE\", \"userIds\": [-1]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void anonymousIsUnauthorized() throws Exception {
+        mockMvc.perform(get("/admin/users"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/admin/users/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rolesWithoutPermissionAreForbidden() throws Exception {
+        for (String role : List.of("SINH_VIEN", "GIANG_VIEN", "GIAO_VU")) {
+            RequestPostProcessor login = user("u_" + role.toLowerCase()).roles(role);
+
+            mockMvc.perform(get("/admin/users").with(login))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(get("/admin/users/export").with(login))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(bulk().with(login))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(post("/admin/permissions/reload").with(login))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Test
+    void adminByRolePermissionsAndTruongKhoaAreAllowed() throws Exception {
+        for (String role : List.of("ADMIN", "TRUONG_KHOA")) {
+            RequestPostProcessor login = user("u_" + role.toLowerCase()).roles(role);
+
+            mockMvc.perform(get("/admin/users").with(login))
+                    .andExpect(status().isOk());
+
+            MvcResult export = mockMvc.perform(get("/admin/users/export").with(login))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(export))
+                    .andExpect(status().isOk());
+
+            mockMvc.perform(bulk().with(login))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void permissionReloadIsAdminOnly() throws Exception {
+        mockMvc.perform(post("/admin/permissions/reload").with(user("u_admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/admin/permissions/reload").with(user("u_truong_khoa").roles("TRUONG_KHOA")))
+                .andExpect(status().isForbidden());
+    }
+
+    /**
+     * URL /admin/** chỉ yêu cầu đăng nhập: endpoint thiếu @PreAuthorize sẽ mở cho mọi user
+     */
+    @Test
+    void everyAdminEndpointDeclaresPreAuthorize() {
+        List<String> missing = new ArrayList<>();
+        for (Method method : AdminController.class.getDeclaredMethods()) {
+            if (AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)
+                    && !AnnotatedElementUtils.hasAnnotation(method, PreAuthorize.class)) {
+                missing.add(method.getName());
+            }
+        }
+        assertThat(missing).isEmpty();
+    }
+
+    private static MockHttpServletRequestBuilder bulk() {
+        return post("/admin/users/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BULK_BODY);
+    }
+}
@@ -0,0 +1,121 @@
+package com.DACN.quanlikhoa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test ETag / If-None-Match của GET /api/auth/me và GET /api/admin/users/{id}
+ *
+ * File: UserEtagTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/controller/UserEtagTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties (user "admin"), mỗi test rollback.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class UserEtagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void currentUserReturns304WhenEtagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/auth/me"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.username").value("admin"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).matches("W/\"[0-9a-f]{32}\"");
+
+        mockMvc.perform(get("/auth/me").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // Client gửi lại dạng strong / danh sách nhiều ETag: so khớp weak
+        mockMvc.perform(get("/auth/me").header(HttpHeaders.IF_NONE_MATCH, etag.substring(2)))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/auth/me").header(HttpHeaders.IF_NONE_MATCH, "W/\"khac\", " + etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/auth/me").header(HttpHeaders.IF_NONE_MATCH, "W/\"khac\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void etagDoesNotDependOnResponseFormat() throws Exception {
+        String etag = mockMvc.perform(get("/auth/me"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/auth/me").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem("Accept")));
+
+        mockMvc.perform(get("/auth/me").accept("application/cbor").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void userByIdEtagChangesWhenUserChanges() throws Exception {
+        Integer userId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE username = 'admin'", Integer.class);
+        String path = "/admin/users/" + userId;
+
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"");
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        jdbcTemplate.update("UPDATE users SET updated_at = updated_at + interval '1 second' WHERE user_id = ?", userId);
+
+        String changed = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.userId").value(userId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void unknownUserHasNoEtag() throws Exception {
+        mockMvc.perform(get("/admin/users/-1").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @WithMockUser(username = "gv.nguyenvanc", roles = "GIANG_VIEN")
+    void roleWithoutViewUsersPermissionIsForbidden() throws Exception {
+        mockMvc.perform(get("/admin/users/1"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,112 @@
+package com.DACN.quanlikhoa.controller;
+
+import com.DACN.quanlikhoa.service.UserExportLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test GET /api/admin/users/export: ghi dần CSV, giới hạn số export đồng thời
+ *
+ * File: UserExportTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/controller/UserExportTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties (user "admin"), mỗi test rollback.
+ * Export đang chạy được giả lập bằng cách lấy trước permit của UserExportLimiter.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class UserExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserExportLimiter exportLimiter;
+
+    private final List<UserExportLimiter.Permit> heldPermits = new ArrayList<>();
+
+    @AfterEach
+    void releaseHeldPermits() {
+        heldPermits.forEach(UserExportLimiter.Permit::release);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void exportStreamsCsvAndReturnsPermit() throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment")))
+                .andExpect(content().string(containsString("admin")));
+
+        assertThat(exportLimiter.getAvailablePermits()).isEqualTo(exportLimiter.getMaxConcurrent());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void exportBeyondLimitIsRejectedWith503() throws Exception {
+        // Các export khác đang chạy giữ hết permit
+        UserExportLimiter.Permit permit;
+        while ((permit = exportLimiter.tryAcquire()) != null) {
+            heldPermits.add(permit);
+        }
+        assertThat(heldPermits).hasSize(exportLimiter.getMaxConcurrent());
+
+        MvcResult rejected = mockMvc.perform(get("/admin/users/export"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(exportLimiter.getRetryAfterSeconds())))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(rejected))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.success").value(false));
+        assertThat(exportLimiter.getAvailablePermits()).isZero();
+
+        // 1 export xong thì export mới chạy được
+        heldPermits.remove(0).release();
+        MvcResult accepted = mockMvc.perform(get("/admin/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(accepted))
+                .andExpect(status().isOk());
+        assertThat(exportLimiter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void invalidFormatIsRejectedWithoutTakingPermit() throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/users/export").param("format", "xlsx"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$.success").value(false));
+
+        assertThat(exportLimiter.getAvailablePermits()).isEqualTo(exportLimiter.getMaxConcurrent());
+    }
+}
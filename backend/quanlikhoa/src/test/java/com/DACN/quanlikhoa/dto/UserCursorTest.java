@@ -0,0 +1,95 @@
+package com.DACN.quanlikhoa.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test UserCursor: encode / decode giữ nguyên vị trí và kiểu giá trị
+ *
+ * File: UserCursorTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/dto/UserCursorTest.java
+ */
+class UserCursorTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 1, 8, 0, 0, 123_456_000);
+
+    private final UserDTO user = UserDTO.builder()
+            .userId(42)
+            .username("gv.nguyenvanc")
+            .email("c@khoa.edu.vn")
+            .fullName("Nguyễn Văn C")
+            .createdAt(CREATED_AT)
+            .updatedAt(CREATED_AT.plusDays(1))
+            .lastLogin(null)
+            .isActive(false)
+            .build();
+
+    @Test
+    void roundTripKeepsTypedValueForEverySortField() {
+        assertRoundTrip("userId", 42);
+        assertRoundTrip("username", "gv.nguyenvanc");
+        assertRoundTrip("email", "c@khoa.edu.vn");
+        assertRoundTrip("fullName", "Nguyễn Văn C");
+        assertRoundTrip("createdAt", CREATED_AT);
+        assertRoundTrip("updatedAt", CREATED_AT.plusDays(1));
+        assertRoundTrip("isActive", false);
+    }
+
+    @Test
+    void roundTripKeepsNullValue() {
+        UserCursor decoded = UserCursor.decode(UserCursor.of(user, "lastLogin", "ASC", false).encode());
+
+        assertThat(decoded.getValue()).isNull();
+        assertThat(decoded.typedValue()).isNull();
+        assertThat(decoded.getUserId()).isEqualTo(42);
+    }
+
+    @Test
+    void roundTripKeepsDirectionAndBackwardFlag() {
+        UserCursor decoded = UserCursor.decode(UserCursor.of(user, "createdAt", "DESC", true).encode());
+
+        assertThat(decoded.getSortBy()).isEqualTo("createdAt");
+        assertThat(decoded.getDirection()).isEqualTo("DESC");
+        assertThat(decoded.isBackward()).isTrue();
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = UserCursor.of(user, "fullName", "ASC", false).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertInvalid("khong-phai-base64!");
+        assertInvalid(base64("not json"));
+        assertInvalid(base64("{\"sortBy\":\"createdAt\",\"direction\":\"ASC\"}"));
+        assertInvalid(base64("{\"sortBy\":\"createdAt\",\"direction\":\"ASC\",\"value\":\"hôm qua\",\"userId\":1}"));
+        assertInvalid(base64("{\"sortBy\":\"passwordHash\",\"direction\":\"ASC\",\"value\":\"x\",\"userId\":1}"));
+        assertInvalid(base64("{\"sortBy\":\"userId\",\"direction\":\"ASC\",\"value\":\"abc\",\"userId\":1}"));
+    }
+
+    private void assertRoundTrip(String sortBy, Object expected) {
+        UserCursor decoded = UserCursor.decode(UserCursor.of(user, sortBy, "ASC", false).encode());
+
+        assertThat(decoded.typedValue()).as(sortBy).isEqualTo(expected);
+        assertThat(decoded.getUserId()).isEqualTo(42);
+    }
+
+    private static void assertInvalid(String encoded) {
+        assertThatThrownBy(() -> UserCursor.decode(encoded))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor không hợp lệ");
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,134 @@
+package com.DACN.quanlikhoa.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test LoginRateLimiter: GCRA, Retry-After, dọn bucket idle, bucket đầy
+ *
+ * File: LoginRateLimiterTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/security/LoginRateLimiterTest.java
+ *
+ * Thời điểm now được truyền vào (không phụ thuộc đồng hồ thật).
+ */
+class LoginRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * now bắt đầu từ giá trị lớn tùy ý (System.nanoTime() có thể âm / rất lớn)
+     */
+    private static final long T0 = 1_000_000 * SECOND;
+
+    @Test
+    void allowsBurstThenRejectsUntilNextRefill() {
+        // burst 3, hồi 60 lần/phút = 1 lượt mỗi giây
+        LoginRateLimiter.KeyedBuckets buckets = buckets(3, 60, 100);
+
+        assertThat(buckets.tryAcquire("k", T0)).isZero();
+        assertThat(buckets.tryAcquire("k", T0)).isZero();
+        assertThat(buckets.tryAcquire("k", T0)).isZero();
+        assertThat(buckets.tryAcquire("k", T0)).isEqualTo(SECOND);
+        assertThat(buckets.tryAcquire("k", T0 + SECOND / 4)).isEqualTo(3 * SECOND / 4);
+
+        // Sau 1 giây hồi đúng 1 lượt
+        assertThat(buckets.tryAcquire("k", T0 + SECOND)).isZero();
+        assertThat(buckets.tryAcquire("k", T0 + SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void rejectedAttemptsDoNotConsumeTokens() {
+        LoginRateLimiter.KeyedBuckets buckets = buckets(1, 60, 100);
+
+        assertThat(buckets.tryAcquire("k", T0)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(buckets.tryAcquire("k", T0)).isEqualTo(SECOND);
+        }
+        assertThat(buckets.tryAcquire("k", T0 + SECOND)).isZero();
+    }
+
+    @Test
+    void keysAreIndependent() {
+        LoginRateLimiter.KeyedBuckets buckets = buckets(1, 60, 100);
+
+        assertThat(buckets.tryAcquire("a", T0)).isZero();
+        assertThat(buckets.tryAcquire("a", T0)).isPositive();
+        assertThat(buckets.tryAcquire("b", T0)).isZero();
+    }
+
+    @Test
+    void evictIdleRemovesOnlyRefilledBuckets() {
+        LoginRateLimiter.KeyedBuckets buckets = buckets(5, 60, 100);
+        buckets.tryAcquire("idle", T0);
+        buckets.tryAcquire("busy", T0);
+        buckets.tryAcquire("busy", T0);
+        buckets.tryAcquire("busy", T0);
+
+        // "idle" đầy lại sau 1 giây, "busy" sau 3 giây
+        assertThat(buckets.evictIdle(T0 + SECOND / 2)).isZero();
+        assertThat(buckets.evictIdle(T0 + SECOND)).isEqualTo(1);
+        assertThat(buckets.size()).isEqualTo(1);
+        assertThat(buckets.evictIdle(T0 + 3 * SECOND)).isEqualTo(1);
+        assertThat(buckets.size()).isZero();
+    }
+
+    @Test
+    void fullMapStillLimitsNewKeysAndKeepsThrottledBucket() {
+        LoginRateLimiter.KeyedBuckets buckets = buckets(2, 60, 10);
+
+        // Tài khoản bị dò mật khẩu: đã hết lượt
+        buckets.tryAcquire("victim", T0);
+        buckets.tryAcquire("victim", T0);
+        assertThat(buckets.tryAcquire("victim", T0)).isPositive();
+
+        // Rải username ngẫu nhiên để lấp đầy map
+        for (int i = 0; i < 100; i++) {
+            assertThat(buckets.tryAcquire("spray" + i, T0)).isZero();
+            assertThat(buckets.size()).isLessThanOrEqualTo(10);
+        }
+
+        // Key mới vẫn bị giới hạn, bucket của victim vẫn còn
+        assertThat(buckets.tryAcquire("new", T0)).isZero();
+        assertThat(buckets.tryAcquire("new", T0)).isZero();
+        assertThat(buckets.tryAcquire("new", T0)).isPositive();
+        assertThat(buckets.tryAcquire("victim", T0)).isPositive();
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        // IP: burst 1, 60/phút; username: burst 1, 40/phút (1 lượt / 1,5 giây)
+        LoginRateLimiter limiter = new LoginRateLimiter(true, false, 1, 60, 1, 40, 100, new SimpleMeterRegistry());
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "sv01", T0)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", "sv02", T0)).isEqualTo(1);
+        assertThat(limiter.tryAcquire("10.0.0.2", "SV01 ", T0)).isEqualTo(2);
+        assertThat(limiter.tryAcquire("10.0.0.3", "sv01", T0 + SECOND + SECOND / 2)).isZero();
+    }
+
+    @Test
+    void checkLoginThrowsWithRetryAfter() {
+        LoginRateLimiter limiter = new LoginRateLimiter(true, false, 1, 60, 5, 5, 100, new SimpleMeterRegistry());
+        limiter.checkLogin("10.0.0.1", "sv01");
+
+        assertThatThrownBy(() -> limiter.checkLogin("10.0.0.1", "sv01"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .satisfies(e -> assertThat(((RateLimitExceededException) e).getRetryAfterSeconds()).isBetween(1L, 2L));
+    }
+
+    @Test
+    void disabledLimiterAlwaysAllows() {
+        LoginRateLimiter limiter = new LoginRateLimiter(false, false, 1, 1, 1, 1, 100, new SimpleMeterRegistry());
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", "sv01", T0)).isZero();
+        }
+    }
+
+    private static LoginRateLimiter.KeyedBuckets buckets(int burst, int refillPerMinute, int maxBuckets) {
+        return new LoginRateLimiter.KeyedBuckets("test", burst, refillPerMinute, maxBuckets, new SimpleMeterRegistry());
+    }
+}
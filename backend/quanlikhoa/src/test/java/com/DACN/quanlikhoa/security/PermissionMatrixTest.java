@@ -0,0 +1,115 @@
+package com.DACN.quanlikhoa.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test PermissionMatrix: kiểm tra quyền theo role và load lại khi role_permissions thay đổi
+ *
+ * File: PermissionMatrixTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/security/PermissionMatrixTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties (chỉ ADMIN có role_permissions
+ * cho users). Dùng 1 PermissionMatrix riêng, không đụng tới bean "permissions" của context,
+ * mỗi test rollback.
+ */
+@SpringBootTest
+@Transactional
+class PermissionMatrixTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private PermissionMatrix matrix;
+
+    @BeforeEach
+    void setUp() {
+        matrix = new PermissionMatrix();
+        ReflectionTestUtils.setField(matrix, "jdbcTemplate", jdbcTemplate);
+        matrix.init();
+    }
+
+    @Test
+    void roleHasFollowsRolePermissions() {
+        assertThat(matrix.getPermissionCodes()).contains("VIEW_USERS", "EDIT_USER");
+        assertThat(matrix.roleHas("ADMIN", "VIEW_USERS")).isTrue();
+        assertThat(matrix.roleHas("ADMIN", "EDIT_USER")).isTrue();
+        assertThat(matrix.roleHas("SINH_VIEN", "VIEW_USERS")).isFalse();
+        assertThat(matrix.roleHas("GIANG_VIEN", "EDIT_USER")).isFalse();
+        assertThat(matrix.roleHas("KHONG_TON_TAI", "VIEW_USERS")).isFalse();
+        assertThat(matrix.roleHas("ADMIN", "KHONG_TON_TAI")).isFalse();
+    }
+
+    @Test
+    void hasChecksAuthenticationRole() {
+        assertThat(matrix.has(null, "VIEW_USERS")).isFalse();
+        assertThat(matrix.has(authority("ROLE_ADMIN"), "VIEW_USERS")).isTrue();
+        assertThat(matrix.has(authority("ROLE_SINH_VIEN"), "VIEW_USERS")).isFalse();
+        // Authority không có tiền tố ROLE_ không được tính là role
+        assertThat(matrix.has(authority("ADMIN"), "VIEW_USERS")).isFalse();
+
+        // Chưa xác thực
+        TestingAuthenticationToken unauthenticated = new TestingAuthenticationToken("admin", null, "ROLE_ADMIN");
+        unauthenticated.setAuthenticated(false);
+        assertThat(matrix.has(unauthenticated, "VIEW_USERS")).isFalse();
+
+        // UserPrincipal (dựng từ JWT claims): dùng roleName của principal
+        assertThat(matrix.has(principal("ADMIN"), "VIEW_USERS")).isTrue();
+        assertThat(matrix.has(principal("GIANG_VIEN"), "VIEW_USERS")).isFalse();
+    }
+
+    @Test
+    void reloadIfChangedPicksUpRolePermissionChanges() {
+        assertThat(matrix.roleHas("GIAO_VU", "VIEW_USERS")).isFalse();
+
+        jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) "
+                + "SELECT r.role_id, p.permission_id FROM roles r, permissions p "
+                + "WHERE r.role_name = 'GIAO_VU' AND p.permission_code = 'VIEW_USERS'");
+        // Chưa load lại: snapshot cũ
+        assertThat(matrix.roleHas("GIAO_VU", "VIEW_USERS")).isFalse();
+
+        matrix.reloadIfChanged();
+        assertThat(matrix.roleHas("GIAO_VU", "VIEW_USERS")).isTrue();
+        assertThat(matrix.roleHas("ADMIN", "VIEW_USERS")).isTrue();
+
+        jdbcTemplate.update("DELETE FROM role_permissions WHERE role_id = "
+                + "(SELECT role_id FROM roles WHERE role_name = 'ADMIN') AND permission_id = "
+                + "(SELECT permission_id FROM permissions WHERE permission_code = 'EDIT_USER')");
+        matrix.reloadIfChanged();
+        assertThat(matrix.roleHas("ADMIN", "EDIT_USER")).isFalse();
+        assertThat(matrix.roleHas("GIAO_VU", "VIEW_USERS")).isTrue();
+    }
+
+    @Test
+    void reloadIfChangedKeepsSnapshotWhenNothingChanged() {
+        AtomicReference<?> snapshot = (AtomicReference<?>) ReflectionTestUtils.getField(matrix, "snapshot");
+        Object before = snapshot.get();
+
+        matrix.reloadIfChanged();
+
+        assertThat(snapshot.get()).isSameAs(before);
+    }
+
+    private static UsernamePasswordAuthenticationToken authority(String authority) {
+        return new UsernamePasswordAuthenticationToken("user", null, List.of(new SimpleGrantedAuthority(authority)));
+    }
+
+    private static UsernamePasswordAuthenticationToken principal(String roleName) {
+        UserPrincipal principal = new UserPrincipal(1, "user", "", null, null, null, roleName, null, true,
+                List.of(new SimpleGrantedAuthority("ROLE_" + roleName)));
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
@@ -0,0 +1,193 @@
+package com.DACN.quanlikhoa.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test TokenRevocationStore: Bloom filter, thu hồi theo jti và theo user (độ chính xác ms)
+ *
+ * File: TokenRevocationStoreTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/security/TokenRevocationStoreTest.java
+ */
+class TokenRevocationStoreTest {
+
+    private static final long LIFETIME_MS = 15 * 60 * 1000;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TokenRevocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new TokenRevocationStore(1000, 0.01, LIFETIME_MS, meterRegistry);
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        TokenRevocationStore.BloomFilter filter = new TokenRevocationStore.BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("jti-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("jti-" + i)).as("jti-%d", i).isTrue();
+        }
+    }
+
+    @Test
+    void bloomFilterFalsePositiveRateIsNearConfiguredRate() {
+        TokenRevocationStore.BloomFilter filter = new TokenRevocationStore.BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("active-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Cấu hình 1%, chấp nhận sai số của hash
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+
+    @Test
+    void emptyBloomFilterRejectsEverything() {
+        TokenRevocationStore.BloomFilter filter = new TokenRevocationStore.BloomFilter(1000, 0.01);
+        assertThat(filter.mightContain("jti")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    @Test
+    void revokedTokenIsRejectedOthersAreNot() {
+        Claims revoked = token("sv01", "jti-1", 0);
+        store.revoke(revoked);
+
+        assertThat(store.isRevoked(revoked)).isTrue();
+        assertThat(store.isRevoked(token("sv01", "jti-2", 0))).isFalse();
+        assertThat(store.isRevoked(token("sv02", "jti-3", 0))).isFalse();
+        assertThat(meterRegistry.get("token.revocation.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("token.revocation.tokens").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenWithoutJtiOrExpirationIsIgnored() {
+        Claims noJti = token("sv01", null, 0);
+        Claims noExp = Jwts.claims().setSubject("sv01").setId("jti-1");
+        store.revoke(noJti);
+        store.revoke(noExp);
+
+        assertThat(store.isRevoked(noJti)).isFalse();
+        assertThat(store.isRevoked(noExp)).isFalse();
+        assertThat(meterRegistry.get("token.revocation.tokens").gauge().value()).isZero();
+    }
+
+    @Test
+    void revokeAllForUserRejectsTokensIssuedUpToNow() {
+        Claims before = token("sv01", "jti-1", -60_000);
+        Claims justBefore = token("sv01", "jti-2", 0);
+        Claims otherUser = token("sv02", "jti-3", -60_000);
+
+        store.revokeAllForUser("sv01");
+
+        assertThat(store.isRevoked(before)).isTrue();
+        assertThat(store.isRevoked(justBefore)).isTrue();
+        assertThat(store.isRevoked(otherUser)).isFalse();
+
+        // Token cấp sau thời điểm thu hồi (đăng nhập lại sau khi mở khóa) vẫn hợp lệ
+        assertThat(store.isRevoked(token("sv01", "jti-4", 2000))).isFalse();
+    }
+
+    @Test
+    void tokenIssuedInSameSecondAfterRevocationIsAccepted() throws InterruptedException {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", "TestSecretKeyForTokenRevocationStoreTest0123456789");
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", LIFETIME_MS);
+        provider.init();
+
+        // Đầu 1 giây để cả 3 bước dưới đây nằm trong cùng giây
+        while (System.currentTimeMillis() % 1000 > 800) {
+            Thread.sleep(5);
+        }
+        long second = System.currentTimeMillis() / 1000;
+
+        Claims beforeRevoke = provider.validateAndGetClaims(provider.generateTokenFromUsername("sv01"));
+        Thread.sleep(2);
+        store.revokeAllForUser("sv01");
+        Thread.sleep(2);
+        // Admin đổi mật khẩu / mở khóa, user đăng nhập lại ngay
+        Claims afterRevoke = provider.validateAndGetClaims(provider.generateTokenFromUsername("sv01"));
+
+        assertThat(beforeRevoke.getIssuedAt().getTime() / 1000).isEqualTo(second);
+        assertThat(afterRevoke.getIssuedAt().getTime() / 1000).isEqualTo(second);
+        assertThat(store.isRevoked(beforeRevoke)).isTrue();
+        assertThat(store.isRevoked(afterRevoke)).isFalse();
+    }
+
+    @Test
+    void tokenWithoutMillisecondClaimFallsBackToSeconds() {
+        long now = System.currentTimeMillis();
+        Claims legacySameSecond = Jwts.claims()
+                .setSubject("sv01")
+                .setId("jti-1")
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + LIFETIME_MS));
+
+        store.revokeAllForUser("sv01");
+
+        // Chỉ có "iat" theo giây: không biết cấp trước hay sau, coi như bị thu hồi
+        assertThat(store.isRevoked(legacySameSecond)).isTrue();
+        assertThat(store.isRevoked(token("sv01", "jti-2", 2000))).isFalse();
+    }
+
+    @Test
+    void revokeAllForUsersAppliesToEveryUsername() {
+        store.revokeAllForUsers(List.of("sv01", "sv02"));
+
+        assertThat(store.isRevoked(token("sv01", "jti-1", -1000))).isTrue();
+        assertThat(store.isRevoked(token("sv02", "jti-2", -1000))).isTrue();
+        assertThat(store.isRevoked(token("sv03", "jti-3", -1000))).isFalse();
+        assertThat(meterRegistry.get("token.revocation.users").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void pruneDropsExpiredEntriesAndKeepsLiveOnes() {
+        Claims expired = token("sv01", "jti-expired", -LIFETIME_MS - 60_000);
+        Claims live = token("sv01", "jti-live", 0);
+        store.revoke(expired);
+        store.revoke(live);
+        store.revokeAllForUser("sv02");
+
+        store.prune();
+
+        assertThat(meterRegistry.get("token.revocation.tokens").gauge().value()).isEqualTo(1);
+        // Bloom filter dựng lại vẫn chứa jti còn hạn
+        assertThat(store.isRevoked(live)).isTrue();
+        assertThat(store.isRevoked(expired)).isFalse();
+        // Thu hồi theo user còn trong thời hạn access token: giữ lại
+        assertThat(store.isRevoked(token("sv02", "jti-x", -1000))).isTrue();
+    }
+
+    /**
+     * Claims của access token cấp tại (now + issuedOffsetMs), hết hạn sau LIFETIME_MS
+     */
+    private static Claims token(String username, String jti, long issuedOffsetMs) {
+        long issuedAt = System.currentTimeMillis() + issuedOffsetMs;
+        Claims claims = Jwts.claims()
+                .setSubject(username)
+                .setIssuedAt(new Date(issuedAt))
+                .setExpiration(new Date(issuedAt + LIFETIME_MS));
+        claims.put(JwtTokenProvider.CLAIM_ISSUED_AT_MS, issuedAt);
+        return jti != null ? claims.setId(jti) : claims;
+    }
+}
@@ -0,0 +1,244 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserBulkActionRequest;
+import com.DACN.quanlikhoa.dto.UserBulkActionRequest.Action;
+import com.DACN.quanlikhoa.dto.UserBulkActionResult;
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import com.DACN.quanlikhoa.dto.UserSuggestion;
+import com.DACN.quanlikhoa.service.UserStatisticsCounters.Cell;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test thao tác hàng loạt (AdminService.bulkUpdateUsers: CTE SELECT ... FOR UPDATE + UPDATE ... RETURNING)
+ *
+ * File: AdminServiceBulkUpdateTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/AdminServiceBulkUpdateTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties, mỗi test rollback.
+ * Riêng test kiểm tra phần sau commit (thống kê, suggest index) commit thật trên 1 user tạm,
+ * user này bị xóa khi test kết thúc.
+ */
+@SpringBootTest
+@Transactional
+class AdminServiceBulkUpdateTest {
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private UserStatisticsCounters statisticsCounters;
+
+    @Autowired
+    private UserSuggestIndex suggestIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int giangVien;
+
+    private int giaoVu;
+
+    private int sinhVien;
+
+    @BeforeEach
+    void setUp() {
+        giangVien = roleRegistry.findByName("GIANG_VIEN").getRoleId();
+        giaoVu = roleRegistry.findByName("GIAO_VU").getRoleId();
+        sinhVien = roleRegistry.findByName("SINH_VIEN").getRoleId();
+    }
+
+    @Test
+    void activateUpdatesInactiveAndNullRowsOnly() {
+        List<Integer> ids = usersOfRole(sinhVien, 2);
+        Integer active = usersOfRole(giangVien, 1).get(0);
+        setActive(ids.get(0), null);
+        setActive(ids.get(1), false);
+        setActive(active, true);
+
+        UserBulkActionResult result = adminService.bulkUpdateUsers(byIds(Action.ACTIVATE, ids.get(0), ids.get(1), active));
+
+        assertThat(result.getMatchedCount()).isEqualTo(3);
+        assertThat(result.getUpdatedCount()).isEqualTo(2);
+        assertThat(result.getUnchangedCount()).isEqualTo(1);
+        assertThat(result.getUpdatedUserIds()).containsExactlyElementsOf(ids.stream().sorted().toList());
+        assertThat(isActive(ids.get(0))).isTrue();
+        assertThat(isActive(ids.get(1))).isTrue();
+    }
+
+    @Test
+    void deactivateRevokesRefreshTokensOfChangedUsersOnly() {
+        List<Integer> ids = usersOfRole(sinhVien, 2);
+        Integer other = usersOfRole(giangVien, 1).get(0);
+        setActive(ids.get(0), true);
+        setActive(ids.get(1), false);
+        refreshTokenService.issue(ids.get(0));
+        refreshTokenService.issue(ids.get(1));
+        refreshTokenService.issue(other);
+
+        UserBulkActionResult result = adminService.bulkUpdateUsers(byIds(Action.DEACTIVATE, ids.get(0), ids.get(1)));
+
+        assertThat(result.getUpdatedUserIds()).containsExactly(ids.get(0));
+        assertThat(isActive(ids.get(0))).isFalse();
+        assertThat(unrevokedTokens(ids.get(0))).isZero();
+        // Đã khóa sẵn (không bị sửa) và user ngoài danh sách: token không đổi
+        assertThat(unrevokedTokens(ids.get(1))).isPositive();
+        assertThat(unrevokedTokens(other)).isPositive();
+    }
+
+    @Test
+    void changeRoleUpdatesOnlyUsersWithDifferentRole() {
+        List<Integer> lecturers = usersOfRole(giangVien, 2);
+        Integer staff = usersOfRole(giaoVu, 1).get(0);
+
+        UserBulkActionRequest request = byIds(Action.CHANGE_ROLE, lecturers.get(0), lecturers.get(1), staff);
+        request.setRoleId(giangVien);
+        UserBulkActionResult result = adminService.bulkUpdateUsers(request);
+
+        assertThat(result.getUpdatedUserIds()).containsExactly(staff);
+        assertThat(result.getUnchangedCount()).isEqualTo(2);
+        assertThat(roleOf(staff)).isEqualTo(giangVien);
+    }
+
+    @Test
+    void filterSelectsMatchingUsers() {
+        List<Integer> students = jdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE role_id = ? ORDER BY user_id", Integer.class, sinhVien);
+        jdbcTemplate.update("UPDATE users SET is_active = TRUE WHERE role_id = ?", sinhVien);
+
+        UserBulkActionRequest request = UserBulkActionRequest.builder()
+                .action(Action.DEACTIVATE)
+                .filter(UserSearchCriteria.builder().roleId(sinhVien).build())
+                .build();
+        UserBulkActionResult result = adminService.bulkUpdateUsers(request);
+
+        assertThat(result.getUpdatedUserIds()).containsExactlyElementsOf(students);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE role_id = ? AND is_active", Long.class, sinhVien)).isZero();
+    }
+
+    @Test
+    void invalidRequestsAreRejected() {
+        assertRejected(UserBulkActionRequest.builder().userIds(List.of(1)).build(),
+                "Action không được để trống");
+        assertRejected(UserBulkActionRequest.builder().action(Action.ACTIVATE).build(),
+                "Phải chọn users bằng userIds hoặc filter (không dùng cả 2)");
+        assertRejected(UserBulkActionRequest.builder().action(Action.ACTIVATE)
+                        .userIds(List.of(1)).filter(UserSearchCriteria.builder().roleId(sinhVien).build()).build(),
+                "Phải chọn users bằng userIds hoặc filter (không dùng cả 2)");
+        assertRejected(UserBulkActionRequest.builder().action(Action.DEACTIVATE)
+                        .filter(new UserSearchCriteria()).build(),
+                "Filter phải có ít nhất 1 điều kiện");
+        assertRejected(byIds(Action.CHANGE_ROLE, 1), "roleId không được để trống khi đổi role");
+        UserBulkActionRequest unknownRole = byIds(Action.CHANGE_ROLE, 1);
+        unknownRole.setRoleId(-1);
+        assertRejected(unknownRole, "Role không tồn tại với ID: -1");
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejected() {
+        AdminService target = AopTestUtils.getTargetObject(adminService);
+        Object limit = ReflectionTestUtils.getField(target, "bulkMaxUsers");
+        ReflectionTestUtils.setField(target, "bulkMaxUsers", 2);
+        try {
+            assertRejected(byIds(Action.ACTIVATE, 1, 2, 3), "Chỉ được thao tác tối đa 2 users mỗi lần");
+            // Trùng ID chỉ tính 1 lần
+            assertThat(adminService.bulkUpdateUsers(byIds(Action.ACTIVATE, 1, 1, 2)).getMatchedCount()).isEqualTo(2);
+        } finally {
+            ReflectionTestUtils.setField(target, "bulkMaxUsers", limit);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void committedUpdateMovesStatisticsAndSuggestions() {
+        String username = "bulk_test_" + System.nanoTime();
+        Integer userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, password_hash, email, full_name, role_id, is_active) "
+                        + "VALUES (?, 'x', ?, 'Bulk Test', ?, TRUE) RETURNING user_id",
+                Integer.class, username, username + "@khoa.edu.vn", sinhVien);
+        try {
+            statisticsCounters.reconcile();
+            Map<Cell, Long> before = statisticsCounters.snapshot();
+
+            UserBulkActionRequest request = byIds(Action.CHANGE_ROLE, userId);
+            request.setRoleId(giaoVu);
+            adminService.bulkUpdateUsers(request);
+            adminService.bulkUpdateUsers(byIds(Action.DEACTIVATE, userId));
+
+            Map<Cell, Long> after = statisticsCounters.snapshot();
+            assertThat(count(after, new Cell(sinhVien, true))).isEqualTo(count(before, new Cell(sinhVien, true)) - 1);
+            assertThat(count(after, new Cell(giaoVu, false))).isEqualTo(count(before, new Cell(giaoVu, false)) + 1);
+            assertThat(count(after, new Cell(giaoVu, true))).isEqualTo(count(before, new Cell(giaoVu, true)));
+
+            assertThat(suggestIndex.suggest(username, 5, false)).isEmpty();
+            assertThat(suggestIndex.suggest(username, 5, true))
+                    .extracting(UserSuggestion::getRoleName, UserSuggestion::getIsActive)
+                    .containsExactly(tuple("GIAO_VU", false));
+        } finally {
+            jdbcTemplate.update("DELETE FROM refresh_tokens WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+            statisticsCounters.reconcile();
+            suggestIndex.rebuild();
+        }
+    }
+
+    private void assertRejected(UserBulkActionRequest request, String message) {
+        assertThatThrownBy(() -> adminService.bulkUpdateUsers(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(message);
+    }
+
+    private static UserBulkActionRequest byIds(Action action, Integer... ids) {
+        return UserBulkActionRequest.builder().action(action).userIds(Arrays.asList(ids)).build();
+    }
+
+    private List<Integer> usersOfRole(int roleId, int count) {
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE role_id = ? ORDER BY user_id LIMIT ?", Integer.class, roleId, count);
+        assertThat(ids).hasSize(count);
+        return ids;
+    }
+
+    private void setActive(Integer userId, Boolean active) {
+        jdbcTemplate.update("UPDATE users SET is_active = ? WHERE user_id = ?", active, userId);
+    }
+
+    private Boolean isActive(Integer userId) {
+        return jdbcTemplate.queryForObject("SELECT is_active FROM users WHERE user_id = ?", Boolean.class, userId);
+    }
+
+    private Integer roleOf(Integer userId) {
+        return jdbcTemplate.queryForObject("SELECT role_id FROM users WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private long unrevokedTokens(Integer userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM refresh_tokens WHERE user_id = ? AND revoked_at IS NULL", Long.class, userId);
+    }
+
+    private static long count(Map<Cell, Long> counts, Cell cell) {
+        return counts.getOrDefault(cell, 0L);
+    }
+}
@@ -0,0 +1,136 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.PageResponse;
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.DACN.quanlikhoa.dto.UserSearchCriteria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test keyset pagination (AdminService.getUsersByCursor + UserSpecifications.after)
+ *
+ * File: AdminServiceCursorTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/AdminServiceCursorTest.java
+ *
+ * Đi hết các trang theo nextCursor rồi quay lại theo previousCursor, so với thứ tự
+ * ORDER BY (field, user_id) của chính PostgreSQL. Một số users được gán created_at / is_active /
+ * last_login NULL để kiểm tra seek qua giá trị null; mọi thay đổi rollback sau mỗi test.
+ */
+@SpringBootTest
+@Transactional
+class AdminServiceCursorTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    /**
+     * Sort field → cột trong bảng users
+     */
+    private static final Map<String, String> COLUMNS = Map.of(
+            "userId", "user_id",
+            "username", "username",
+            "email", "email",
+            "fullName", "full_name",
+            "createdAt", "created_at",
+            "updatedAt", "updated_at",
+            "lastLogin", "last_login",
+            "isActive", "is_active");
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void makeSomeSortValuesNull() {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Integer.class);
+        assertThat(ids).hasSizeGreaterThan(2 * PAGE_SIZE);
+
+        // Trùng giá trị và NULL ở cả đầu lẫn giữa danh sách
+        jdbcTemplate.update("UPDATE users SET created_at = NULL, is_active = NULL WHERE user_id IN (?, ?)",
+                ids.get(0), ids.get(ids.size() / 2));
+        jdbcTemplate.update("UPDATE users SET created_at = TIMESTAMP '2025-01-01 08:00' WHERE user_id IN (?, ?)",
+                ids.get(1), ids.get(2));
+        jdbcTemplate.update("UPDATE users SET last_login = NULL WHERE user_id = ?", ids.get(ids.size() - 1));
+    }
+
+    @Test
+    void cursorPagesCoverEveryUserInDatabaseOrder() {
+        for (String sortBy : COLUMNS.keySet()) {
+            for (String direction : List.of("ASC", "DESC")) {
+                List<Integer> expected = expectedOrder(sortBy, direction);
+
+                List<List<Integer>> forward = walkForward(sortBy, direction);
+                assertThat(forward.stream().flatMap(List::stream).toList())
+                        .as("%s %s", sortBy, direction)
+                        .isEqualTo(expected);
+                assertThat(forward).allSatisfy(page -> assertThat(page).hasSizeLessThanOrEqualTo(PAGE_SIZE));
+            }
+        }
+    }
+
+    @Test
+    void previousCursorReturnsTheSamePagesBackwards() {
+        for (String sortBy : List.of("createdAt", "isActive", "lastLogin", "username")) {
+            for (String direction : List.of("ASC", "DESC")) {
+                List<List<Integer>> forward = walkForward(sortBy, direction);
+
+                PageResponse<UserDTO> page = adminService.getUsersByCursor(
+                        PAGE_SIZE, new UserSearchCriteria(), sortBy, direction, null);
+                while (page.getNextCursor() != null) {
+                    page = adminService.getUsersByCursor(PAGE_SIZE, new UserSearchCriteria(), sortBy, direction,
+                            page.getNextCursor());
+                }
+                assertThat(page.getHasNext()).isFalse();
+
+                List<List<Integer>> backward = new ArrayList<>();
+                backward.add(ids(page));
+                while (page.getPreviousCursor() != null) {
+                    page = adminService.getUsersByCursor(PAGE_SIZE, new UserSearchCriteria(), sortBy, direction,
+                            page.getPreviousCursor());
+                    backward.add(ids(page));
+                }
+                assertThat(page.getHasPrevious()).isFalse();
+                Collections.reverse(backward);
+
+                assertThat(backward).as("%s %s", sortBy, direction).isEqualTo(forward);
+            }
+        }
+    }
+
+    private List<List<Integer>> walkForward(String sortBy, String direction) {
+        List<List<Integer>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResponse<UserDTO> page = adminService.getUsersByCursor(
+                    PAGE_SIZE, new UserSearchCriteria(), sortBy, direction, cursor);
+            pages.add(ids(page));
+            assertThat(page.getHasPrevious()).isEqualTo(cursor != null);
+            cursor = page.getNextCursor();
+            assertThat(pages).hasSizeLessThan(100);
+        } while (cursor != null);
+        return pages;
+    }
+
+    private List<Integer> expectedOrder(String sortBy, String direction) {
+        String column = COLUMNS.get(sortBy);
+        return jdbcTemplate.queryForList(
+                "SELECT user_id FROM users ORDER BY " + column + " " + direction + ", user_id " + direction,
+                Integer.class);
+    }
+
+    private static List<Integer> ids(PageResponse<UserDTO> page) {
+        return page.getContent().stream().map(UserDTO::getUserId).toList();
+    }
+}
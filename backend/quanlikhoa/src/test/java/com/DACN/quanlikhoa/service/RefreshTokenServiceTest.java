@@ -0,0 +1,130 @@
+package com.DACN.quanlikhoa.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test RefreshTokenService: rotate 1 lần dùng, phát hiện reuse, thu hồi
+ *
+ * File: RefreshTokenServiceTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/RefreshTokenServiceTest.java
+ *
+ * Chạy trên database cấu hình trong application.properties (bảng refresh_tokens từ schema.sql).
+ * Mỗi lời gọi service là 1 transaction riêng như khi chạy thật; token tạo trong test bị xóa sau mỗi test.
+ */
+@SpringBootTest
+class RefreshTokenServiceTest {
+
+    private static final int USER_ID = 1;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long maxTokenIdBefore;
+
+    @BeforeEach
+    void rememberExistingTokens() {
+        maxTokenIdBefore = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(token_id), 0) FROM refresh_tokens", Long.class);
+    }
+
+    @AfterEach
+    void deleteCreatedTokens() {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE token_id > ?", maxTokenIdBefore);
+    }
+
+    @Test
+    void rotateIssuesNewTokenInSameFamily() {
+        String first = refreshTokenService.issue(USER_ID);
+
+        RefreshTokenService.RotationResult result = refreshTokenService.rotate(first);
+
+        assertThat(result.getUserId()).isEqualTo(USER_ID);
+        assertThat(result.getRefreshToken()).isNotEqualTo(first);
+        assertThat(createdTokens("SELECT DISTINCT family_id")).hasSize(1);
+        assertThat(createdTokens("SELECT token_hash")).hasSize(2)
+                .doesNotContain(first, result.getRefreshToken());
+
+        // Token mới dùng tiếp được
+        assertThat(refreshTokenService.rotate(result.getRefreshToken()).getUserId()).isEqualTo(USER_ID);
+    }
+
+    @Test
+    void reusingRotatedTokenRevokesWholeFamily() {
+        String first = refreshTokenService.issue(USER_ID);
+        String second = refreshTokenService.rotate(first).getRefreshToken();
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(first))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Refresh token đã được sử dụng");
+
+        // Thu hồi không bị rollback theo exception: token hợp lệ cuối cùng của family cũng hết dùng được
+        assertThat(createdTokens("SELECT revoked_at IS NOT NULL")).containsOnly(true);
+        assertThatThrownBy(() -> refreshTokenService.rotate(second))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Refresh token đã được sử dụng");
+    }
+
+    @Test
+    void reuseDoesNotAffectOtherFamilies() {
+        String stolen = refreshTokenService.issue(USER_ID);
+        String otherDevice = refreshTokenService.issue(USER_ID);
+        refreshTokenService.rotate(stolen);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(stolen)).isInstanceOf(BadCredentialsException.class);
+
+        assertThat(refreshTokenService.rotate(otherDevice).getUserId()).isEqualTo(USER_ID);
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("khong-ton-tai"))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Refresh token không hợp lệ");
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = refreshTokenService.issue(USER_ID);
+        jdbcTemplate.update("UPDATE refresh_tokens SET expires_at = now() - interval '1 minute' WHERE token_id > ?",
+                maxTokenIdBefore);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Refresh token đã hết hạn");
+    }
+
+    @Test
+    void logoutAndBulkRevocationDisableTokens() {
+        String loggedOut = refreshTokenService.issue(USER_ID);
+        String locked = refreshTokenService.issue(USER_ID);
+
+        refreshTokenService.revoke(loggedOut);
+        assertThatThrownBy(() -> refreshTokenService.rotate(loggedOut)).isInstanceOf(BadCredentialsException.class);
+        assertThat(refreshTokenService.rotate(locked).getRefreshToken()).isNotBlank();
+
+        refreshTokenService.revokeAllForUsers(List.of(USER_ID));
+        assertThat(createdTokens("SELECT revoked_at IS NOT NULL")).containsOnly(true);
+    }
+
+    /**
+     * Giá trị của cột (select) trên các token tạo trong test hiện tại
+     */
+    private List<Object> createdTokens(String select) {
+        return jdbcTemplate.queryForList(select + " FROM refresh_tokens WHERE token_id > ?", Object.class,
+                maxTokenIdBefore);
+    }
+}
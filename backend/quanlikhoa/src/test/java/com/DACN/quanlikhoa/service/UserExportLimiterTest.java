@@ -0,0 +1,77 @@
+package com.DACN.quanlikhoa.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test UserExportLimiter: số permit, trả permit đúng 1 lần
+ *
+ * File: UserExportLimiterTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/UserExportLimiterTest.java
+ */
+class UserExportLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserExportLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new UserExportLimiter(2, 10, meterRegistry);
+    }
+
+    @Test
+    void rejectsBeyondMaxConcurrent() {
+        UserExportLimiter.Permit first = limiter.tryAcquire();
+        UserExportLimiter.Permit second = limiter.tryAcquire();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(meterRegistry.get("users.export.active").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("users.export.rejected").counter().count()).isEqualTo(1);
+
+        first.release();
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void releaseIsIdempotent() {
+        UserExportLimiter.Permit permit = limiter.tryAcquire();
+        assertThat(permit.start()).isTrue();
+
+        permit.release();
+        permit.release();
+        permit.releaseIfNotStarted();
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void startedStreamKeepsPermitUntilItFinishes() {
+        UserExportLimiter.Permit permit = limiter.tryAcquire();
+        assertThat(permit.start()).isTrue();
+
+        // Async request kết thúc (timeout) trong lúc stream vẫn đang ghi: giữ permit
+        permit.releaseIfNotStarted();
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+
+        permit.release();
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void streamDoesNotStartAfterPermitWasReturned() {
+        UserExportLimiter.Permit permit = limiter.tryAcquire();
+
+        // Async request kết thúc trước khi stream chạy
+        permit.releaseIfNotStarted();
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2);
+        assertThat(permit.start()).isFalse();
+    }
+}
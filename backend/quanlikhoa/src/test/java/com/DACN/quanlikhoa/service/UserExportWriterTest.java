@@ -0,0 +1,167 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test UserExportWriter: quoting CSV, chống CSV injection, NDJSON
+ *
+ * File: UserExportWriterTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/UserExportWriterTest.java
+ */
+class UserExportWriterTest {
+
+    private static final String HEADER = "userId,username,email,phone,fullName,avatarUrl,"
+            + "roleId,roleName,isActive,lastLogin,createdAt,updatedAt";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final UserExportWriter writer = new UserExportWriter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void csvStartsWithBomAndHeader() throws IOException {
+        byte[] bytes = export(Stream.empty(), UserExportWriter.Format.CSV);
+
+        assertThat(bytes).startsWith(0xEF, 0xBB, 0xBF);
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("\uFEFF" + HEADER + "\r\n");
+    }
+
+    @Test
+    void csvWritesPlainRowWithoutQuotes() throws IOException {
+        UserDTO user = user("gv.nguyenvanc", "Nguyễn Văn C");
+        user.setLastLogin(null);
+        user.setCreatedAt(LocalDateTime.of(2025, 1, 1, 8, 0));
+
+        assertThat(csvRow(user)).isEqualTo(
+                "4,gv.nguyenvanc,gv.nguyenvanc@khoa.edu.vn,0901234567,Nguyễn Văn C,,5,GIANG_VIEN,true,,"
+                        + "2025-01-01T08:00:00,2025-01-02T09:30:15.5");
+    }
+
+    @Test
+    void csvQuotesSeparatorsQuotesAndLineBreaks() throws IOException {
+        assertThat(fullNameCell("Trần, Thị D")).isEqualTo("\"Trần, Thị D\"");
+        assertThat(fullNameCell("Lê \"Tí\" Văn")).isEqualTo("\"Lê \"\"Tí\"\" Văn\"");
+        assertThat(fullNameCell("Dòng 1\nDòng 2")).isEqualTo("\"Dòng 1\nDòng 2\"");
+        assertThat(fullNameCell("Dòng 1\r\nDòng 2")).isEqualTo("\"Dòng 1\r\nDòng 2\"");
+    }
+
+    @Test
+    void csvEscapesFormulaPrefixes() throws IOException {
+        assertThat(fullNameCell("=HYPERLINK(\"http://x\",\"y\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\"");
+        assertThat(fullNameCell("+84901234567")).isEqualTo("\"'+84901234567\"");
+        assertThat(fullNameCell("-2+3")).isEqualTo("\"'-2+3\"");
+        assertThat(fullNameCell("@SUM(A1)")).isEqualTo("\"'@SUM(A1)\"");
+        assertThat(fullNameCell("\t=1+1")).isEqualTo("\"'\t=1+1\"");
+        assertThat(fullNameCell("\r=1+1")).isEqualTo("\"'\r=1+1\"");
+        // Ký tự công thức không ở đầu ô: giữ nguyên
+        assertThat(fullNameCell("Nguyễn =Văn")).isEqualTo("Nguyễn =Văn");
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws IOException {
+        List<UserDTO> users = IntStream.range(0, 2500)
+                .mapToObj(i -> user("sv" + i, "Sinh Viên " + i))
+                .toList();
+
+        String output = new String(export(users.stream(), UserExportWriter.Format.NDJSON), StandardCharsets.UTF_8);
+
+        String[] lines = output.split("\n", -1);
+        assertThat(lines).hasSize(2501);
+        assertThat(lines[2500]).isEmpty();
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("username").asText()).isEqualTo("sv0");
+        assertThat(first.get("fullName").asText()).isEqualTo("Sinh Viên 0");
+        assertThat(first.get("updatedAt").asText()).isEqualTo("2025-01-02T09:30:15.5");
+        assertThat(objectMapper.readTree(lines[2499]).get("username").asText()).isEqualTo("sv2499");
+        assertThat(lines[1]).startsWith("{");
+    }
+
+    @Test
+    void writeReturnsRowCountAndLeavesStreamOpen() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new AssertionError("Không được đóng OutputStream của response");
+            }
+        };
+
+        long count = writer.write(Stream.of(user("a", "A"), user("b", "B")), UserExportWriter.Format.CSV, out);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\r\n")).hasSize(3);
+    }
+
+    @Test
+    void parseAcceptsKnownFormatsOnly() {
+        assertThat(UserExportWriter.Format.parse("CSV")).isEqualTo(UserExportWriter.Format.CSV);
+        assertThat(UserExportWriter.Format.parse("ndjson")).isEqualTo(UserExportWriter.Format.NDJSON);
+        assertThatThrownBy(() -> UserExportWriter.Format.parse("xlsx"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String fullNameCell(String fullName) throws IOException {
+        String row = csvRow(user("u", fullName));
+        // Các cột trước fullName không chứa dấu phẩy: cắt theo vị trí cột
+        String afterPhone = row.substring(nthIndexOf(row, ',', 4) + 1);
+        return afterPhone.substring(0, afterPhone.lastIndexOf(",,5,GIANG_VIEN"));
+    }
+
+    private String csvRow(UserDTO user) throws IOException {
+        String output = new String(export(Stream.of(user), UserExportWriter.Format.CSV), StandardCharsets.UTF_8);
+        String body = output.substring(("\uFEFF" + HEADER + "\r\n").length());
+        assertThat(body).endsWith("\r\n");
+        return body.substring(0, body.length() - 2);
+    }
+
+    private byte[] export(Stream<UserDTO> rows, UserExportWriter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(rows, format, out);
+        return out.toByteArray();
+    }
+
+    private static int nthIndexOf(String text, char c, int n) {
+        int index = -1;
+        for (int i = 0; i < n; i++) {
+            index = text.indexOf(c, index + 1);
+        }
+        return index;
+    }
+
+    private static UserDTO user(String username, String fullName) {
+        return UserDTO.builder()
+                .userId(4)
+                .username(username)
+                .email(username + "@khoa.edu.vn")
+                .phone("0901234567")
+                .fullName(fullName)
+                .roleId(5)
+                .roleName("GIANG_VIEN")
+                .isActive(true)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 8, 0))
+                .updatedAt(LocalDateTime.of(2025, 1, 2, 9, 30, 15, 500_000_000))
+                .build();
+    }
+}
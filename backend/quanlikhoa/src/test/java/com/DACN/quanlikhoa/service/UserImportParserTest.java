@@ -0,0 +1,150 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserCreateRequest;
+import com.DACN.quanlikhoa.entity.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test UserImportParser: CSV (BOM, dấu ';', ô trong ngoặc kép có xuống dòng) và JSON
+ *
+ * File: UserImportParserTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/UserImportParserTest.java
+ */
+class UserImportParserTest {
+
+    private final UserImportParser parser = new UserImportParser();
+
+    @BeforeEach
+    void setUp() {
+        Role giangVien = new Role();
+        giangVien.setRoleId(5);
+        giangVien.setRoleName("GIANG_VIEN");
+        RoleRegistry roleRegistry = mock(RoleRegistry.class);
+        when(roleRegistry.findByName("GIANG_VIEN")).thenReturn(giangVien);
+
+        ReflectionTestUtils.setField(parser, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(parser, "roleRegistry", roleRegistry);
+    }
+
+    @Test
+    void csvWithBomAndCrlf() throws IOException {
+        List<UserImportParser.Row> rows = parseCsv("\uFEFFusername,password,email,fullName,roleId\r\n"
+                + "gv01,secret1,gv01@khoa.edu.vn,Nguyễn Văn A,5\r\n"
+                + "gv02,secret2,gv02@khoa.edu.vn,Trần Thị B,5\r\n");
+
+        assertThat(rows).extracting(UserImportParser.Row::rowNumber).containsExactly(2, 3);
+        assertThat(rows).extracting(UserImportParser.Row::error).containsOnlyNulls();
+        UserCreateRequest first = rows.get(0).request();
+        assertThat(first.getUsername()).isEqualTo("gv01");
+        assertThat(first.getPassword()).isEqualTo("secret1");
+        assertThat(first.getEmail()).isEqualTo("gv01@khoa.edu.vn");
+        assertThat(first.getFullName()).isEqualTo("Nguyễn Văn A");
+        assertThat(first.getRoleId()).isEqualTo(5);
+        assertThat(rows.get(1).request().getFullName()).isEqualTo("Trần Thị B");
+    }
+
+    @Test
+    void csvWithSemicolonDelimiter() throws IOException {
+        List<UserImportParser.Row> rows = parseCsv("username;password;email;fullName;roleName;phone\n"
+                + "gv01;secret1;gv01@khoa.edu.vn;\"Nguyễn, Văn; A\";giang_vien;0901 234 567\n");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.error()).isNull();
+            assertThat(row.request().getFullName()).isEqualTo("Nguyễn, Văn; A");
+            assertThat(row.request().getRoleId()).isEqualTo(5);
+            assertThat(row.request().getPhone()).isEqualTo("0901 234 567");
+        });
+    }
+
+    @Test
+    void csvQuotedCellsKeepNewlinesAndEscapedQuotes() throws IOException {
+        List<UserImportParser.Row> rows = parseCsv("username,password,email,fullName,roleId\n"
+                + "gv01,secret1,gv01@khoa.edu.vn,\"Dòng 1\nDòng 2\r\nDòng 3\",5\n"
+                + "gv02,\"se,\"\"cret\"\"\",gv02@khoa.edu.vn,\"\",5\n"
+                + "gv03,secret3,gv03@khoa.edu.vn,C,5");
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).request().getFullName()).isEqualTo("Dòng 1\nDòng 2\r\nDòng 3");
+        assertThat(rows.get(1).request().getPassword()).isEqualTo("se,\"cret\"");
+        assertThat(rows.get(1).request().getFullName()).isNull();
+        // Số dòng tính theo dòng vật lý của file (record 1 chiếm dòng 2-4)
+        assertThat(rows).extracting(UserImportParser.Row::rowNumber).containsExactly(2, 5, 6);
+        assertThat(rows.get(2).request().getUsername()).isEqualTo("gv03");
+    }
+
+    @Test
+    void csvSkipsBlankLinesAndUnknownColumns() throws IOException {
+        List<UserImportParser.Row> rows = parseCsv("Username,PASSWORD,ghi_chu,email,full_name,role\n"
+                + "\n"
+                + "gv01,secret1,bỏ qua,gv01@khoa.edu.vn,A,GIANG_VIEN\n"
+                + "\r\n");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.rowNumber()).isEqualTo(3);
+            assertThat(row.request().getFullName()).isEqualTo("A");
+            assertThat(row.request().getRoleId()).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void csvRowErrorsDoNotStopFile() throws IOException {
+        List<UserImportParser.Row> rows = parseCsv("username,password,email,fullName,roleId,roleName\n"
+                + "gv01,secret1,gv01@khoa.edu.vn,A,abc,\n"
+                + "gv02,secret2,gv02@khoa.edu.vn,B,,KHONG_CO\n"
+                + "gv03,secret3,gv03@khoa.edu.vn,C,,GIANG_VIEN\n");
+
+        assertThat(rows).extracting(UserImportParser.Row::error).containsExactly(
+                "roleId không hợp lệ: abc", "Role không tồn tại: KHONG_CO", null);
+    }
+
+    @Test
+    void csvMissingColumnsOrEmptyFileIsRejected() {
+        assertThatThrownBy(() -> parseCsv("username,email\ngv01,a@b.c\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File CSV thiếu cột: password, fullName, roleId / roleName");
+        assertThatThrownBy(() -> parseCsv(""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File CSV rỗng");
+        assertThatThrownBy(() -> parseCsv("\uFEFF"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File CSV rỗng");
+    }
+
+    @Test
+    void jsonArrayIsNumberedFromOne() throws IOException {
+        String json = "[{\"username\":\"gv01\",\"password\":\"secret1\",\"email\":\"gv01@khoa.edu.vn\","
+                + "\"fullName\":\"A\",\"roleId\":5}, null]";
+
+        List<UserImportParser.Row> rows = parser.parseJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(rows).extracting(UserImportParser.Row::rowNumber).containsExactly(1, 2);
+        assertThat(rows.get(0).request().getRoleId()).isEqualTo(5);
+        assertThat(rows.get(1).error()).isEqualTo("Dòng rỗng");
+    }
+
+    @Test
+    void invalidJsonIsRejected() {
+        assertThatThrownBy(() -> parser.parseJson(
+                new ByteArrayInputStream("{\"username\":\"gv01\"}".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("File JSON không hợp lệ");
+    }
+
+    private List<UserImportParser.Row> parseCsv(String content) throws IOException {
+        return parser.parseCsv(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.service.UserStatisticsCounters.Cell;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test UserStatisticsCounters: move / add sau commit và đếm lại từ database
+ *
+ * File: UserStatisticsCountersTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/UserStatisticsCountersTest.java
+ *
+ * JdbcTemplate giả trả về kết quả GROUP BY role_id, is_active cố định (rows).
+ */
+class UserStatisticsCountersTest {
+
+    private static final Cell ADMIN_ACTIVE = new Cell(1, true);
+
+    private static final Cell GV_ACTIVE = new Cell(5, true);
+
+    private static final Cell GV_INACTIVE = new Cell(5, false);
+
+    private static final Cell NO_ROLE_INACTIVE = new Cell(null, false);
+
+    private final UserStatisticsCounters counters = new UserStatisticsCounters();
+
+    /**
+     * Kết quả query đếm lại: {role_id, is_active, total}
+     */
+    private List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * Chạy trong lúc query đếm lại (mô phỏng thay đổi chen vào)
+     */
+    private Runnable duringQuery = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                duringQuery.run();
+                try {
+                    for (Object[] row : rows) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getObject("role_id", Integer.class)).thenReturn((Integer) row[0]);
+                        when(rs.getBoolean("is_active")).thenReturn((Boolean) row[1]);
+                        when(rs.getLong("total")).thenReturn((Long) row[2]);
+                        handler.processRow(rs);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        ReflectionTestUtils.setField(counters, "jdbcTemplate", jdbcTemplate);
+
+        rows.add(new Object[]{1, true, 1L});
+        rows.add(new Object[]{5, true, 10L});
+        rows.add(new Object[]{5, false, 2L});
+        rows.add(new Object[]{null, false, 3L});
+        counters.init();
+    }
+
+    @Test
+    void initLoadsGroupedCounts() {
+        assertThat(counters.snapshot()).isEqualTo(Map.of(
+                ADMIN_ACTIVE, 1L, GV_ACTIVE, 10L, GV_INACTIVE, 2L, NO_ROLE_INACTIVE, 3L));
+        assertThat(counters.getReconciledAt()).isNotNull();
+    }
+
+    @Test
+    void moveCreatesDeletesAndChangesCells() {
+        counters.move(null, GV_ACTIVE);          // tạo user
+        counters.move(GV_ACTIVE, GV_INACTIVE);   // khóa
+        counters.move(GV_INACTIVE, GV_INACTIVE); // không đổi
+        counters.move(ADMIN_ACTIVE, null);       // xóa khỏi bảng
+
+        assertThat(counters.snapshot()).isEqualTo(Map.of(
+                GV_ACTIVE, 10L, GV_INACTIVE, 3L, NO_ROLE_INACTIVE, 3L));
+    }
+
+    @Test
+    void addAppliesBulkDeltasToNewCells() {
+        Cell newRole = new Cell(7, true);
+        counters.add(newRole, 250);
+        counters.add(GV_ACTIVE, -4);
+        counters.add(GV_INACTIVE, 4);
+        counters.add(ADMIN_ACTIVE, 0);
+
+        assertThat(counters.snapshot()).containsEntry(newRole, 250L)
+                .containsEntry(GV_ACTIVE, 6L)
+                .containsEntry(GV_INACTIVE, 6L)
+                .containsEntry(ADMIN_ACTIVE, 1L);
+    }
+
+    @Test
+    void reconcileRepairsDrift() {
+        // Thêm 2 user trực tiếp trong database: bộ đếm không biết
+        rows.set(1, new Object[]{5, true, 12L});
+        // Bộ đếm tính 1 user mà database không có
+        counters.move(null, ADMIN_ACTIVE);
+
+        assertThat(counters.reconcile()).isTrue();
+
+        assertThat(counters.snapshot()).isEqualTo(Map.of(
+                ADMIN_ACTIVE, 1L, GV_ACTIVE, 12L, GV_INACTIVE, 2L, NO_ROLE_INACTIVE, 3L));
+    }
+
+    @Test
+    void reconcileIsSkippedWhenChangeAppliedDuringQuery() {
+        rows.set(1, new Object[]{5, true, 11L});
+        // Commit xảy ra trong lúc query chạy: không biết kết quả query đã có user mới hay chưa
+        duringQuery = () -> counters.move(null, GV_ACTIVE);
+
+        assertThat(counters.reconcile()).isFalse();
+        assertThat(counters.snapshot()).containsEntry(GV_ACTIVE, 11L);
+
+        duringQuery = () -> { };
+        assertThat(counters.reconcile()).isTrue();
+        assertThat(counters.snapshot()).containsEntry(GV_ACTIVE, 11L);
+    }
+
+    @Test
+    void concurrentMovesKeepTotal() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        counters.move(GV_ACTIVE, GV_INACTIVE);
+                        counters.move(GV_INACTIVE, GV_ACTIVE);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(counters.snapshot()).isEqualTo(Map.of(
+                ADMIN_ACTIVE, 1L, GV_ACTIVE, 10L, GV_INACTIVE, 2L, NO_ROLE_INACTIVE, 3L));
+    }
+}
@@ -0,0 +1,171 @@
+package com.DACN.quanlikhoa.service;
+
+import com.DACN.quanlikhoa.dto.UserSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test UserSuggestIndex: chuẩn hóa, xếp hạng, cập nhật và nén index
+ *
+ * File: UserSuggestIndexTest.java
+ * Location: src/test/java/com/DACN/quanlikhoa/service/UserSuggestIndexTest.java
+ *
+ * Index dựng bằng load() / upsert(), không cần database.
+ */
+class UserSuggestIndexTest {
+
+    private final UserSuggestIndex index = new UserSuggestIndex();
+
+    @Test
+    void foldRemovesVietnameseMarksAndCase() {
+        assertThat(UserSuggestIndex.fold("Nguyễn Đức Thắng")).isEqualTo("nguyen duc thang");
+        assertThat(UserSuggestIndex.tokenize(" Trần-Thị  D, trần ")).containsExactly("tran", "thi", "d");
+        assertThat(UserSuggestIndex.tokenize("   ")).isEmpty();
+    }
+
+    @Test
+    void everyQueryTokenMustMatch() {
+        index.load(List.of(
+                user(1, "gv.nguyenvanc", "Nguyễn Văn C"),
+                user(2, "gv.tranthid", "Trần Thị D"),
+                user(3, "sv.nguyenthie", "Nguyễn Thị E")));
+
+        assertThat(ids("nguyen")).containsExactlyInAnyOrder(1, 3);
+        assertThat(ids("nguyen thi")).containsExactly(3);
+        assertThat(ids("NGUYỄN thị")).containsExactly(3);
+        assertThat(ids("nguyen xyz")).isEmpty();
+        assertThat(ids("zzz")).isEmpty();
+        assertThat(ids("")).isEmpty();
+    }
+
+    @Test
+    void shortTokensMatchPrefixOnlyLongTokensMatchSubstring() {
+        index.load(List.of(
+                user(1, "a1", "Lê Minh"),
+                user(2, "a2", "Hoàng Le")));
+
+        // "in" không là tiền tố của token nào
+        assertThat(ids("in")).isEmpty();
+        // "inh" là chuỗi con của "minh"
+        assertThat(ids("inh")).containsExactly(1);
+        assertThat(ids("le")).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void exactTokenRanksAbovePrefixAboveSubstring() {
+        index.load(List.of(
+                user(1, "u1", "Phạm Anhthu"),    // "anh" là tiền tố
+                user(2, "u2", "Phạm Thanh"),     // "anh" là chuỗi con
+                user(3, "u3", "Phạm Văn Anh")));  // "anh" trùng hoàn toàn
+
+        assertThat(ids("anh")).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void tiesRankShorterFullNameThenSmallerUserId() {
+        index.load(List.of(
+                user(7, "u7", "Lan Nguyễn Thị"),
+                user(5, "u5", "Lan Anh"),
+                user(4, "u4", "Lan Chi")));
+
+        assertThat(ids("lan")).containsExactly(4, 5, 7);
+        assertThat(index.suggest("lan", 1, false)).extracting(UserSuggestion::getUserId).containsExactly(4);
+    }
+
+    @Test
+    void inactiveUsersAreHiddenUnlessRequested() {
+        UserSuggestion locked = user(2, "gv.binh", "Bình");
+        locked.setIsActive(false);
+        index.load(List.of(user(1, "gv.an", "An"), locked));
+
+        assertThat(ids("gv")).containsExactly(1);
+        assertThat(index.suggest("gv", 10, true)).extracting(UserSuggestion::getUserId).containsExactly(1, 2);
+    }
+
+    @Test
+    void upsertReplacesPreviousText() {
+        index.load(List.of(user(1, "gv.cu", "Tên Cũ")));
+
+        index.upsert(user(1, "gv.moi", "Tên Mới"));
+
+        assertThat(ids("cu")).isEmpty();
+        assertThat(index.suggest("moi", 10, false))
+                .singleElement()
+                .extracting(UserSuggestion::getFullName)
+                .isEqualTo("Tên Mới");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionKeepsResultsEqualToBruteForce() {
+        String[] lastNames = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng"};
+        String[] names = {"An", "Bình", "Châu", "Dũng", "Giang", "Hà", "Khánh", "Linh", "Minh", "Ngọc", "Thu", "Vy"};
+        Random random = new Random(42);
+        Map<Integer, UserSuggestion> expected = new HashMap<>();
+
+        List<UserSuggestion> initial = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            UserSuggestion user = randomUser(id, random, lastNames, names);
+            initial.add(user);
+            expected.put(id, user);
+        }
+        index.load(initial);
+
+        // Đủ lần sửa để số slot đã xóa vượt ngưỡng nén (> 1024 và > 25%) nhiều lần
+        for (int i = 0; i < 5000; i++) {
+            UserSuggestion user = randomUser(1 + random.nextInt(500), random, lastNames, names);
+            index.upsert(user);
+            expected.put(user.getUserId(), user);
+        }
+        assertThat(index.size()).isEqualTo(500);
+
+        for (String query : List.of("nguyen", "tran minh", "le", "ng", "h", "vy", "hoang thu", "inh", "sv0", "sv01")) {
+            Set<Integer> fromIndex = new TreeSet<>(ids(query, 1000));
+            Set<Integer> bruteForce = expected.values().stream()
+                    .filter(user -> matches(user, query))
+                    .map(UserSuggestion::getUserId)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            assertThat(fromIndex).as(query).isEqualTo(bruteForce);
+        }
+    }
+
+    /**
+     * Khớp theo định nghĩa của suggest(): mọi token từ khóa là tiền tố (1-2 ký tự)
+     * hoặc chuỗi con (>= 3 ký tự) của 1 token của user
+     */
+    private static boolean matches(UserSuggestion user, String query) {
+        String[] userTokens = UserSuggestIndex.tokenize(
+                user.getUsername() + " " + user.getFullName() + " " + user.getEmail());
+        return Arrays.stream(UserSuggestIndex.tokenize(query)).allMatch(q -> Arrays.stream(userTokens)
+                .anyMatch(t -> q.length() < 3 ? t.startsWith(q) : t.contains(q)));
+    }
+
+    private static UserSuggestion randomUser(int id, Random random, String[] lastNames, String[] names) {
+        String fullName = lastNames[random.nextInt(lastNames.length)] + " "
+                + names[random.nextInt(names.length)] + " " + names[random.nextInt(names.length)];
+        return user(id, "sv" + String.format("%04d", random.nextInt(2000)), fullName);
+    }
+
+    private List<Integer> ids(String query) {
+        return ids(query, 10);
+    }
+
+    private List<Integer> ids(String query, int limit) {
+        return index.suggest(query, limit, false).stream().map(UserSuggestion::getUserId).toList();
+    }
+
+    private static UserSuggestion user(int id, String username, String fullName) {
+        return new UserSuggestion(id, username, username + "@khoa.edu.vn", fullName, null, "GIANG_VIEN", true);
+    }
+}
@@ -21,13 +21,56 @@ api.interceptors.request.use(
   (error) => Promise.reject(error)
 );
 
-// Response interceptor
+const clearSession = () => {
+  localStorage.removeItem('accessToken');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('user');
+};
+
+// Dùng chung 1 request refresh khi nhiều request cùng bị 401
+let refreshPromise = null;
+
+const refreshAccessToken = () => {
+  if (!refreshPromise) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshPromise = (refreshToken
+      ? axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken })
+      : Promise.reject(new Error('Không có refresh token')))
+      .then((response) => {
+        const { accessToken, refreshToken: newRefreshToken } = response.data.data;
+        localStorage.setItem('accessToken', accessToken);
+        localStorage.setItem('refreshToken', newRefreshToken);
+        return accessToken;
+      })
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+};
+
+// Response interceptor: 401 → refresh token 1 lần rồi gửi lại request
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
-    if (error.response?.status === 401) {
-      localStorage.removeItem('accessToken');
-      localStorage.removeItem('user');
+  async (error) => {
+    const originalRequest = error.config;
+    const isAuthRequest = originalRequest?.url?.startsWith('/auth/login');
+
+    if (error.response?.status === 401 && originalRequest && !originalRequest._retry && !isAuthRequest) {
+      originalRequest._retry = true;
+      try {
+        const accessToken = await refreshAccessToken();
+        originalRequest.headers.Authorization = `Bearer ${accessToken}`;
+        return api(originalRequest);
+      } catch (refreshError) {
+        clearSession();
+        window.location.href = '/login';
+        return Promise.reject(error);
+      }
+    }
+
+    if (error.response?.status === 401 && !isAuthRequest) {
+      clearSession();
       window.location.href = '/login';
     }
     return Promise.reject(error);
@@ -40,8 +83,9 @@ const authService = {
       const response = await api.post('/auth/login', { username, password });
       
       if (response.data.success) {
-        const { accessToken, ...userInfo } = response.data.data;
+        const { accessToken, refreshToken, tokenType, expiresIn, ...userInfo } = response.data.data;
         localStorage.setItem('accessToken', accessToken);
+        localStorage.setItem('refreshToken', refreshToken);
         localStorage.setItem('user', JSON.stringify(userInfo));
       }
       
@@ -53,12 +97,11 @@ const authService = {
 
   logout: async () => {
     try {
-      await api.post('/auth/logout');
+      await api.post('/auth/logout', { refreshToken: localStorage.getItem('refreshToken') });
     } catch (error) {
       console.error('Logout error:', error);
     } finally {
-      localStorage.removeItem('accessToken');
-      localStorage.removeItem('user');
+      clearSession();
     }
   },
 